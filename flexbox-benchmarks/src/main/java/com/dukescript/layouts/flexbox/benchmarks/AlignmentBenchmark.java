@@ -0,0 +1,91 @@
+package com.dukescript.layouts.flexbox.benchmarks;
+
+/*-
+ * #%L
+ * flexbox-benchmarks - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full layout passes of a wrapping layout for every combination of
+ * JustifyContent and AlignContent. The cross size leaves free space, so the
+ * AlignContent modes have something to distribute.
+ *
+ * @author antonepple
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlignmentBenchmark {
+
+    @Param({"1000"})
+    int itemCount;
+
+    @Param({"FLEX_START", "FLEX_END", "CENTER", "SPACE_BETWEEN", "SPACE_AROUND"})
+    JustifyContent justifyContent;
+
+    @Param({"FLEX_START", "FLEX_END", "CENTER", "SPACE_BETWEEN", "SPACE_AROUND", "STRETCH"})
+    AlignContent alignContent;
+
+    private FlexboxLayout layout;
+    private double crossSize;
+
+    @Setup
+    public void setUp() {
+        layout = Items.layout(Items.fixed(itemCount), FlexWrap.WRAP);
+        layout.setJustifyContent(justifyContent);
+        layout.setAlignContent(alignContent);
+        layout.layoutSubViews(Items.MAIN_SIZE, 0);
+        crossSize = layout.getMinCrossSize() * 1.5;
+    }
+
+    @Benchmark
+    public double fullPass() {
+        layout.invalidate();
+        layout.layoutSubViews(Items.MAIN_SIZE, crossSize);
+        return layout.getMinCrossSize();
+    }
+}
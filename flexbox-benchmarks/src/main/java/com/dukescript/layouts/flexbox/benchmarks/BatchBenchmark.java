@@ -0,0 +1,112 @@
+package com.dukescript.layouts.flexbox.benchmarks;
+
+/*-
+ * #%L
+ * flexbox-benchmarks - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.BatchLayout;
+import com.dukescript.layouts.flexbox.FlexboxLayout;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Many small containers, like the cards of a report, laid out one
+ * FlexboxLayout each or as a {@link BatchLayout}.
+ *
+ * @author antonepple
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int containerCount;
+
+    @Param({"10"})
+    int itemCount;
+
+    private List<List<DefaultFlexItem>> containers;
+    private List<BatchLayout.Job> jobs;
+    private BatchLayout sequential, parallel;
+
+    @Setup
+    public void setUp() {
+        containers = new ArrayList<>();
+        jobs = new ArrayList<>();
+        for (int i = 0; i < containerCount; i++) {
+            List<DefaultFlexItem> items = Items.fixed(itemCount);
+            containers.add(items);
+            jobs.add(new BatchLayout.Job(items, 200, 200)
+                    .setFlexDirection(FlexboxLayout.FlexDirection.ROW)
+                    .setFlexWrap(FlexWrap.WRAP)
+                    .setAlignContent(FlexboxLayout.AlignContent.STRETCH));
+        }
+        sequential = new BatchLayout();
+        parallel = new BatchLayout(ForkJoinPool.commonPool(), BatchLayout.DEFAULT_CHUNK_SIZE);
+    }
+
+    @Benchmark
+    public double layoutPerContainer() {
+        double size = 0;
+        for (int i = 0; i < containers.size(); i++) {
+            FlexboxLayout layout = Items.layout(containers.get(i), FlexWrap.WRAP);
+            layout.layoutSubViews(200, 200);
+            size += layout.getMinCrossSize();
+        }
+        return size;
+    }
+
+    @Benchmark
+    public long batch() {
+        return sequential.layout(jobs).getNanos();
+    }
+
+    @Benchmark
+    public long parallelBatch() {
+        return parallel.layout(jobs).getNanos();
+    }
+}
@@ -0,0 +1,105 @@
+package com.dukescript.layouts.flexbox.benchmarks;
+
+/*-
+ * #%L
+ * flexbox-benchmarks - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full layout passes of a single line that has to grow or shrink, where
+ * every second item is clamped to its maximum or minimum size.
+ *
+ * @author antonepple
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlexBenchmark {
+
+    public enum Flex {
+        GROW, SHRINK
+    }
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    int itemCount;
+
+    @Param({"GROW", "SHRINK"})
+    Flex flex;
+
+    private FlexboxLayout layout;
+    private double mainSize;
+
+    @Setup
+    public void setUp() {
+        List<DefaultFlexItem> items = Items.fixed(itemCount);
+        double size = Items.mainSize(items);
+        for (int i = 0; i < items.size(); i++) {
+            DefaultFlexItem item = items.get(i);
+            double width = item.getMinWidth();
+            if (flex == Flex.GROW) {
+                item.setFlexGrow(1 + i % 3);
+                if (i % 2 == 0) {
+                    item.setMaxWidth(width * 1.2);
+                }
+            } else {
+                // the line ignores a total shrink of exactly 1
+                item.setFlexShrink(2 + i % 3);
+                item.setWidth(width);
+                item.setMinWidth(i % 2 == 0 ? width * 0.8 : 0);
+            }
+        }
+        mainSize = flex == Flex.GROW ? size * 2 : size / 2;
+        layout = Items.layout(items, FlexWrap.NOWRAP);
+    }
+
+    @Benchmark
+    public double fullPass() {
+        layout.invalidate();
+        layout.layoutSubViews(mainSize, 100);
+        return layout.getMinMainSize();
+    }
+}
@@ -0,0 +1,113 @@
+package com.dukescript.layouts.flexbox.benchmarks;
+
+/*-
+ * #%L
+ * flexbox-benchmarks - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full layout passes of a single growing line where the growing items are
+ * clamped to their maximum size one after another, one per round, followed
+ * by items that don't grow. Compares the rounds with the growing items
+ * ordered by the point at which they are clamped.
+ *
+ * @author antonepple
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrowBenchmark {
+
+    private static final int GROWING = 120;
+    private static final double FREE_SPACE = 1000;
+
+    @Param({"100", "1000", "10000", "100000"})
+    int fixedCount;
+
+    @Param({"false", "true"})
+    boolean sorted;
+
+    private FlexboxLayout layout;
+    private double mainSize;
+
+    @Setup
+    public void setUp() {
+        float[] grows = new float[GROWING + 1];
+        float totalGrow = 0;
+        for (int k = 0; k <= GROWING; k++) {
+            grows[k] = (float) Math.pow(0.5, k);
+            totalGrow += grows[k];
+        }
+        List<DefaultFlexItem> items = new ArrayList<>();
+        double unit = 0, growUnit = FREE_SPACE / totalGrow;
+        for (int k = 0; k <= GROWING; k++) {
+            double maxSize = Double.MAX_VALUE;
+            if (k < GROWING) {
+                // reached shortly after the start of round k
+                maxSize = grows[k] * (unit + growUnit * 0.1);
+                unit += growUnit;
+                totalGrow -= grows[k];
+                growUnit = (grows[k] * unit - maxSize) / totalGrow;
+            }
+            items.add(DefaultFlexItem.builder().minHeight(10).flexGrow(grows[k]).maxWidth(maxSize).build());
+        }
+        for (int i = 0; i < fixedCount; i++) {
+            items.add(DefaultFlexItem.builder().width(10).height(10).build());
+        }
+        mainSize = FREE_SPACE + 10 * fixedCount;
+        layout = Items.layout(items, FlexWrap.NOWRAP);
+        layout.setSortedGrowEnabled(sorted);
+    }
+
+    @Benchmark
+    public double fullPass() {
+        layout.invalidate();
+        layout.layoutSubViews(mainSize, 100);
+        return layout.getMinMainSize();
+    }
+}
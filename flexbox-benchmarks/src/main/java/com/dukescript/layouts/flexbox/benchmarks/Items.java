@@ -0,0 +1,108 @@
+package com.dukescript.layouts.flexbox.benchmarks;
+
+/*-
+ * #%L
+ * flexbox-benchmarks - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates the items and layouts the benchmarks run on. The items are
+ * random, but the same for every run.
+ *
+ * @author antonepple
+ */
+final class Items {
+
+    /**
+     * Main size of the container for the wrapping benchmarks.
+     */
+    static final double MAIN_SIZE = 1000;
+
+    private Items() {
+    }
+
+    /**
+     * Creates items with fixed sizes and margins, which neither grow nor
+     * shrink.
+     *
+     * @param count number of items
+     * @return the items
+     */
+    static List<DefaultFlexItem> fixed(int count) {
+        Random random = new Random(4711);
+        List<DefaultFlexItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(DefaultFlexItem.builder()
+                    .minWidth(10 + random.nextInt(50))
+                    .minHeight(10 + random.nextInt(50))
+                    .marginLeft(2).marginRight(2).marginTop(2).marginBottom(2)
+                    .build());
+        }
+        return items;
+    }
+
+    /**
+     * Sum of the main sizes including margins.
+     *
+     * @param items the items
+     * @return the main size the items need in a single line
+     */
+    static double mainSize(List<DefaultFlexItem> items) {
+        double size = 0;
+        for (int i = 0; i < items.size(); i++) {
+            DefaultFlexItem item = items.get(i);
+            size += item.getMinWidth() + item.getMarginLeft() + item.getMarginRight();
+        }
+        return size;
+    }
+
+    /**
+     * Creates a horizontal layout for the items.
+     *
+     * @param items the items
+     * @param flexWrap wrapping of the layout
+     * @return the layout
+     */
+    static FlexboxLayout layout(List<DefaultFlexItem> items, FlexboxLayout.FlexWrap flexWrap) {
+        FlexboxLayout layout = new FlexboxLayout();
+        layout.setFlexDirection(FlexboxLayout.FlexDirection.ROW);
+        layout.setFlexWrap(flexWrap);
+        layout.setJustifyContent(FlexboxLayout.JustifyContent.FLEX_START);
+        layout.setAlignItems(FlexboxLayout.AlignItems.STRETCH);
+        layout.setAlignContent(FlexboxLayout.AlignContent.STRETCH);
+        for (int i = 0; i < items.size(); i++) {
+            layout.add(items.get(i));
+        }
+        return layout;
+    }
+}
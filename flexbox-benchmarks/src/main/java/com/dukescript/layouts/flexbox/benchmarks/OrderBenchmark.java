@@ -0,0 +1,119 @@
+package com.dukescript.layouts.flexbox.benchmarks;
+
+/*-
+ * #%L
+ * flexbox-benchmarks - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Layout passes of items with non-zero order. The reorder benchmark changes
+ * the order of one item before every pass, so the items have to be sorted
+ * again.
+ *
+ * @author antonepple
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBenchmark {
+
+    public enum Order {
+        /**
+         * All items have order 0.
+         */
+        ZERO,
+        /**
+         * Orders between -5 and 5.
+         */
+        SMALL_RANGE,
+        /**
+         * Orders spread over the whole int range.
+         */
+        LARGE_RANGE
+    }
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    int itemCount;
+
+    @Param({"ZERO", "SMALL_RANGE", "LARGE_RANGE"})
+    Order order;
+
+    private FlexboxLayout layout;
+    private DefaultFlexItem reordered;
+    private int reorderedOrder;
+
+    @Setup
+    public void setUp() {
+        List<DefaultFlexItem> items = Items.fixed(itemCount);
+        Random random = new Random(815);
+        for (int i = 0; i < items.size(); i++) {
+            if (order == Order.SMALL_RANGE) {
+                items.get(i).setOrder(random.nextInt(11) - 5);
+            } else if (order == Order.LARGE_RANGE) {
+                items.get(i).setOrder(random.nextInt());
+            }
+        }
+        layout = Items.layout(items, FlexWrap.WRAP);
+        reordered = items.get(items.size() / 2);
+        reorderedOrder = reordered.getOrder();
+    }
+
+    @Benchmark
+    public double fullPass() {
+        layout.invalidate();
+        layout.layoutSubViews(Items.MAIN_SIZE, 1000);
+        return layout.getMinCrossSize();
+    }
+
+    @Benchmark
+    public double reorder() {
+        reordered.setOrder(reordered.getOrder() == reorderedOrder ? reorderedOrder + 1 : reorderedOrder);
+        layout.layoutSubViews(Items.MAIN_SIZE, 1000);
+        return layout.getMinCrossSize();
+    }
+}
@@ -0,0 +1,71 @@
+package com.dukescript.layouts.flexbox.benchmarks;
+
+/*-
+ * #%L
+ * flexbox-benchmarks - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout;
+import com.dukescript.layouts.flexbox.LayoutReplay;
+import com.dukescript.layouts.flexbox.LayoutReplay.Report;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Replays a session recorded with a LayoutRecorder and prints the timings
+ * and differences of every pass:
+ * <pre>
+ * java -cp benchmarks.jar com.dukescript.layouts.flexbox.benchmarks.Replay session.flx [iterations] [array]
+ * </pre>
+ * The passes are replayed a number of times to warm up first, "array"
+ * replays them with the array engine.
+ *
+ * @author antonepple
+ */
+public final class Replay {
+
+    private Replay() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: Replay <session> [iterations] [array]");
+            System.exit(2);
+        }
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        FlexboxLayout layout = new FlexboxLayout();
+        layout.setArrayEngineEnabled(args.length > 2 && "array".equals(args[2]));
+        LayoutReplay replay = new LayoutReplay(layout).setIterations(iterations);
+        // warm up
+        replay.replay(Paths.get(args[0]));
+        Report report = replay.replay(Paths.get(args[0]));
+        System.out.print(report);
+        if (report.getDifferentPasses() > 0) {
+            System.exit(1);
+        }
+    }
+}
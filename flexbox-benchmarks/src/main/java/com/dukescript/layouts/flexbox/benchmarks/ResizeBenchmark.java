@@ -0,0 +1,101 @@
+package com.dukescript.layouts.flexbox.benchmarks;
+
+/*-
+ * #%L
+ * flexbox-benchmarks - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A window being resized: every pass changes only the main size, by one
+ * pixel back and forth between 90% and 110% of the usual size. The items
+ * grow, every tenth one has a flex basis percentage. Without the fast path
+ * every pass is a full pass.
+ *
+ * @author antonepple
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResizeBenchmark {
+
+    private static final int STEPS = (int) (Items.MAIN_SIZE * 0.2);
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    int itemCount;
+
+    @Param({"NOWRAP", "WRAP"})
+    FlexWrap flexWrap;
+
+    @Param({"true", "false"})
+    boolean fastPath;
+
+    private FlexboxLayout layout;
+    private int step;
+
+    @Setup
+    public void setUp() {
+        List<DefaultFlexItem> items = Items.fixed(itemCount);
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setFlexGrow(1);
+            if (i % 10 == 0) {
+                items.get(i).setFlexBasisPercent(5);
+            }
+        }
+        layout = Items.layout(items, flexWrap);
+        layout.layoutSubViews(Items.MAIN_SIZE * 0.9, 1000);
+    }
+
+    @Benchmark
+    public double resizePass() {
+        step = (step + 1) % (2 * STEPS);
+        if (!fastPath) {
+            layout.invalidate();
+        }
+        layout.layoutSubViews(Items.MAIN_SIZE * 0.9 + Math.abs(step - STEPS), 1000);
+        return layout.getMinCrossSize();
+    }
+}
@@ -0,0 +1,269 @@
+package com.dukescript.layouts.flexbox.server;
+
+/*-
+ * #%L
+ * flexbox-server - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Minimal pull parser for JSON. It reads the values one after another from
+ * the stream, so a request is processed while it is received and no tree
+ * of the whole document is built. Separators are checked leniently, the
+ * structure is not. Malformed input is reported as an
+ * IllegalArgumentException.
+ *
+ * @author antonepple
+ */
+final class JsonReader {
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position, limit;
+    private long offset;
+    private final StringBuilder text = new StringBuilder();
+
+    JsonReader(Reader in) {
+        this.in = in;
+    }
+
+    void beginObject() throws IOException {
+        expect('{');
+    }
+
+    void endObject() throws IOException {
+        expect('}');
+    }
+
+    void beginArray() throws IOException {
+        expect('[');
+    }
+
+    void endArray() throws IOException {
+        expect(']');
+    }
+
+    /**
+     * @return true if the current object or array has another element
+     */
+    boolean hasNext() throws IOException {
+        int c = peek();
+        if (c == ',') {
+            position++;
+            c = peek();
+        }
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    String nextName() throws IOException {
+        String name = nextString();
+        expect(':');
+        return name;
+    }
+
+    String nextString() throws IOException {
+        expect('"');
+        text.setLength(0);
+        for (;;) {
+            int c = read();
+            switch (c) {
+                case -1:
+                    throw error("unterminated string");
+                case '"':
+                    return text.toString();
+                case '\\':
+                    c = read();
+                    switch (c) {
+                        case 'b':
+                            text.append('\b');
+                            break;
+                        case 'f':
+                            text.append('\f');
+                            break;
+                        case 'n':
+                            text.append('\n');
+                            break;
+                        case 'r':
+                            text.append('\r');
+                            break;
+                        case 't':
+                            text.append('\t');
+                            break;
+                        case 'u':
+                            int code = 0;
+                            for (int i = 0; i < 4; i++) {
+                                int digit = Character.digit(read(), 16);
+                                if (digit < 0) {
+                                    throw error("invalid unicode escape");
+                                }
+                                code = code * 16 + digit;
+                            }
+                            text.append((char) code);
+                            break;
+                        case '"':
+                        case '\\':
+                        case '/':
+                            text.append((char) c);
+                            break;
+                        default:
+                            throw error("invalid escape");
+                    }
+                    break;
+                default:
+                    text.append((char) c);
+            }
+        }
+    }
+
+    double nextDouble() throws IOException {
+        peek();
+        text.setLength(0);
+        for (int c = peekRaw(); c != -1 && (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || c >= '0' && c <= '9'); c = peekRaw()) {
+            text.append((char) c);
+            position++;
+        }
+        try {
+            return Double.parseDouble(text.toString());
+        } catch (NumberFormatException ex) {
+            throw error("number expected");
+        }
+    }
+
+    int nextInt() throws IOException {
+        double value = nextDouble();
+        if (value != (int) value) {
+            throw error("integer expected");
+        }
+        return (int) value;
+    }
+
+    boolean nextBoolean() throws IOException {
+        String literal = nextLiteral();
+        if ("true".equals(literal)) {
+            return true;
+        }
+        if ("false".equals(literal)) {
+            return false;
+        }
+        throw error("boolean expected");
+    }
+
+    /**
+     * Skips the next value, including nested objects and arrays.
+     */
+    void skipValue() throws IOException {
+        int c = peek();
+        switch (c) {
+            case '{':
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+                break;
+            case '[':
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+                break;
+            case '"':
+                nextString();
+                break;
+            case 't':
+            case 'f':
+            case 'n':
+                nextLiteral();
+                break;
+            default:
+                nextDouble();
+        }
+    }
+
+    private String nextLiteral() throws IOException {
+        peek();
+        text.setLength(0);
+        for (int c = peekRaw(); c >= 'a' && c <= 'z'; c = peekRaw()) {
+            text.append((char) c);
+            position++;
+        }
+        String literal = text.toString();
+        if (!"true".equals(literal) && !"false".equals(literal) && !"null".equals(literal)) {
+            throw error("unexpected literal " + literal);
+        }
+        return literal;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (peek() != expected) {
+            throw error("'" + expected + "' expected");
+        }
+        position++;
+    }
+
+    /**
+     * @return the next character that isn't whitespace, without consuming
+     * it, or -1 at the end
+     */
+    private int peek() throws IOException {
+        for (;;) {
+            int c = peekRaw();
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return c;
+            }
+            position++;
+        }
+    }
+
+    private int peekRaw() throws IOException {
+        if (position == limit) {
+            offset += limit;
+            position = 0;
+            limit = Math.max(0, in.read(buffer));
+            if (limit == 0) {
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        int c = peekRaw();
+        if (c != -1) {
+            position++;
+        }
+        return c;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + (offset + position));
+    }
+}
@@ -0,0 +1,155 @@
+package com.dukescript.layouts.flexbox.server;
+
+/*-
+ * #%L
+ * flexbox-server - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request latencies, collected without locks from any number of threads.
+ * The latencies are counted in a log-linear histogram with 8 buckets per
+ * power of two, so percentiles are exact to within 12.5% and recording never
+ * allocates.
+ *
+ * @author antonepple
+ */
+public final class LatencyMetrics {
+
+    private static final int SUB_BUCKETS = 8;
+    private static final int BUCKETS = 61 * SUB_BUCKETS;
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a request.
+     *
+     * @param nanos the latency of the request in nanoseconds
+     * @param itemCount the number of items laid out
+     * @param error true if the request failed
+     */
+    public void record(long nanos, int itemCount, boolean error) {
+        nanos = Math.max(0, nanos);
+        histogram.incrementAndGet(bucket(nanos));
+        count.increment();
+        if (error) {
+            errors.increment();
+        }
+        items.add(itemCount);
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getItems() {
+        return items.sum();
+    }
+
+    public long getMeanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / n;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the upper bound of the bucket containing the percentile, in
+     * nanoseconds
+     */
+    public long getPercentileNanos(double percentile) {
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) {
+            counts[b] = histogram.get(b);
+            total += counts[b];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return Math.min(lowerBound(b + 1) - 1, maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return (exponent - 2) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 2;
+        int sub = bucket % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - 3);
+    }
+
+    /**
+     * @return the metrics as text, one value per line
+     */
+    @Override
+    public String toString() {
+        return "requests " + getCount()
+                + "\nerrors " + getErrors()
+                + "\nitems " + getItems()
+                + "\nlatency_mean_us " + getMeanNanos() / 1000
+                + "\nlatency_p50_us " + getPercentileNanos(50) / 1000
+                + "\nlatency_p90_us " + getPercentileNanos(90) / 1000
+                + "\nlatency_p99_us " + getPercentileNanos(99) / 1000
+                + "\nlatency_max_us " + getMaxNanos() / 1000
+                + "\n";
+    }
+}
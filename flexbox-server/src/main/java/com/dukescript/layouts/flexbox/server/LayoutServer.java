@@ -0,0 +1,399 @@
+package com.dukescript.layouts.flexbox.server;
+
+/*-
+ * #%L
+ * flexbox-server - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.Bounds;
+import com.dukescript.layouts.flexbox.FlexboxLayout;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem.AlignSelf;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless layout service for renderers that aren't written in Java. The
+ * server runs on the HTTP server of the JDK and has two endpoints:
+ * <ul>
+ * <li>POST /layout takes a container with its items as JSON and answers
+ * with the bounds of the items</li>
+ * <li>GET /metrics answers with the request count and latencies as
+ * text</li>
+ * </ul>
+ * A request is parsed while it is received and the bounds are written as
+ * they are serialized, neither is held as a document in memory:
+ * <pre>
+ * {"flexDirection": "ROW", "flexWrap": "WRAP", "justifyContent": "CENTER",
+ *  "alignItems": "STRETCH", "alignContent": "FLEX_START",
+ *  "width": 300, "height": 200,
+ *  "items": [{"width": 50, "height": 20, "flexGrow": 1}, ...]}
+ *
+ * {"minMainSize": 300, "minCrossSize": 20,
+ *  "bounds": [[0, 0, 150, 20], ...]}
+ * </pre>
+ * Items accept the properties of {@link DefaultFlexItem.DefaultFlexItemBuilder}
+ * with the same defaults, unknown properties are ignored. The bounds are
+ * x, y, width and height in the order of the items.
+ * <p>
+ * Every request runs on a thread of its own. On runtimes with virtual
+ * threads these are virtual threads, otherwise a pool of platform threads
+ * is used.
+ * <p>
+ * Unless the system property {@code sun.net.httpserver.nodelay} is true, the
+ * HTTP server of the JDK sends the end of small responses only after a
+ * delayed ack of the client, which adds up to 40ms to every request. The
+ * property applies to all servers of the JVM, so it is only set by
+ * {@link #main}. Applications embedding the server set it themselves before
+ * the first server is created.
+ *
+ * @author antonepple
+ */
+public final class LayoutServer {
+
+    private static final Logger LOG = Logger.getLogger(LayoutServer.class.getName());
+
+    /**
+     * Port used by {@link #main} when none is given.
+     */
+    public static final int DEFAULT_PORT = 8085;
+
+    private final HttpServer server;
+    private final Executor executor;
+    private final boolean ownExecutor;
+    private final LatencyMetrics metrics = new LatencyMetrics();
+
+    /**
+     * Creates a server running each request on a thread of its own.
+     *
+     * @param address the address to listen on, port 0 picks a free port
+     * @throws IOException if the server can't be bound to the address
+     */
+    public LayoutServer(InetSocketAddress address) throws IOException {
+        this(address, null);
+    }
+
+    /**
+     * @param address the address to listen on, port 0 picks a free port
+     * @param executor the executor to handle the requests, or null for a
+     * thread per request
+     * @throws IOException if the server can't be bound to the address
+     */
+    public LayoutServer(InetSocketAddress address, Executor executor) throws IOException {
+        this.ownExecutor = executor == null;
+        this.executor = executor == null ? threadPerRequest() : executor;
+        server = HttpServer.create(address, 0);
+        server.setExecutor(this.executor);
+        server.createContext("/layout", this::layout);
+        server.createContext("/metrics", this::metrics);
+    }
+
+    /**
+     * Starts a server. The only argument is the port, by default
+     * {@value #DEFAULT_PORT}. The server binds to the loopback address.
+     *
+     * @param args the arguments
+     * @throws IOException if the server can't be started
+     */
+    public static void main(String[] args) throws IOException {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            // otherwise the end of small responses waits for the delayed ack
+            // of the client, which adds up to 40ms to every request
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        LayoutServer server = new LayoutServer(new InetSocketAddress("127.0.0.1", port));
+        server.start();
+        LOG.log(Level.INFO, "Layout server listening on http://{0}:{1,number,#}/layout",
+                new Object[]{server.getAddress().getHostString(), server.getAddress().getPort()});
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting at most the given time for running requests.
+     *
+     * @param delay seconds to wait for running requests
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        if (ownExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public LatencyMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Creates an executor with a virtual thread per task, if the runtime
+     * has them. Otherwise the threads are platform threads from a cached
+     * pool.
+     */
+    static ExecutorService threadPerRequest() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "layout-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void layout(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        int itemCount = 0;
+        // recorded before the response is complete, so a client that has
+        // its response finds the request in the metrics
+        boolean recorded = false;
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                metrics.record(System.nanoTime() - start, itemCount, true);
+                recorded = true;
+                sendText(exchange, 405, "POST a container\n");
+                return;
+            }
+            FlexboxLayout layout = new FlexboxLayout();
+            List<DefaultFlexItem> items = new ArrayList<>();
+            double[] size = {-1, -1};
+            try {
+                JsonReader in = new JsonReader(new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)));
+                readContainer(in, layout, items, size);
+                if (size[0] < 0 || size[1] < 0) {
+                    throw new IllegalArgumentException("width and height of the container are required");
+                }
+            } catch (IllegalArgumentException ex) {
+                metrics.record(System.nanoTime() - start, itemCount, true);
+                recorded = true;
+                sendText(exchange, 400, ex.getMessage() + "\n");
+                return;
+            }
+            itemCount = items.size();
+            boolean horizontal = layout.isHorizontal();
+            layout.layoutSubViews(horizontal ? size[0] : size[1], horizontal ? size[1] : size[0]);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            // chunked, the bounds are streamed as they are written
+            exchange.sendResponseHeaders(200, 0);
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+                writeResult(out, layout, items);
+                out.flush();
+                // the response ends when the stream is closed
+                metrics.record(System.nanoTime() - start, itemCount, false);
+                recorded = true;
+            }
+        } finally {
+            if (!recorded) {
+                metrics.record(System.nanoTime() - start, itemCount, true);
+            }
+            exchange.close();
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try {
+            sendText(exchange, 200, metrics.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    static void readContainer(JsonReader in, FlexboxLayout layout, List<DefaultFlexItem> items, double[] size) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "flexDirection":
+                    layout.setFlexDirection(FlexDirection.valueOf(in.nextString()));
+                    break;
+                case "flexWrap":
+                    layout.setFlexWrap(FlexWrap.valueOf(in.nextString()));
+                    break;
+                case "justifyContent":
+                    layout.setJustifyContent(JustifyContent.valueOf(in.nextString()));
+                    break;
+                case "alignItems":
+                    layout.setAlignItems(AlignItems.valueOf(in.nextString()));
+                    break;
+                case "alignContent":
+                    layout.setAlignContent(AlignContent.valueOf(in.nextString()));
+                    break;
+                case "width":
+                    size[0] = in.nextDouble();
+                    break;
+                case "height":
+                    size[1] = in.nextDouble();
+                    break;
+                case "items":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        DefaultFlexItem item = readItem(in);
+                        items.add(item);
+                        layout.add(item);
+                    }
+                    in.endArray();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    private static DefaultFlexItem readItem(JsonReader in) throws IOException {
+        DefaultFlexItem.DefaultFlexItemBuilder builder = DefaultFlexItem.builder();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "width":
+                    builder.width(in.nextDouble());
+                    break;
+                case "height":
+                    builder.height(in.nextDouble());
+                    break;
+                case "minWidth":
+                    builder.minWidth(in.nextDouble());
+                    break;
+                case "minHeight":
+                    builder.minHeight(in.nextDouble());
+                    break;
+                case "maxWidth":
+                    builder.maxWidth(in.nextDouble());
+                    break;
+                case "maxHeight":
+                    builder.maxHeight(in.nextDouble());
+                    break;
+                case "marginLeft":
+                    builder.marginLeft(in.nextDouble());
+                    break;
+                case "marginTop":
+                    builder.marginTop(in.nextDouble());
+                    break;
+                case "marginRight":
+                    builder.marginRight(in.nextDouble());
+                    break;
+                case "marginBottom":
+                    builder.marginBottom(in.nextDouble());
+                    break;
+                case "flexGrow":
+                    builder.flexGrow((float) in.nextDouble());
+                    break;
+                case "flexShrink":
+                    builder.flexShrink((float) in.nextDouble());
+                    break;
+                case "flexBasisPercent":
+                    builder.flexBasisPercent((float) in.nextDouble());
+                    break;
+                case "order":
+                    builder.order(in.nextInt());
+                    break;
+                case "alignSelf":
+                    builder.flexAlignSelf(AlignSelf.valueOf(in.nextString()));
+                    break;
+                case "wrapBefore":
+                    builder.wrapBefore(in.nextBoolean());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return builder.build();
+    }
+
+    static void writeResult(Writer out, FlexboxLayout layout, List<DefaultFlexItem> items) throws IOException {
+        out.write("{\"minMainSize\":");
+        writeNumber(out, layout.getMinMainSize());
+        out.write(",\"minCrossSize\":");
+        writeNumber(out, layout.getMinCrossSize());
+        out.write(",\"bounds\":[");
+        for (int i = 0; i < items.size(); i++) {
+            Bounds bounds = items.get(i).getBounds();
+            out.write(i == 0 ? "[" : ",[");
+            writeNumber(out, bounds.getX());
+            out.write(',');
+            writeNumber(out, bounds.getY());
+            out.write(',');
+            writeNumber(out, bounds.getW());
+            out.write(',');
+            writeNumber(out, bounds.getH());
+            out.write(']');
+        }
+        out.write("]}\n");
+    }
+
+    private static void writeNumber(Writer out, double value) throws IOException {
+        if (value == (long) value) {
+            out.write(Long.toString((long) value));
+        } else if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.write("null");
+        } else {
+            out.write(Double.toString(value));
+        }
+    }
+}
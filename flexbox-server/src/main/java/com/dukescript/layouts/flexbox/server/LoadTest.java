@@ -0,0 +1,138 @@
+package com.dukescript.layouts.flexbox.server;
+
+/*-
+ * #%L
+ * flexbox-server - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simple load generator for a running {@link LayoutServer}. It sends the
+ * same container with random items from a number of client threads and
+ * prints the throughput and the latencies seen by the clients:
+ * <pre>
+ * java -cp target/layout-server.jar com.dukescript.layouts.flexbox.server.LoadTest \
+ *     http://127.0.0.1:8085/layout 16 10000 200
+ * </pre>
+ * The arguments are the URL, the number of client threads, the number of
+ * requests and the number of items per request.
+ *
+ * @author antonepple
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        URL url = new URL(args.length > 0 ? args[0] : "http://127.0.0.1:" + LayoutServer.DEFAULT_PORT + "/layout");
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int itemCount = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        byte[] body = container(new Random(4711), itemCount).getBytes(StandardCharsets.UTF_8);
+        long start = System.nanoTime();
+        LatencyMetrics metrics = run(url, body, threads, requests);
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%d requests in %.1fms: %.0f requests/s%n", requests, nanos / 1e6, requests * 1e9 / nanos);
+        System.out.print(metrics);
+    }
+
+    /**
+     * Sends the requests and waits until all of them are answered.
+     *
+     * @return the latencies seen by the clients
+     */
+    static LatencyMetrics run(URL url, byte[] body, int threads, int requests) throws InterruptedException {
+        LatencyMetrics metrics = new LatencyMetrics();
+        AtomicInteger remaining = new AtomicInteger(requests);
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            clients.execute(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    long requestStart = System.nanoTime();
+                    boolean error = true;
+                    try {
+                        error = post(url, body) != 200;
+                    } catch (IOException ex) {
+                        // counted as error
+                    }
+                    metrics.record(System.nanoTime() - requestStart, 0, error);
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.DAYS);
+        return metrics;
+    }
+
+    private static int post(URL url, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            byte[] buffer = new byte[8192];
+            while (in != null && in.read(buffer) != -1) {
+                // drain, so the connection is reused
+            }
+        }
+        return status;
+    }
+
+    /**
+     * @return a wrapping row of random items as JSON
+     */
+    static String container(Random random, int itemCount) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"flexDirection\":\"ROW\",\"flexWrap\":\"WRAP\",\"alignItems\":\"CENTER\",\"width\":800,\"height\":600,\"items\":[");
+        for (int i = 0; i < itemCount; i++) {
+            json.append(i == 0 ? "{" : ",{")
+                    .append("\"width\":").append(20 + random.nextInt(100))
+                    .append(",\"height\":").append(20 + random.nextInt(50))
+                    .append(",\"marginLeft\":2,\"marginRight\":2")
+                    .append(",\"flexGrow\":").append(random.nextInt(3))
+                    .append('}');
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,176 @@
+package com.dukescript.layouts.flexbox.server;
+
+/*-
+ * #%L
+ * flexbox-server - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem.AlignSelf;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author antonepple
+ */
+public class LayoutServerTest {
+
+    private LayoutServer server;
+    private URL url;
+
+    @BeforeClass
+    public static void setUpClass() {
+        // set by main, see LayoutServer
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = new LayoutServer(new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/layout");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private static String request(URL url, String method, String body, int expectedStatus) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Assert.assertEquals(expectedStatus, connection.getResponseCode());
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream in = expectedStatus < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                result.write(buffer, 0, n);
+            }
+        }
+        return new String(result.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testLayout() throws IOException {
+        String body = LoadTest.container(new Random(1), 500);
+        String response = request(url, "POST", body, 200);
+
+        FlexboxLayout layout = new FlexboxLayout();
+        List<DefaultFlexItem> items = new ArrayList<>();
+        double[] size = new double[2];
+        LayoutServer.readContainer(new JsonReader(new StringReader(body)), layout, items, size);
+        Assert.assertEquals(500, items.size());
+        layout.layoutSubViews(size[0], size[1]);
+        StringWriter expected = new StringWriter();
+        LayoutServer.writeResult(expected, layout, items);
+        Assert.assertEquals(expected.toString(), response);
+
+        String metrics = request(new URL(url, "/metrics"), "GET", null, 200);
+        Assert.assertTrue(metrics, metrics.startsWith("requests 1\nerrors 0\nitems 500\n"));
+        Assert.assertEquals(1, server.getMetrics().getCount());
+    }
+
+    @Test
+    public void testBadRequests() throws IOException {
+        request(url, "GET", null, 405);
+        request(url, "POST", "{\"width\": 100, \"height\": 100, \"items\": [{\"width\": }]}", 400);
+        request(url, "POST", "{\"flexDirection\": \"DIAGONAL\", \"width\": 100, \"height\": 100}", 400);
+        request(url, "POST", "{\"items\": []}", 400);
+        Assert.assertEquals(4, server.getMetrics().getErrors());
+    }
+
+    @Test
+    public void testReadContainer() throws IOException {
+        String json = "{\"unknown\": {\"nested\": [1, \"x\\\"y\", true, null, {}]},\n"
+                + " \"flexDirection\": \"COLUMN\", \"width\": 1e2, \"height\": 50.5,\n"
+                + " \"items\": [{\"width\": 10, \"minHeight\": -1, \"marginTop\": 2, \"flexGrow\": 0.5,"
+                + " \"order\": -3, \"alignSelf\": \"CENTER\", \"wrapBefore\": true, \"comment\": \"\\u00e4\"}]}";
+        FlexboxLayout layout = new FlexboxLayout();
+        List<DefaultFlexItem> items = new ArrayList<>();
+        double[] size = new double[2];
+        LayoutServer.readContainer(new JsonReader(new StringReader(json)), layout, items, size);
+        Assert.assertEquals(FlexDirection.COLUMN, layout.getFlexDirection());
+        Assert.assertArrayEquals(new double[]{100, 50.5}, size, 0);
+        DefaultFlexItem item = items.get(0);
+        Assert.assertEquals(10, item.getWidth(), 0);
+        Assert.assertEquals(2, item.getMarginTop(), 0);
+        Assert.assertEquals(0.5f, item.getFlexGrow(), 0);
+        Assert.assertEquals(-3, item.getOrder());
+        Assert.assertEquals(AlignSelf.CENTER, item.getFlexAlignSelf());
+        Assert.assertTrue(item.isWrapBefore());
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        byte[] body = LoadTest.container(new Random(2), 100).getBytes(StandardCharsets.UTF_8);
+        LatencyMetrics client = LoadTest.run(url, body, 4, 200);
+        Assert.assertEquals(200, client.getCount());
+        Assert.assertEquals(0, client.getErrors());
+        Assert.assertEquals(200, server.getMetrics().getCount());
+        Assert.assertEquals(200 * 100, server.getMetrics().getItems());
+        Assert.assertTrue(server.getMetrics().getPercentileNanos(50) <= server.getMetrics().getPercentileNanos(99));
+        Assert.assertTrue(server.getMetrics().getPercentileNanos(99) <= server.getMetrics().getMaxNanos());
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        Random random = new Random(3);
+        for (int i = 0; i < 10000; i++) {
+            long nanos = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = LatencyMetrics.bucket(nanos);
+            Assert.assertTrue(LatencyMetrics.lowerBound(bucket) <= nanos);
+            if (bucket < 61 * 8 - 1) {
+                Assert.assertTrue(nanos < LatencyMetrics.lowerBound(bucket + 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Lays out many small, independent containers in one go, e.g. one per card
+ * or report cell on a server. Each container is described by a {@link Job}
+ * holding its settings, items and size. The jobs are computed by
+ * {@link FlexboxArrayEngine}s that are kept between jobs and batches, so
+ * their buffers are only allocated while they grow, and no FlexboxLayout is
+ * created per container. The results are set on the items like
+ * {@link FlexboxLayout#layoutSubViews(double, double)} does.
+ * <p>
+ * Without an executor the jobs run on the calling thread. With an executor
+ * the batch is split into chunks of jobs, which run as separate tasks and
+ * each use an engine of their own. Every call returns the
+ * {@link Throughput} of the batch.
+ *
+ * @author antonepple
+ */
+public final class BatchLayout {
+
+    /**
+     * Default for the number of items per task when running on an executor.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private final Executor executor;
+    private final int chunkSize;
+    private final ConcurrentLinkedQueue<FlexboxArrayEngine> engines = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates an instance computing the jobs on the calling thread.
+     */
+    public BatchLayout() {
+        this(null, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param executor executor to run the chunks of a batch on, or null to
+     * compute the jobs on the calling thread
+     * @param chunkSize number of items below which jobs are computed in a
+     * single task
+     */
+    public BatchLayout(Executor executor, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Lays out all jobs and waits until they are finished. The jobs must not
+     * be changed while they are laid out.
+     *
+     * @param jobs the jobs
+     * @return the throughput of this batch
+     */
+    public Throughput layout(List<Job> jobs) {
+        long start = System.nanoTime();
+        int items = 0;
+        if (executor == null) {
+            items = run(jobs, 0, jobs.size());
+        } else {
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            int from = 0;
+            while (from < jobs.size()) {
+                int to = from;
+                int size = 0;
+                while (to < jobs.size() && (size < chunkSize || to == from)) {
+                    size += jobs.get(to++).items.size();
+                }
+                items += size;
+                int chunkFrom = from, chunkTo = to;
+                tasks.add(CompletableFuture.runAsync(() -> run(jobs, chunkFrom, chunkTo), executor));
+                from = to;
+            }
+            try {
+                CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[tasks.size()])).join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                if (ex.getCause() instanceof Error) {
+                    throw (Error) ex.getCause();
+                }
+                throw ex;
+            }
+        }
+        return new Throughput(jobs.size(), items, System.nanoTime() - start);
+    }
+
+    private int run(List<Job> jobs, int from, int to) {
+        FlexboxArrayEngine engine = engines.poll();
+        if (engine == null) {
+            engine = new FlexboxArrayEngine();
+        }
+        int items = 0;
+        try {
+            for (int i = from; i < to; i++) {
+                Job job = jobs.get(i);
+                engine.setFlexDirection(job.flexDirection);
+                engine.setFlexWrap(job.flexWrap);
+                engine.setJustifyContent(job.justifyContent);
+                engine.setAlignItems(job.alignItems);
+                engine.setAlignContent(job.alignContent);
+                engine.load(job.items);
+                engine.layout(job.mainSize, job.crossSize);
+                engine.applyTo(job.items);
+                job.minMainSize = engine.getMinMainSize();
+                job.minCrossSize = engine.getMinCrossSize();
+                items += job.items.size();
+            }
+        } finally {
+            engine.releaseItems();
+            engines.offer(engine);
+        }
+        return items;
+    }
+
+    /**
+     * A container to lay out in a batch. The settings have the same defaults
+     * as a new {@link FlexboxLayout}. A job can be reused in later batches.
+     */
+    public static final class Job {
+
+        private final List<? extends FlexItem> items;
+        private double mainSize, crossSize;
+        private FlexDirection flexDirection;
+        private FlexWrap flexWrap;
+        private JustifyContent justifyContent = JustifyContent.FLEX_START;
+        private AlignItems alignItems = AlignItems.STRETCH;
+        private AlignContent alignContent = AlignContent.FLEX_START;
+        private double minMainSize, minCrossSize;
+
+        /**
+         * @param items the items of the container
+         * @param mainSize available size of the container in the main
+         * direction
+         * @param crossSize available size of the container in the cross
+         * direction
+         */
+        public Job(List<? extends FlexItem> items, double mainSize, double crossSize) {
+            this.items = items;
+            this.mainSize = mainSize;
+            this.crossSize = crossSize;
+        }
+
+        public List<? extends FlexItem> getItems() {
+            return items;
+        }
+
+        public void setSize(double mainSize, double crossSize) {
+            this.mainSize = mainSize;
+            this.crossSize = crossSize;
+        }
+
+        public double getMainSize() {
+            return mainSize;
+        }
+
+        public double getCrossSize() {
+            return crossSize;
+        }
+
+        public FlexDirection getFlexDirection() {
+            return flexDirection;
+        }
+
+        public Job setFlexDirection(FlexDirection flexDirection) {
+            this.flexDirection = flexDirection;
+            return this;
+        }
+
+        public FlexWrap getFlexWrap() {
+            return flexWrap;
+        }
+
+        public Job setFlexWrap(FlexWrap flexWrap) {
+            this.flexWrap = flexWrap;
+            return this;
+        }
+
+        public JustifyContent getJustifyContent() {
+            return justifyContent;
+        }
+
+        public Job setJustifyContent(JustifyContent justifyContent) {
+            this.justifyContent = justifyContent;
+            return this;
+        }
+
+        public AlignItems getAlignItems() {
+            return alignItems;
+        }
+
+        public Job setAlignItems(AlignItems alignItems) {
+            this.alignItems = alignItems;
+            return this;
+        }
+
+        public AlignContent getAlignContent() {
+            return alignContent;
+        }
+
+        public Job setAlignContent(AlignContent alignContent) {
+            this.alignContent = alignContent;
+            return this;
+        }
+
+        /**
+         * @return the minimum main size computed by the last batch
+         */
+        public double getMinMainSize() {
+            return minMainSize;
+        }
+
+        /**
+         * @return the minimum cross size computed by the last batch
+         */
+        public double getMinCrossSize() {
+            return minCrossSize;
+        }
+    }
+
+    /**
+     * Number of jobs and items laid out by a batch and the time it took.
+     */
+    public static final class Throughput {
+
+        private final int jobs, items;
+        private final long nanos;
+
+        Throughput(int jobs, int items, long nanos) {
+            this.jobs = jobs;
+            this.items = items;
+            this.nanos = nanos;
+        }
+
+        public int getJobs() {
+            return jobs;
+        }
+
+        public int getItems() {
+            return items;
+        }
+
+        /**
+         * @return the wall clock time of the batch in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        public double getJobsPerSecond() {
+            return nanos == 0 ? 0 : jobs * 1e9 / nanos;
+        }
+
+        public double getItemsPerSecond() {
+            return nanos == 0 ? 0 : items * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d jobs, %d items in %.3fms: %.0f jobs/s, %.0f items/s",
+                    jobs, items, nanos / 1e6, getJobsPerSecond(), getItemsPerSecond());
+        }
+    }
+}
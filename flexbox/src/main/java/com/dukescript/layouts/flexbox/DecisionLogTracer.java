@@ -0,0 +1,155 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * {@link LayoutTracer} writing a compact, line based log of all decisions
+ * of a layout pass. It helps to find out why a layout is slow or wrong:
+ * <pre>
+ * FULL 300x200 ROW WRAP FLEX_START STRETCH STRETCH
+ *  hyp #0 50 20
+ *  line 0 #0
+ *  clamp #2 75.5 -&gt; 60
+ *  bounds #0 0,0 50x20
+ * end 3 items 0.042ms
+ * </pre>
+ * Items are written as # followed by their index. The per item events can
+ * be switched off to only log the passes.
+ *
+ * @author antonepple
+ */
+public final class DecisionLogTracer implements LayoutTracer {
+
+    private final Appendable out;
+    private final boolean items;
+    private int count;
+
+    /**
+     * Creates a tracer collecting the log in memory, see {@link #toString}.
+     */
+    public DecisionLogTracer() {
+        this(new StringBuilder(), true);
+    }
+
+    /**
+     * Creates a tracer writing the log to the given target.
+     *
+     * @param out target of the log
+     * @param items true to log the events of every item, false to only log
+     * the passes
+     */
+    public DecisionLogTracer(Appendable out, boolean items) {
+        this.out = out;
+        this.items = items;
+    }
+
+    @Override
+    public void passStarted(FlexboxLayout layout, Pass pass, double mainSize, double crossSize) {
+        count = 0;
+        append(pass.name()).append(' ').number(mainSize).append('x').number(crossSize)
+                .append(' ').append(String.valueOf(layout.getFlexDirection()))
+                .append(' ').append(String.valueOf(layout.getFlexWrap()))
+                .append(' ').append(String.valueOf(layout.getJustifyContent()))
+                .append(' ').append(String.valueOf(layout.getAlignItems()))
+                .append(' ').append(String.valueOf(layout.getAlignContent())).append('\n');
+    }
+
+    @Override
+    public void hypotheticalSize(FlexItem item, int index, double mainSize, double crossSize) {
+        if (items) {
+            append(" hyp #").number(index).append(' ').number(mainSize).append(' ').number(crossSize).append('\n');
+        }
+    }
+
+    @Override
+    public void lineStarted(int line, FlexItem item, int index) {
+        if (items) {
+            append(" line ").number(line).append(" #").number(index).append('\n');
+        }
+    }
+
+    @Override
+    public void clamped(FlexItem item, int index, double size, double limit) {
+        if (items) {
+            append(" clamp #").number(index).append(' ').number(size).append(" -> ").number(limit).append('\n');
+        }
+    }
+
+    @Override
+    public void bounds(FlexItem item, int index, double x, double y, double w, double h) {
+        count++;
+        if (items) {
+            append(" bounds #").number(index).append(' ').number(x).append(',').number(y)
+                    .append(' ').number(w).append('x').number(h).append('\n');
+        }
+    }
+
+    @Override
+    public void passFinished(FlexboxLayout layout, long nanos) {
+        append("end ").number(count).append(" items ").number(nanos / 1000 / 1000.0).append("ms\n");
+    }
+
+    /**
+     * @return the log, if this tracer collects it in memory
+     */
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private DecisionLogTracer append(CharSequence text) {
+        try {
+            out.append(text);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return this;
+    }
+
+    private DecisionLogTracer append(char c) {
+        try {
+            out.append(c);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return this;
+    }
+
+    private DecisionLogTracer number(double value) {
+        if (value == (long) value) {
+            return append(Long.toString((long) value));
+        }
+        return append(Double.toString(value));
+    }
+}
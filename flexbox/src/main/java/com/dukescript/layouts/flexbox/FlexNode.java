@@ -0,0 +1,249 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A node of a flex tree, independent of any UI toolkit. Every node is an
+ * item in the layout of its parent and at the same time a flex container for
+ * its own children, so a whole tree of nested containers is laid out top
+ * down in a single call to {@link #layout(double, double)}.
+ * <p>
+ * Each node keeps the result of its last pass. A change of a node marks the
+ * node and all its ancestors dirty. A following pass only descends into
+ * dirty nodes and nodes whose size changed, an unchanged subtree is skipped
+ * entirely. Like with {@link FlexboxLayout}, the bounds of a node are
+ * relative to its parent.
+ *
+ * @author antonepple
+ */
+public class FlexNode extends DefaultFlexItem {
+
+    private final FlexboxLayout layout = new FlexboxLayout();
+    private final List<FlexNode> children = new ArrayList<>();
+    private FlexNode parent;
+    private boolean dirty = true;
+    private double laidOutWidth = -1, laidOutHeight = -1;
+    private int subtreeSize = 1;
+
+    public FlexNode() {
+        layout.node = this;
+    }
+
+    /**
+     * @return the parent of this node or null
+     */
+    public final FlexNode getParent() {
+        return parent;
+    }
+
+    /**
+     * @return the children of this node, in the order they were added
+     */
+    public final List<FlexNode> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    /**
+     * Adds a child to this node.
+     *
+     * @param child the child
+     * @throws IllegalArgumentException if the child has a parent already
+     */
+    public void add(FlexNode child) {
+        if (child.parent != null) {
+            throw new IllegalArgumentException("node has a parent already");
+        }
+        child.parent = this;
+        children.add(child);
+        layout.add(child);
+        for (FlexNode n = this; n != null; n = n.parent) {
+            n.subtreeSize += child.subtreeSize;
+        }
+        markDirty();
+    }
+
+    /**
+     * Removes a child from this node.
+     *
+     * @param child the child
+     * @return true if the child has been removed
+     */
+    public boolean remove(FlexNode child) {
+        if (!children.remove(child)) {
+            return false;
+        }
+        child.parent = null;
+        for (FlexNode n = this; n != null; n = n.parent) {
+            n.subtreeSize -= child.subtreeSize;
+        }
+        layout.clearItems();
+        for (int i = 0; i < children.size(); i++) {
+            layout.add(children.get(i));
+        }
+        markDirty();
+        return true;
+    }
+
+    public FlexDirection getFlexDirection() {
+        return layout.getFlexDirection();
+    }
+
+    public void setFlexDirection(FlexDirection flexDirection) {
+        layout.setFlexDirection(flexDirection);
+        markDirty();
+    }
+
+    public FlexWrap getFlexWrap() {
+        return layout.getFlexWrap();
+    }
+
+    public void setFlexWrap(FlexWrap flexWrap) {
+        layout.setFlexWrap(flexWrap);
+        markDirty();
+    }
+
+    public JustifyContent getJustifyContent() {
+        return layout.getJustifyContent();
+    }
+
+    public void setJustifyContent(JustifyContent justifyContent) {
+        layout.setJustifyContent(justifyContent);
+        markDirty();
+    }
+
+    public AlignItems getAlignItems() {
+        return layout.getAlignItems();
+    }
+
+    public void setAlignItems(AlignItems alignItems) {
+        layout.setAlignItems(alignItems);
+        markDirty();
+    }
+
+    public AlignContent getAlignContent() {
+        return layout.getAlignContent();
+    }
+
+    public void setAlignContent(AlignContent alignContent) {
+        layout.setAlignContent(alignContent);
+        markDirty();
+    }
+
+    /**
+     * @return the number of nodes in the tree below and including this node
+     */
+    public final int getSubtreeSize() {
+        return subtreeSize;
+    }
+
+    /**
+     * @return true if this node or one of its descendants changed since the
+     * last pass
+     */
+    public final boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Marks this node and all its ancestors dirty, so the next pass descends
+     * into it. Changes of the properties of nodes call this automatically.
+     * Call it when something the layout can't see changed, e.g. the content
+     * of a node that isn't a FlexNode.
+     */
+    public final void markDirty() {
+        for (FlexNode n = this; n != null && !n.dirty; n = n.parent) {
+            n.dirty = true;
+        }
+    }
+
+    /**
+     * Lays out the tree below this node as its root. The root is placed at
+     * 0, 0 with the given size.
+     *
+     * @param width the width of the root
+     * @param height the height of the root
+     */
+    public final void layout(double width, double height) {
+        setBounds(0, 0, width, height);
+        layoutChildren(width, height);
+    }
+
+    /**
+     * Lays out the children of this node for the given size and descends
+     * into them, unless neither this node nor its descendants changed and
+     * the size is the same as in the last pass.
+     */
+    final void layoutChildren(double width, double height) {
+        if (!needsLayout(width, height)) {
+            return;
+        }
+        layoutOwnChildren(width, height);
+        for (int i = 0; i < children.size(); i++) {
+            FlexNode child = children.get(i);
+            Bounds bounds = child.getBounds();
+            child.layoutChildren(bounds.getW(), bounds.getH());
+        }
+        laidOut(width, height);
+    }
+
+    final boolean needsLayout(double width, double height) {
+        return dirty || width != laidOutWidth || height != laidOutHeight;
+    }
+
+    /**
+     * Sets the bounds of the children, without descending into them.
+     */
+    final void layoutOwnChildren(double width, double height) {
+        if (!children.isEmpty()) {
+            boolean horizontal = layout.isHorizontal();
+            layout.layoutSubViews(horizontal ? width : height, horizontal ? height : width);
+        }
+    }
+
+    final void laidOut(double width, double height) {
+        laidOutWidth = width;
+        laidOutHeight = height;
+        dirty = false;
+    }
+
+    final List<FlexNode> children() {
+        return children;
+    }
+}
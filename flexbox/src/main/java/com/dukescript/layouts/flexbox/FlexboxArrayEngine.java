@@ -0,0 +1,956 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem.AlignSelf;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A struct-of-arrays implementation of the FlexBox Layout Algorithm. It
+ * produces the same results as {@link FlexboxLayout}, but keeps the inputs and
+ * outputs of all items in primitive columns instead of FlexItem objects, and
+ * runs every phase (line breaking, space distribution, justify and align) as
+ * plain loops over these arrays. Lines are index ranges into the sorted order
+ * of the items.
+ *
+ * Items are addressed by their index. You can either fill the columns directly
+ * via the setters, or {@link #load(List) load} them from a list of FlexItems.
+ * After {@link #layout(double, double)} the results can be read via
+ * {@link #getX(int)}, {@link #getY(int)}, {@link #getW(int)} and
+ * {@link #getH(int)}. The FlexItems are only updated when you ask for it via
+ * {@link #applyTo(List)}.
+ *
+ * @author antonepple
+ */
+public final class FlexboxArrayEngine {
+
+    private static final AlignSelf[] ALIGN_SELF = AlignSelf.values();
+    private static final byte ALIGN_SELF_AUTO = (byte) AlignSelf.AUTO.ordinal();
+
+    private FlexDirection flexDirection;
+    private FlexWrap flexWrap;
+    private JustifyContent justifyContent = JustifyContent.FLEX_START;
+    private AlignItems alignItems = AlignItems.STRETCH;
+    private AlignContent alignContent = AlignContent.FLEX_START;
+
+    private int count;
+    private int capacity;
+
+    // inputs, indexed by item
+    private double[] width, height, minWidth, minHeight, maxWidth, maxHeight;
+    private double[] marginLeft, marginTop, marginRight, marginBottom;
+    private float[] grow, shrink, basisPercent;
+    private int[] order;
+    private byte[] alignSelf;
+    // items with a measure function, measured while their sizes are resolved
+    private FlexItem[] measuredItems;
+    // measured without the cache of the items, which may be shared
+    private boolean sharedItems;
+
+    // per pass state, indexed by position in the sorted order
+    private int[] sorted;
+    private long[] sortKeys;
+    private double[] hypMain, hypCross, minMain, maxMain;
+    private double[] mainMarginStart, mainMarginEnd, crossMarginStart, crossMarginEnd;
+    private float[] itemGrow, itemShrink;
+    private byte[] itemAlignSelf;
+    private final GrowDistribution growDistribution = new GrowDistribution();
+    private double[] mainTarget, crossTarget, mainStart, crossStart;
+
+    // lines
+    private int lineCount;
+    private int[] lineStart = new int[4], lineEnd = new int[4];
+    private double[] lineMain = new double[4], lineCross = new double[4], lineCrossStart = new double[4];
+    private float[] lineGrow = new float[4], lineShrink = new float[4];
+
+    // outputs, indexed by item
+    private double[] x, y, w, h;
+
+    private double minMainSize = Double.MIN_VALUE;
+    private double minCrossSize = Double.MIN_VALUE;
+    private final Bounds measured = new Bounds(0, 0, 0, 0);
+
+    public FlexboxArrayEngine() {
+        ensureCapacity(16);
+    }
+
+    /**
+     * Sets the number of items. New items are initialized with the same
+     * defaults as a new DefaultFlexItem.
+     *
+     * @param count the number of items
+     */
+    public void setItemCount(int count) {
+        ensureCapacity(count);
+        for (int i = this.count; i < count; i++) {
+            resetItem(i);
+        }
+        this.count = count;
+    }
+
+    public int getItemCount() {
+        return count;
+    }
+
+    /**
+     * Resets the inputs of an item to the defaults of a new DefaultFlexItem.
+     *
+     * @param i index of the item
+     */
+    public void resetItem(int i) {
+        width[i] = -1;
+        height[i] = -1;
+        minWidth[i] = -1;
+        minHeight[i] = -1;
+        maxWidth[i] = Double.MAX_VALUE;
+        maxHeight[i] = Double.MAX_VALUE;
+        marginLeft[i] = 0;
+        marginTop[i] = 0;
+        marginRight[i] = 0;
+        marginBottom[i] = 0;
+        grow[i] = FlexItem.FLEX_GROW_DEFAULT;
+        shrink[i] = FlexItem.FLEX_SHRINK_DEFAULT;
+        basisPercent[i] = FlexItem.FLEX_BASIS_PERCENT_DEFAULT;
+        order[i] = 0;
+        alignSelf[i] = ALIGN_SELF_AUTO;
+        measuredItems[i] = null;
+    }
+
+    /**
+     * Reads the inputs of all items from the list. Each getter is called
+     * exactly once per item. Item i of the list becomes item i of the engine.
+     * Items with a measure function are measured by
+     * {@link #layout(double, double)}, with the constraints used by
+     * {@link FlexboxLayout}.
+     *
+     * @param items the items
+     */
+    public void load(List<? extends FlexItem> items) {
+        int n = items.size();
+        ensureCapacity(n);
+        count = n;
+        sharedItems = false;
+        for (int i = 0; i < n; i++) {
+            load(i, items.get(i));
+        }
+    }
+
+    /**
+     * Reads the inputs of a single item.
+     *
+     * @param i index of the item
+     * @param item the item to read
+     */
+    public void load(int i, FlexItem item) {
+        sharedItems = false;
+        read(i, item);
+    }
+
+    /**
+     * Reads the inputs of items that may be read by other threads at the
+     * same time. Nothing is written to the items, measure functions are
+     * called without the measurement cache of the item.
+     */
+    void loadShared(List<? extends FlexItem> items) {
+        int n = items.size();
+        ensureCapacity(n);
+        count = n;
+        sharedItems = true;
+        for (int i = 0; i < n; i++) {
+            read(i, items.get(i));
+        }
+    }
+
+    /**
+     * Drops the references to the measured items of the last load, so a
+     * pooled engine doesn't keep them alive.
+     */
+    void releaseItems() {
+        Arrays.fill(measuredItems, 0, count, null);
+    }
+
+    private void read(int i, FlexItem item) {
+        width[i] = item.getWidth();
+        height[i] = item.getHeight();
+        minWidth[i] = item.getMinWidth();
+        minHeight[i] = item.getMinHeight();
+        maxWidth[i] = item.getMaxWidth();
+        maxHeight[i] = item.getMaxHeight();
+        marginLeft[i] = item.getMarginLeft();
+        marginTop[i] = item.getMarginTop();
+        marginRight[i] = item.getMarginRight();
+        marginBottom[i] = item.getMarginBottom();
+        grow[i] = item.getFlexGrow();
+        shrink[i] = item.getFlexShrink();
+        basisPercent[i] = item.getFlexBasisPercent();
+        order[i] = item.getOrder();
+        alignSelf[i] = (byte) item.getFlexAlignSelf().ordinal();
+        measuredItems[i] = item.getMeasureFunction() != null ? item : null;
+    }
+
+    public void setSize(int i, double width, double height) {
+        this.width[i] = width;
+        this.height[i] = height;
+    }
+
+    public void setMinSize(int i, double minWidth, double minHeight) {
+        this.minWidth[i] = minWidth;
+        this.minHeight[i] = minHeight;
+    }
+
+    public void setMaxSize(int i, double maxWidth, double maxHeight) {
+        this.maxWidth[i] = maxWidth;
+        this.maxHeight[i] = maxHeight;
+    }
+
+    public void setMargin(int i, double left, double top, double right, double bottom) {
+        marginLeft[i] = left;
+        marginTop[i] = top;
+        marginRight[i] = right;
+        marginBottom[i] = bottom;
+    }
+
+    public void setFlex(int i, float grow, float shrink, float basisPercent) {
+        this.grow[i] = grow;
+        this.shrink[i] = shrink;
+        this.basisPercent[i] = basisPercent;
+    }
+
+    public void setOrder(int i, int order) {
+        this.order[i] = order;
+    }
+
+    public void setAlignSelf(int i, AlignSelf alignSelf) {
+        this.alignSelf[i] = (byte) alignSelf.ordinal();
+    }
+
+    /**
+     * Performs the layout of all items.
+     *
+     * @param mainSize available width or height of the container, depending on
+     * main axis
+     * @param crossSize available width or height of the container, depending
+     * on cross axis
+     */
+    public void layout(double mainSize, double crossSize) {
+        boolean horizontal = isHorizontal();
+        sort();
+        resolve(horizontal, mainSize);
+        calculateLines(mainSize);
+        alignContent(crossSize);
+        for (int k = 0; k < lineCount; k++) {
+            distributeMainLineSpace(k, mainSize);
+            applyJustifyContent(k, mainSize);
+            applyAlignItems(k);
+        }
+        computeBounds(horizontal);
+    }
+
+    public boolean isHorizontal() {
+        return flexDirection == FlexDirection.ROW || flexDirection == FlexDirection.ROW_REVERSE;
+    }
+
+    private void sort() {
+        int n = count;
+        boolean ordered = true;
+        for (int i = 0; i < n; i++) {
+            // order in the upper half, index in the lower half: a stable sort
+            sortKeys[i] = ((long) order[i] << 32) | i;
+            if (i > 0 && order[i] < order[i - 1]) {
+                ordered = false;
+            }
+        }
+        if (!ordered) {
+            Arrays.sort(sortKeys, 0, n);
+        }
+        boolean descending = flexDirection == FlexDirection.ROW_REVERSE || flexDirection == FlexDirection.COLUMN_REVERSE;
+        for (int p = 0; p < n; p++) {
+            int i = (int) sortKeys[p];
+            sorted[descending ? n - 1 - p : p] = i;
+        }
+    }
+
+    /**
+     * The smallest main size of the loaded items, see
+     * {@link FlexboxLayout#computeMinContentMainSize()}. Only the
+     * hypothetical sizes are computed, nothing is laid out.
+     *
+     * @return the min-content main size, including the margins of the items
+     */
+    double computeMinContentMainSize() {
+        boolean horizontal = isHorizontal();
+        double size = 0;
+        for (int p = 0; p < count; p++) {
+            resolve(p, p, horizontal, 0, false);
+            size = flexWrap == FlexWrap.NOWRAP ? size + hypMain[p] : Math.max(size, hypMain[p]);
+        }
+        return size;
+    }
+
+    /**
+     * The main size of the loaded items on a single line, see
+     * {@link FlexboxLayout#computeMaxContentMainSize()}.
+     *
+     * @return the max-content main size, including the margins of the items
+     */
+    double computeMaxContentMainSize() {
+        boolean horizontal = isHorizontal();
+        double size = 0;
+        for (int p = 0; p < count; p++) {
+            resolve(p, p, horizontal, basisPercent[p] >= 0 ? 0 : Double.POSITIVE_INFINITY, false);
+            size += hypMain[p];
+        }
+        return size;
+    }
+
+    /**
+     * The cross size the loaded items need at a main size, see
+     * {@link FlexboxLayout#computeContentCrossSize(double)}.
+     *
+     * @param mainSize the available main size
+     * @return the sum of the cross sizes of the lines
+     */
+    double computeContentCrossSize(double mainSize) {
+        boolean horizontal = isHorizontal();
+        boolean indefinite = mainSize == Double.POSITIVE_INFINITY;
+        boolean wrap = flexWrap != FlexWrap.NOWRAP;
+        sort();
+        double lineMainSize = 0, lineCrossSize = 0, size = 0;
+        for (int p = 0; p < count; p++) {
+            int i = sorted[p];
+            resolve(p, i, horizontal, indefinite && basisPercent[i] >= 0 ? 0 : mainSize, true);
+            lineMainSize += hypMain[p];
+            if (wrap && lineMainSize > mainSize && p > 0) {
+                size += lineCrossSize;
+                lineMainSize = hypMain[p];
+                lineCrossSize = 0;
+            }
+            lineCrossSize = Math.max(lineCrossSize, hypCross[p]);
+        }
+        return size + lineCrossSize;
+    }
+
+    private void resolve(boolean horizontal, double mainSize) {
+        int n = count;
+        for (int p = 0; p < n; p++) {
+            resolve(p, sorted[p], horizontal, mainSize, true);
+        }
+    }
+
+    /**
+     * Resolves the hypothetical sizes of item i at position p. Measured
+     * items are only measured in the cross direction if it is asked for.
+     */
+    private void resolve(int p, int i, boolean horizontal, double mainSize, boolean crossSize) {
+        double hypWidth = hypothetical(width[i], minWidth[i], maxWidth[i], marginLeft[i] + marginRight[i], basisPercent[i], mainSize);
+        double hypHeight = hypothetical(height[i], minHeight[i], maxHeight[i], marginTop[i] + marginBottom[i], basisPercent[i], mainSize);
+        if (horizontal) {
+            hypMain[p] = hypWidth;
+            hypCross[p] = hypHeight;
+            minMain[p] = minWidth[i];
+            maxMain[p] = maxWidth[i];
+            mainMarginStart[p] = marginLeft[i];
+            mainMarginEnd[p] = marginRight[i];
+            crossMarginStart[p] = marginTop[i];
+            crossMarginEnd[p] = marginBottom[i];
+        } else {
+            hypMain[p] = hypHeight;
+            hypCross[p] = hypWidth;
+            minMain[p] = minHeight[i];
+            maxMain[p] = maxHeight[i];
+            mainMarginStart[p] = marginTop[i];
+            mainMarginEnd[p] = marginBottom[i];
+            crossMarginStart[p] = marginLeft[i];
+            crossMarginEnd[p] = marginRight[i];
+        }
+        if (measuredItems[i] != null) {
+            resolveMeasured(p, i, horizontal, mainSize, crossSize);
+        }
+        itemGrow[p] = grow[i];
+        itemShrink[p] = shrink[i];
+        itemAlignSelf[p] = alignSelf[i];
+        mainTarget[p] = hypMain[p];
+        crossTarget[p] = hypCross[p];
+        mainStart[p] = -1;
+        crossStart[p] = -1;
+    }
+
+    /**
+     * Measures the content of an item with the constraints used by
+     * FlexboxLayout: the main size is measured with the space available, the
+     * cross size with the resulting main size.
+     */
+    private void resolveMeasured(int p, int i, boolean horizontal, double mainSize, boolean crossSize) {
+        double explicitMain = horizontal ? width[i] : height[i];
+        double explicitCross = horizontal ? height[i] : width[i];
+        double mainMargin = mainMarginStart[p] + mainMarginEnd[p];
+        if (explicitMain < 0 && basisPercent[i] < 0) {
+            measure(i, horizontal, Math.max(0, mainSize - mainMargin),
+                    mainSize == Double.POSITIVE_INFINITY ? MeasureFunction.Mode.UNDEFINED : MeasureFunction.Mode.AT_MOST,
+                    explicitCross, explicitCross >= 0 ? MeasureFunction.Mode.EXACTLY : MeasureFunction.Mode.UNDEFINED);
+            double content = horizontal ? measured.getW() : measured.getH();
+            hypMain[p] = mainMargin + Math.max(minMain[p], Math.min(content, maxMain[p]));
+        }
+        if (explicitCross < 0 && crossSize) {
+            measure(i, horizontal, Math.max(0, hypMain[p] - mainMargin), MeasureFunction.Mode.EXACTLY,
+                    Double.NaN, MeasureFunction.Mode.UNDEFINED);
+            double content = horizontal ? measured.getH() : measured.getW();
+            double minCross = horizontal ? minHeight[i] : minWidth[i];
+            double maxCross = horizontal ? maxHeight[i] : maxWidth[i];
+            hypCross[p] = crossMarginStart[p] + crossMarginEnd[p] + Math.max(minCross, Math.min(content, maxCross));
+        }
+    }
+
+    private void measure(int i, boolean horizontal, double main, MeasureFunction.Mode mainMode, double cross, MeasureFunction.Mode crossMode) {
+        double width = horizontal ? main : cross, height = horizontal ? cross : main;
+        MeasureFunction.Mode widthMode = horizontal ? mainMode : crossMode, heightMode = horizontal ? crossMode : mainMode;
+        FlexItem item = measuredItems[i];
+        if (sharedItems) {
+            measured.setW(0);
+            measured.setH(0);
+            item.getMeasureFunction().measure(item, width, widthMode, height, heightMode, measured);
+        } else {
+            item.measure(width, widthMode, height, heightMode);
+            measured.setW(item.measuredWidth());
+            measured.setH(item.measuredHeight());
+        }
+    }
+
+    private static double hypothetical(double size, double min, double max, double margin, float basisPercent, double mainSize) {
+        double flexBasisPercentSize = (mainSize * basisPercent) / 100;
+        flexBasisPercentSize = Math.min(flexBasisPercentSize, max);
+        return size >= 0 ? margin + size : margin + Math.max(min, flexBasisPercentSize);
+    }
+
+    private void calculateLines(double mainSize) {
+        int n = count;
+        lineCount = 0;
+        int k = addLine(0);
+        minMainSize = 0;
+        if (flexWrap == FlexWrap.NOWRAP) {
+            for (int p = 0; p < n; p++) {
+                lineMain[k] += hypMain[p];
+                addToLine(k, p);
+            }
+            lineEnd[k] = n;
+            minMainSize = lineMain[k];
+            return;
+        }
+        double minSize = 0;
+        for (int p = 0; p < n; p++) {
+            double hyp = hypMain[p];
+            if (hyp > minMainSize) {
+                minMainSize = hyp;
+            }
+            minSize += hyp;
+            if (minSize > mainSize && lineEnd[k] > lineStart[k]) {
+                k = addLine(p);
+                minSize = hyp;
+            }
+            addToLine(k, p);
+            lineEnd[k] = p + 1;
+            lineMain[k] = minSize;
+        }
+        if (flexWrap == FlexWrap.WRAP_REVERSE) {
+            reverseLines();
+        }
+    }
+
+    private int addLine(int start) {
+        int k = lineCount++;
+        if (k == lineStart.length) {
+            int size = k * 2;
+            lineStart = Arrays.copyOf(lineStart, size);
+            lineEnd = Arrays.copyOf(lineEnd, size);
+            lineMain = Arrays.copyOf(lineMain, size);
+            lineCross = Arrays.copyOf(lineCross, size);
+            lineCrossStart = Arrays.copyOf(lineCrossStart, size);
+            lineGrow = Arrays.copyOf(lineGrow, size);
+            lineShrink = Arrays.copyOf(lineShrink, size);
+        }
+        lineStart[k] = start;
+        lineEnd[k] = start;
+        lineMain[k] = 0;
+        lineCross[k] = 0;
+        lineCrossStart[k] = 0;
+        lineGrow[k] = 0;
+        lineShrink[k] = 0;
+        return k;
+    }
+
+    private void addToLine(int k, int p) {
+        if (hypCross[p] > lineCross[k]) {
+            lineCross[k] = hypCross[p];
+        }
+        if (itemGrow[p] != FlexItem.FLEX_GROW_DEFAULT) {
+            lineGrow[k] += itemGrow[p];
+        }
+        if (itemShrink[p] != FlexItem.FLEX_SHRINK_DEFAULT) {
+            lineShrink[k] += itemShrink[p];
+        }
+    }
+
+    private void reverseLines() {
+        for (int a = 0, b = lineCount - 1; a < b; a++, b--) {
+            swap(lineStart, a, b);
+            swap(lineEnd, a, b);
+            swap(lineMain, a, b);
+            swap(lineCross, a, b);
+            swap(lineGrow, a, b);
+            swap(lineShrink, a, b);
+        }
+    }
+
+    private static void swap(int[] array, int a, int b) {
+        int t = array[a];
+        array[a] = array[b];
+        array[b] = t;
+    }
+
+    private static void swap(double[] array, int a, int b) {
+        double t = array[a];
+        array[a] = array[b];
+        array[b] = t;
+    }
+
+    private static void swap(float[] array, int a, int b) {
+        float t = array[a];
+        array[a] = array[b];
+        array[b] = t;
+    }
+
+    private void alignContent(double crossSize) {
+        int lines = lineCount;
+        double sum = 0;
+        for (int k = 0; k < lines; k++) {
+            sum += lineCross[k];
+        }
+        minCrossSize = sum;
+        double pos = 0;
+        double extra = 0;
+        switch (alignContent) {
+            case FLEX_START:
+                break;
+            case FLEX_END:
+                pos = Math.max(0, crossSize - sum);
+                break;
+            case CENTER:
+                pos = Math.max(0, (crossSize - sum) / 2);
+                break;
+            case SPACE_BETWEEN:
+                extra = (crossSize - sum) / (lines - 1);
+                break;
+            case STRETCH:
+                extra = (crossSize - sum) / lines;
+                break;
+            case SPACE_AROUND:
+                extra = ((crossSize - sum) / lines) / 2;
+                break;
+        }
+        for (int k = 0; k < lines; k++) {
+            if (alignContent == AlignContent.SPACE_AROUND) {
+                pos += extra;
+            }
+            lineCrossStart[k] = pos;
+            pos += lineCross[k] + extra;
+            if (alignContent == AlignContent.STRETCH) {
+                lineCross[k] += extra;
+            }
+        }
+        if (alignContent == AlignContent.FLEX_START) {
+            minCrossSize = pos;
+        }
+    }
+
+    private void distributeMainLineSpace(int k, double mainSize) {
+        int start = lineStart[k], end = lineEnd[k];
+        double freeSpace = mainSize - lineMain[k];
+        if (freeSpace > 0 && lineGrow[k] > 0) {
+            growDistribution.clear();
+            for (int p = start; p < end; p++) {
+                if (itemGrow[p] != 0f) {
+                    growDistribution.add(mainTarget[p], itemGrow[p], maxMain[p]);
+                }
+            }
+            lineMain[k] = growDistribution.distribute(lineGrow[k], freeSpace / lineGrow[k], lineMain[k]);
+            for (int p = start, j = 0; p < end; p++) {
+                if (itemGrow[p] != 0f) {
+                    mainTarget[p] = growDistribution.getSize(j++);
+                }
+            }
+        } else if (freeSpace < 0 && lineShrink[k] > 0) {
+            float totalShrink = lineShrink[k];
+            double shrinkUnit = freeSpace / lineShrink[k];
+            // a clamped item only returns negative rest, so there is never a
+            // second round when shrinking
+            for (int p = start; p < end; p++) {
+                if (totalShrink == 1f) {
+                    continue;
+                }
+                double shrunkSize = itemShrink[p] * shrinkUnit + mainTarget[p];
+                if (shrunkSize < minMain[p]) {
+                    shrunkSize = minMain[p];
+                    totalShrink -= itemShrink[p];
+                }
+                lineMain[k] += shrunkSize - mainTarget[p];
+                mainTarget[p] = shrunkSize;
+            }
+        }
+    }
+
+    private void applyJustifyContent(int k, double mainSize) {
+        int start = lineStart[k], end = lineEnd[k];
+        int n = end - start;
+        double rest = mainSize - lineMain[k];
+        double pos = 0;
+        double extra = 0;
+        switch (justifyContent) {
+            case FLEX_START:
+                break;
+            case FLEX_END:
+                pos = Math.max(0, rest);
+                break;
+            case CENTER:
+                pos = Math.max(rest / 2, 0);
+                break;
+            case SPACE_AROUND:
+                extra = Math.max((rest / n) / 2, 0);
+                break;
+            case SPACE_BETWEEN:
+                if (n == 1) {
+                    return;
+                }
+                extra = Math.max(0, rest / (n - 1));
+                break;
+        }
+        boolean around = justifyContent == JustifyContent.SPACE_AROUND;
+        for (int p = start; p < end; p++) {
+            if (around) {
+                pos += extra;
+            }
+            mainStart[p] = mainMarginStart[p] + pos;
+            pos += extra + mainTarget[p];
+        }
+    }
+
+    private void applyAlignItems(int k) {
+        int start = lineStart[k], end = lineEnd[k];
+        double lineCrossSize = lineCross[k];
+        for (int p = start; p < end; p++) {
+            if (itemAlignSelf[p] != ALIGN_SELF_AUTO) {
+                applyAlignSelf(p, lineCrossSize);
+                continue;
+            }
+            switch (alignItems) {
+                case FLEX_START:
+                    crossStart[p] = crossMarginStart[p];
+                    break;
+                case FLEX_END:
+                    crossStart[p] = crossMarginStart[p] + lineCrossSize - crossTarget[p];
+                    break;
+                case STRETCH:
+                    crossStart[p] = crossMarginStart[p];
+                    crossTarget[p] = lineCrossSize;
+                    break;
+                case CENTER:
+                case BASELINE:
+                    crossStart[p] = crossMarginStart[p] + (lineCrossSize - crossTarget[p]) / 2;
+                    break;
+            }
+        }
+    }
+
+    private void applyAlignSelf(int p, double lineCrossSize) {
+        switch (ALIGN_SELF[itemAlignSelf[p]]) {
+            case AUTO:
+            case BASELINE:
+                break;
+            case CENTER:
+                crossStart[p] = crossMarginStart[p] + (lineCrossSize - crossTarget[p]) / 2;
+                break;
+            case FLEX_START:
+                crossStart[p] = crossMarginStart[p];
+                break;
+            case FLEX_END:
+                crossStart[p] = crossMarginStart[p] + lineCrossSize - crossTarget[p];
+                break;
+            case STRETCH:
+                crossStart[p] = crossMarginStart[p];
+                crossTarget[p] = lineCrossSize - crossMarginStart[p] - crossMarginEnd[p];
+                break;
+        }
+    }
+
+    private void computeBounds(boolean horizontal) {
+        for (int k = 0; k < lineCount; k++) {
+            double lineCrossPos = lineCrossStart[k];
+            for (int p = lineStart[k], end = lineEnd[k]; p < end; p++) {
+                int i = sorted[p];
+                double main = mainStart[p];
+                double cross = lineCrossPos + crossStart[p];
+                double mainSize = mainTarget[p] - mainMarginStart[p] - mainMarginEnd[p];
+                double crossSize = crossTarget[p] - crossMarginStart[p] - crossMarginEnd[p];
+                x[i] = horizontal ? main : cross;
+                y[i] = horizontal ? cross : main;
+                w[i] = horizontal ? mainSize : crossSize;
+                h[i] = horizontal ? crossSize : mainSize;
+            }
+        }
+    }
+
+    /**
+     * Writes the results of the last layout to the items, which must be the
+     * same list that has been {@link #load(List) loaded}. This sets the target
+     * sizes and positions and calls setBounds on every item.
+     *
+     * @param items the items
+     */
+    public void applyTo(List<? extends FlexItem> items) {
+        for (int p = 0; p < count; p++) {
+            int i = sorted[p];
+            FlexItem item = items.get(i);
+            item.mainTargetSize = mainTarget[p];
+            item.crossTargetSize = crossTarget[p];
+            item.mainStartPos = mainStart[p];
+            item.crossStartPos = crossStart[p];
+            item.setBounds(x[i], y[i], w[i], h[i]);
+        }
+    }
+
+    /**
+     * @return a copy of the results of the last layout
+     */
+    LayoutResult toResult() {
+        double[] bounds = new double[count * 4];
+        for (int i = 0; i < count; i++) {
+            bounds[i * 4] = x[i];
+            bounds[i * 4 + 1] = y[i];
+            bounds[i * 4 + 2] = w[i];
+            bounds[i * 4 + 3] = h[i];
+        }
+        return toResult(bounds);
+    }
+
+    /**
+     * @param bounds the bounds of the items, x, y, w and h of each item
+     * after another
+     * @return a result with the bounds and a copy of the lines of the last
+     * layout
+     */
+    LayoutResult toResult(double[] bounds) {
+        int[] lineItems = new int[count];
+        int[] lineEnds = new int[lineCount];
+        double[] lines = new double[lineCount * 3];
+        int q = 0;
+        for (int k = 0; k < lineCount; k++) {
+            for (int p = lineStart[k]; p < lineEnd[k]; p++) {
+                lineItems[q++] = sorted[p];
+            }
+            lineEnds[k] = q;
+            lines[k * 3] = lineMain[k];
+            lines[k * 3 + 1] = lineCross[k];
+            lines[k * 3 + 2] = lineCrossStart[k];
+        }
+        return new LayoutResult(bounds, lineItems, lineEnds, lines, minMainSize, minCrossSize);
+    }
+
+    public double getX(int i) {
+        return x[i];
+    }
+
+    public double getY(int i) {
+        return y[i];
+    }
+
+    public double getW(int i) {
+        return w[i];
+    }
+
+    public double getH(int i) {
+        return h[i];
+    }
+
+    /**
+     * @param p position in the sorted order
+     * @return index of the item at position p
+     */
+    public int getSortedItem(int p) {
+        return sorted[p];
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @param k index of the line
+     * @return the first position of the line in the sorted order (inclusive)
+     */
+    public int getLineStart(int k) {
+        return lineStart[k];
+    }
+
+    /**
+     * @param k index of the line
+     * @return the last position of the line in the sorted order (exclusive)
+     */
+    public int getLineEnd(int k) {
+        return lineEnd[k];
+    }
+
+    public double getLineMainSize(int k) {
+        return lineMain[k];
+    }
+
+    public double getLineCrossSize(int k) {
+        return lineCross[k];
+    }
+
+    public double getLineCrossStart(int k) {
+        return lineCrossStart[k];
+    }
+
+    public double getMinMainSize() {
+        return minMainSize;
+    }
+
+    public double getMinCrossSize() {
+        return minCrossSize;
+    }
+
+    public FlexDirection getFlexDirection() {
+        return flexDirection;
+    }
+
+    public void setFlexDirection(FlexDirection flexDirection) {
+        this.flexDirection = flexDirection;
+    }
+
+    public FlexWrap getFlexWrap() {
+        return flexWrap;
+    }
+
+    public void setFlexWrap(FlexWrap flexWrap) {
+        this.flexWrap = flexWrap;
+    }
+
+    public JustifyContent getJustifyContent() {
+        return justifyContent;
+    }
+
+    public void setJustifyContent(JustifyContent justifyContent) {
+        this.justifyContent = justifyContent;
+    }
+
+    public AlignItems getAlignItems() {
+        return alignItems;
+    }
+
+    public void setAlignItems(AlignItems alignItems) {
+        this.alignItems = alignItems;
+    }
+
+    public AlignContent getAlignContent() {
+        return alignContent;
+    }
+
+    public void setAlignContent(AlignContent alignContent) {
+        this.alignContent = alignContent;
+    }
+
+    /**
+     * @param enabled true to distribute the free space of growing lines
+     * with the items ordered by the point at which they are clamped
+     * @see FlexboxLayout#setSortedGrowEnabled(boolean)
+     */
+    public void setSortedGrowEnabled(boolean enabled) {
+        growDistribution.setSorted(enabled);
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= capacity) {
+            return;
+        }
+        int size = Math.max(n, capacity * 2);
+        width = resize(width, size);
+        height = resize(height, size);
+        minWidth = resize(minWidth, size);
+        minHeight = resize(minHeight, size);
+        maxWidth = resize(maxWidth, size);
+        maxHeight = resize(maxHeight, size);
+        marginLeft = resize(marginLeft, size);
+        marginTop = resize(marginTop, size);
+        marginRight = resize(marginRight, size);
+        marginBottom = resize(marginBottom, size);
+        grow = resize(grow, size);
+        shrink = resize(shrink, size);
+        basisPercent = resize(basisPercent, size);
+        order = order == null ? new int[size] : Arrays.copyOf(order, size);
+        alignSelf = alignSelf == null ? new byte[size] : Arrays.copyOf(alignSelf, size);
+        measuredItems = measuredItems == null ? new FlexItem[size] : Arrays.copyOf(measuredItems, size);
+        sorted = new int[size];
+        sortKeys = new long[size];
+        hypMain = new double[size];
+        hypCross = new double[size];
+        minMain = new double[size];
+        maxMain = new double[size];
+        mainMarginStart = new double[size];
+        mainMarginEnd = new double[size];
+        crossMarginStart = new double[size];
+        crossMarginEnd = new double[size];
+        itemGrow = new float[size];
+        itemShrink = new float[size];
+        itemAlignSelf = new byte[size];
+        mainTarget = new double[size];
+        crossTarget = new double[size];
+        mainStart = new double[size];
+        crossStart = new double[size];
+        x = resize(x, size);
+        y = resize(y, size);
+        w = resize(w, size);
+        h = resize(h, size);
+        capacity = size;
+    }
+
+    private static double[] resize(double[] array, int size) {
+        return array == null ? new double[size] : Arrays.copyOf(array, size);
+    }
+
+    private static float[] resize(float[] array, int size) {
+        return array == null ? new float[size] : Arrays.copyOf(array, size);
+    }
+}
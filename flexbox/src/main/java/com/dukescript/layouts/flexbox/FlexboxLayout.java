@@ -30,12 +30,11 @@ package com.dukescript.layouts.flexbox;
  * #L%
  */
 import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem.AlignSelf;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem.Change;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
-import java.util.logging.Logger;
 
 /**
  * A reusable, platform independent implementation of the FlexBox Layout
@@ -52,8 +51,6 @@ import java.util.logging.Logger;
  */
 public final class FlexboxLayout {
 
-    private static final Logger LOG = Logger.getLogger(FlexboxLayout.class.getName());
-
     public enum FlexDirection {
         /**
          * Horizontal, left to right
@@ -169,10 +166,43 @@ public final class FlexboxLayout {
     private AlignItems alignItems = AlignItems.STRETCH;
     private AlignContent alignContent = AlignContent.FLEX_START;
     final List<FlexLine> flexLines = new ArrayList<>();
-    private final List<FlexItem> originalItems = new ArrayList<>();
-    private List<FlexItem> items;
+    private final List<FlexLine> linePool = new ArrayList<>();
+    private FlexItem[] sortBuffer = new FlexItem[0], sortScratch = new FlexItem[0];
+    private int[] orderCounts = new int[0];
+    private final GrowDistribution growDistribution = new GrowDistribution();
+    // hypothetical main sizes of the items in the order they are placed
+    private final PrefixSums mainSums = new PrefixSums();
+    private boolean lineIndexValid;
+    // the cross reach and floor of the lines are up to date
+    private boolean lineExtentsValid;
+    private LayoutTracer tracer;
+    private Bounds viewport;
+    private boolean viewportMoved;
+    // the node this layout arranges the children of, if any
+    FlexNode node;
+    private boolean orderInvalid = true;
+    final List<FlexItem> originalItems = new ArrayList<>();
+    List<FlexItem> items;
     private double minMainSize = Double.MIN_VALUE;
     private double minCrossSize = Double.MIN_VALUE;
+    private FlexboxArrayEngine arrayEngine;
+    private final List<FlexItem> dirtyItems = new ArrayList<>();
+    private boolean layoutInvalid = true;
+    private boolean linesStale = true;
+    // the lines of the last pass are those of the array engine
+    private boolean engineLines;
+    // the lines of the last pass if it was restored from the layout cache
+    private LayoutResult cachedLines;
+    private LayoutCache layoutCache;
+    private final IntrinsicSizes intrinsicSizes = new IntrinsicSizes();
+    // reads the items for intrinsic sizes, so the state of the passes is kept
+    private FlexboxArrayEngine intrinsicEngine;
+    private double boundsEpsilon;
+    private final List<FlexItem> changedItems = new ArrayList<>();
+    private final List<FlexItem> changedItemsView = Collections.unmodifiableList(changedItems);
+    private double damageLeft, damageTop, damageRight, damageBottom;
+    private int untrackedItems;
+    private double lastMainSize, lastCrossSize;
     
     /**
      * Gets the minimum main size. The main size is the width or height of a
@@ -205,12 +235,1029 @@ public final class FlexboxLayout {
      * cross axis
      */
     public void layoutSubViews(double mainSize, double crossSize) {
-        resetChildren();
-        sortChildren();
-        calculateFlexLines(mainSize);
+        clearChangedItems();
+        boolean sizeChanged = mainSize != lastMainSize || crossSize != lastCrossSize;
+        if (!layoutInvalid && untrackedItems == 0 && dirtyItems.isEmpty() && !sizeChanged) {
+            if (viewportMoved) {
+                long start = tracer != null ? System.nanoTime() : 0;
+                if (tracer != null) {
+                    tracer.passStarted(this, LayoutTracer.Pass.WINDOWED, mainSize, crossSize);
+                }
+                layoutViewport(mainSize);
+                viewportMoved = false;
+                if (tracer != null) {
+                    tracer.passFinished(this, System.nanoTime() - start);
+                }
+            }
+            return;
+        }
+        long start = tracer != null ? System.nanoTime() : 0;
+        LayoutCache.Result cached = null;
+        boolean inputsRead = false;
+        if (layoutCache != null && viewport == null) {
+            readInputs();
+            inputsRead = true;
+            cached = layoutCache.lookup(getSettings(), originalItems, mainSize, crossSize);
+        }
+        if (viewport != null) {
+            if (tracer != null) {
+                tracer.passStarted(this, LayoutTracer.Pass.WINDOWED, mainSize, crossSize);
+            }
+            readInputs();
+            resetChildren();
+            sortChildren();
+            calculateFlexLines(mainSize);
+            alignContent(crossSize);
+            layoutViewport(mainSize);
+            viewportMoved = false;
+        } else if (cached != null) {
+            if (tracer != null) {
+                tracer.passStarted(this, LayoutTracer.Pass.CACHED, mainSize, crossSize);
+            }
+            restoreLayout(cached);
+        } else if (arrayEngine != null) {
+            if (tracer != null) {
+                tracer.passStarted(this, LayoutTracer.Pass.ARRAY_ENGINE, mainSize, crossSize);
+            }
+            layoutWithArrayEngine(mainSize, crossSize);
+        } else if (!layoutInvalid && !linesStale && untrackedItems == 0 && mainSize == lastMainSize && !isOrderChanged()) {
+            if (tracer != null) {
+                tracer.passStarted(this, LayoutTracer.Pass.PARTIAL, mainSize, crossSize);
+            }
+            if (!inputsRead) {
+                readInputs(dirtyItems);
+            }
+            relayout(mainSize, crossSize);
+        } else if (!layoutInvalid && !linesStale && untrackedItems == 0 && dirtyItems.isEmpty() && resize(mainSize, crossSize)) {
+            // traced by resize, once it knows the lines can be kept
+        } else {
+            if (tracer != null) {
+                tracer.passStarted(this, LayoutTracer.Pass.FULL, mainSize, crossSize);
+            }
+            if (!inputsRead) {
+                readInputs();
+            }
+            resetChildren();
+            sortChildren();
+            calculateFlexLines(mainSize);
+            alignContent(crossSize);
+            layoutFlexLines(mainSize);
+            applyLayout();
+        }
+        if (layoutCache != null && cached == null && viewport == null) {
+            LayoutCache.Result stored = layoutCache.store(originalItems, minMainSize, minCrossSize);
+            stored.lines = arrayEngine != null ? arrayEngine.toResult(stored.bounds) : toResult(stored.bounds);
+        }
+        // neither the array engine nor the cache leave lines behind, the
+        // windowed mode leaves lines that aren't laid out
+        linesStale = cached != null || arrayEngine != null || viewport != null;
+        lineIndexValid = cached == null && arrayEngine == null;
+        lineExtentsValid = false;
+        engineLines = cached == null && arrayEngine != null && viewport == null;
+        cachedLines = cached != null ? cached.lines : null;
+        for (int i = 0; i < dirtyItems.size(); i++) {
+            FlexItem item = dirtyItems.get(i);
+            item.changes = 0;
+        }
+        dirtyItems.clear();
+        layoutInvalid = false;
+        lastMainSize = mainSize;
+        lastCrossSize = crossSize;
+        if (tracer != null) {
+            tracer.passFinished(this, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Lays out the lines intersecting the viewport, which haven't been laid
+     * out since the lines were broken.
+     */
+    private void layoutViewport(double mainSize) {
+        boolean horizontal = isHorizontal();
+        double viewportStart = horizontal ? viewport.getY() : viewport.getX();
+        double viewportEnd = viewportStart + (horizontal ? viewport.getH() : viewport.getW());
+        for (int l = findLine(viewportStart); l < flexLines.size(); l++) {
+            FlexLine line = flexLines.get(l);
+            if (line.crossStartPos >= viewportEnd) {
+                break;
+            }
+            if (!line.laidOut) {
+                distributeMainLineSpace(line, horizontal, mainSize);
+                applyJustifyContent(line, horizontal, mainSize);
+                applyAlignItems(line, horizontal);
+                applyLayout(line, horizontal);
+                line.laidOut = true;
+            }
+        }
+    }
+
+    /**
+     * Switches to the windowed mode for very large numbers of items. Every
+     * pass still computes the hypothetical sizes and breaks the lines for
+     * all items, but only the lines intersecting the viewport are laid out
+     * and get their bounds. When the viewport moves, the next call to
+     * {@link #layoutSubViews} lays out the lines that became visible, as
+     * long as nothing else changed. The bounds of items on the other lines
+     * are not updated, see {@link #isLaidOut}. The layout cache and the
+     * array engine are not used in this mode.
+     *
+     * @param viewport the visible area in the coordinates of the container
+     * or null to lay out all items again
+     */
+    public void setViewport(Bounds viewport) {
+        if (viewport == null) {
+            if (this.viewport != null) {
+                this.viewport = null;
+                layoutInvalid = true;
+            }
+            return;
+        }
+        if (this.viewport == null) {
+            this.viewport = new Bounds(0, 0, 0, 0);
+            layoutInvalid = true;
+        }
+        this.viewport.setX(viewport.getX());
+        this.viewport.setY(viewport.getY());
+        this.viewport.setW(viewport.getW());
+        this.viewport.setH(viewport.getH());
+        viewportMoved = true;
+    }
+
+    /**
+     * @return a copy of the viewport or null if not in windowed mode
+     */
+    public Bounds getViewport() {
+        return viewport == null ? null : new Bounds(viewport.getX(), viewport.getY(), viewport.getW(), viewport.getH());
+    }
+
+    /**
+     * In windowed mode only the items on lines intersecting the viewport get
+     * their bounds.
+     *
+     * @param item an item of this layout
+     * @return true if the item has been laid out by the last pass
+     */
+    public boolean isLaidOut(FlexItem item) {
+        if (item.owner != this) {
+            return false;
+        }
+        return viewport == null || item.line != null && item.line.laidOut;
+    }
+
+    /**
+     * @param crossPos a position in the cross direction
+     * @return the index of the first line ending after the position, or the
+     * number of lines if there is none
+     */
+    private int findLine(double crossPos) {
+        // lines are ordered by their cross start position
+        int low = 0, high = flexLines.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            FlexLine line = flexLines.get(mid);
+            if (line.crossStartPos + line.minCrossSize <= crossPos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the number of lines of the last pass
+     * @throws IllegalStateException if the last pass didn't break lines, see
+     * {@link #getLineOfItem}
+     */
+    public int getLineCount() {
+        checkLineIndex();
+        return flexLines.size();
+    }
+
+    /**
+     * Finds the line of an item. The line index is kept up to date by every
+     * pass breaking lines, including partial and windowed passes, so this
+     * and the other line queries take O(1) or O(log n). They reflect the
+     * last pass and are not available when it was taken from the layout
+     * cache or computed by the array engine. Lines are numbered in the order
+     * of their cross start position.
+     *
+     * @param index the index of the item, in the order the items were added
+     * @return the index of the line containing the item
+     * @throws IllegalStateException if the last pass didn't break lines
+     */
+    public int getLineOfItem(int index) {
+        checkLineIndex();
+        return originalItems.get(index).line.index;
+    }
+
+    /**
+     * Sum of the hypothetical main sizes of the items placed before an item
+     * on its line, in the flex direction. It is the main position of the
+     * item before free space is distributed and the content is justified.
+     *
+     * @param index the index of the item, in the order the items were added
+     * @return the hypothetical offset of the item from the start of its line
+     * @throws IllegalStateException if the last pass didn't break lines
+     */
+    public double getItemMainOffset(int index) {
+        checkLineIndex();
+        FlexItem item = originalItems.get(index);
+        return mainSums.sum(item.position) - mainSums.sum(item.line.firstItem);
+    }
+
+    /**
+     * @param line the index of a line
+     * @return the cross start position of the line
+     * @throws IllegalStateException if the last pass didn't break lines
+     */
+    public double getLineCrossStart(int line) {
+        checkLineIndex();
+        return flexLines.get(line).crossStartPos;
+    }
+
+    /**
+     * @param line the index of a line
+     * @return the cross size of the line
+     * @throws IllegalStateException if the last pass didn't break lines
+     */
+    public double getLineCrossSize(int line) {
+        checkLineIndex();
+        return flexLines.get(line).minCrossSize;
+    }
+
+    /**
+     * Takes a snapshot of the last pass, with the bounds the items have and
+     * the metrics of the lines. A pass restored from the layout cache has the
+     * lines of the pass it was stored by. In windowed mode the items outside of the viewport keep
+     * the bounds of an earlier pass, or NaN if they have none, and the main
+     * size of lines outside of the viewport is the hypothetical one.
+     *
+     * @return an immutable copy of the layout
+     * @throws IllegalStateException if the layout has changed since the
+     * last pass
+     */
+    public LayoutResult getLayoutResult() {
+        if (layoutInvalid) {
+            throw new IllegalStateException("not laid out since the items or settings changed");
+        }
+        int n = originalItems.size();
+        double[] bounds = new double[n * 4];
+        for (int i = 0; i < n; i++) {
+            Bounds b = originalItems.get(i).getBounds();
+            bounds[i * 4] = b == null ? Double.NaN : b.getX();
+            bounds[i * 4 + 1] = b == null ? Double.NaN : b.getY();
+            bounds[i * 4 + 2] = b == null ? Double.NaN : b.getW();
+            bounds[i * 4 + 3] = b == null ? Double.NaN : b.getH();
+        }
+        if (cachedLines != null) {
+            return cachedLines.withBounds(bounds);
+        }
+        if (engineLines) {
+            return arrayEngine.toResult(bounds);
+        }
+        return toResult(bounds);
+    }
+
+    private LayoutResult toResult(double[] bounds) {
+        int n = originalItems.size();
+        int[] lineItems = new int[n];
+        int[] lineEnds = new int[flexLines.size()];
+        double[] metrics = new double[lineEnds.length * 3];
+        int q = 0;
+        for (int k = 0; k < lineEnds.length; k++) {
+            FlexLine line = flexLines.get(k);
+            for (int j = 0; j < line.flexItems.size(); j++) {
+                lineItems[q++] = line.flexItems.get(j).index;
+            }
+            lineEnds[k] = q;
+            metrics[k * 3] = line.minMainSize;
+            metrics[k * 3 + 1] = line.minCrossSize;
+            metrics[k * 3 + 2] = line.crossStartPos;
+        }
+        return new LayoutResult(bounds, lineItems, lineEnds, metrics, minMainSize, minCrossSize);
+    }
+
+    /**
+     * Finds the line at a position in the cross direction, e.g. the scroll
+     * offset of a vertically scrolling list of rows.
+     *
+     * @param crossPos the position
+     * @return the index of the first line ending after the position, the
+     * last line if there is none, or -1 if there are no lines
+     * @throws IllegalStateException if the last pass didn't break lines
+     */
+    public int getLineAt(double crossPos) {
+        checkLineIndex();
+        return Math.min(findLine(crossPos), flexLines.size() - 1);
+    }
+
+    /**
+     * Finds the first item of the line at a position in the cross direction.
+     *
+     * @param crossPos the position
+     * @return the index of the item, in the order the items were added, or -1
+     * if there are no items
+     * @throws IllegalStateException if the last pass didn't break lines
+     */
+    public int getItemAt(double crossPos) {
+        int line = getLineAt(crossPos);
+        if (line < 0 || items.isEmpty()) {
+            return -1;
+        }
+        return itemAt(flexLines.get(line).firstItem).index;
+    }
+
+    /**
+     * Finds the item of a line at a hypothetical offset from the start of the
+     * line, see {@link #getItemMainOffset}. On a single line this is the item
+     * at the scroll offset of a list scrolling in the main direction.
+     *
+     * @param line the index of the line
+     * @param mainOffset the offset from the start of the line
+     * @return the index of the item, in the order the items were added, the
+     * last item of the line if the offset is beyond its end, or -1 if the
+     * line is empty
+     * @throws IllegalStateException if the last pass didn't break lines
+     */
+    public int getItemAt(int line, double mainOffset) {
+        checkLineIndex();
+        FlexLine flexLine = flexLines.get(line);
+        if (flexLine.flexItems.isEmpty()) {
+            return -1;
+        }
+        int first = flexLine.firstItem;
+        int position = mainSums.find(mainSums.sum(first) + Math.max(0, mainOffset));
+        position = Math.max(first, Math.min(position, first + flexLine.flexItems.size() - 1));
+        return itemAt(position).index;
+    }
+
+    /**
+     * The smallest main size of the content: the largest main size an item
+     * has when it is given no space, or the sum of these without wrapping.
+     * Nothing is laid out, the result is kept until an item or the direction
+     * or wrapping changes.
+     *
+     * @return the min-content main size, including the margins of the items
+     */
+    public double computeMinContentMainSize() {
+        double size = untrackedItems == 0 ? intrinsicSizes.getMinContent() : Double.NaN;
+        if (Double.isNaN(size)) {
+            FlexboxArrayEngine engine = loadIntrinsicEngine();
+            size = engine.computeMinContentMainSize();
+            engine.releaseItems();
+            intrinsicSizes.setMinContent(size);
+        }
+        return size;
+    }
+
+    /**
+     * The main size of the content on a single line: the sum of the
+     * hypothetical main sizes of the items when the main size isn't limited.
+     * Flex basis percentages of an unlimited size count as 0. Nothing is laid
+     * out, the result is kept until an item or the direction or wrapping
+     * changes.
+     *
+     * @return the max-content main size, including the margins of the items
+     */
+    public double computeMaxContentMainSize() {
+        double size = untrackedItems == 0 ? intrinsicSizes.getMaxContent() : Double.NaN;
+        if (Double.isNaN(size)) {
+            FlexboxArrayEngine engine = loadIntrinsicEngine();
+            size = engine.computeMaxContentMainSize();
+            engine.releaseItems();
+            intrinsicSizes.setMaxContent(size);
+        }
+        return size;
+    }
+
+    /**
+     * The cross size the content needs at a main size, i.e. the preferred
+     * height of a row container for a width. Only the lines are broken and
+     * their cross sizes added up, the items aren't laid out and keep their
+     * bounds. The results for the last few main sizes are kept until an item
+     * or the direction or wrapping changes.
+     *
+     * @param mainSize the available main size, Double.POSITIVE_INFINITY for
+     * a single line
+     * @return the sum of the cross sizes of the lines
+     */
+    public double computeContentCrossSize(double mainSize) {
+        double size = untrackedItems == 0 ? intrinsicSizes.getCrossSize(mainSize) : Double.NaN;
+        if (Double.isNaN(size)) {
+            FlexboxArrayEngine engine = loadIntrinsicEngine();
+            size = engine.computeContentCrossSize(mainSize);
+            engine.releaseItems();
+            intrinsicSizes.putCrossSize(mainSize, size);
+        }
+        return size;
+    }
+
+    /**
+     * Reads the items into an engine of their own, as the inputs read for
+     * the last pass and the order of the items are still used by the
+     * following partial passes.
+     */
+    private FlexboxArrayEngine loadIntrinsicEngine() {
+        if (intrinsicEngine == null) {
+            intrinsicEngine = new FlexboxArrayEngine();
+        }
+        intrinsicEngine.setFlexDirection(flexDirection);
+        intrinsicEngine.setFlexWrap(flexWrap);
+        intrinsicEngine.load(originalItems);
+        return intrinsicEngine;
+    }
+
+    /**
+     * @return the cross size of the content, from the cross start of the
+     * container to the end of the last line
+     * @throws IllegalStateException if the last pass didn't break lines
+     */
+    public double getContentCrossSize() {
+        checkLineIndex();
+        if (flexLines.isEmpty()) {
+            return 0;
+        }
+        FlexLine last = flexLines.get(flexLines.size() - 1);
+        return last.crossStartPos + last.minCrossSize;
+    }
+
+    /**
+     * Finds the item whose bounds contain a point. Lines are ordered by
+     * their cross position and the items of a line by their main position,
+     * so the item is found with a binary search over the lines and one over
+     * the items of a line in O(log n). Items reaching out of their line, e.g.
+     * with baseline alignment, stretching or negative margins, are found as
+     * well, the search uses the extents of the bounds of the items. If items
+     * overlap, the one added last is returned. When the last pass didn't
+     * break lines, see {@link #getLineOfItem}, all items are scanned instead.
+     * In windowed mode only items that have been laid out are found.
+     *
+     * @param x the x position, in the coordinates of the container
+     * @param y the y position, in the coordinates of the container
+     * @return the item at the position or null
+     */
+    public FlexItem itemAt(double x, double y) {
+        if (!lineIndexValid) {
+            for (int i = originalItems.size() - 1; i >= 0; i--) {
+                FlexItem item = originalItems.get(i);
+                if (contains(item.bounds, x, y)) {
+                    return item;
+                }
+            }
+            return null;
+        }
+        updateLineExtents();
+        boolean horizontal = isHorizontal();
+        double mainPos = horizontal ? x : y;
+        double crossPos = horizontal ? y : x;
+        FlexItem found = null;
+        for (int l = findReachingLine(crossPos); l < flexLines.size(); l++) {
+            FlexLine line = flexLines.get(l);
+            if (line.crossFloor > crossPos) {
+                break;
+            }
+            if (viewport != null && !line.laidOut || line.crossMin > crossPos || line.crossMax <= crossPos
+                    || line.mainMin > mainPos || line.mainMax <= mainPos) {
+                continue;
+            }
+            List<FlexItem> flexItems = line.flexItems;
+            for (int i = findReachingItem(flexItems, mainPos); i < flexItems.size(); i++) {
+                FlexItem item = flexItems.get(i);
+                if (item.mainFloor > mainPos) {
+                    break;
+                }
+                if ((found == null || item.index > found.index) && contains(item.bounds, x, y)) {
+                    found = item;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the items whose bounds intersect an area, e.g. to only repaint
+     * the items in a damaged region. Like {@link #itemAt(double, double)}
+     * this searches the lines and items instead of testing every item.
+     *
+     * @param area the area, in the coordinates of the container
+     * @return the items, line by line in the order they are placed
+     */
+    public List<FlexItem> itemsIntersecting(Bounds area) {
+        List<FlexItem> result = new ArrayList<>();
+        itemsIntersecting(area, result);
+        return result;
+    }
+
+    /**
+     * Same as {@link #itemsIntersecting(Bounds)}, but adds the items to a
+     * given list, so repeated queries don't allocate.
+     *
+     * @param area the area, in the coordinates of the container
+     * @param result the list to add the items to
+     */
+    public void itemsIntersecting(Bounds area, List<? super FlexItem> result) {
+        if (!lineIndexValid) {
+            for (int i = 0; i < originalItems.size(); i++) {
+                FlexItem item = originalItems.get(i);
+                if (intersects(item.bounds, area)) {
+                    result.add(item);
+                }
+            }
+            return;
+        }
+        updateLineExtents();
+        boolean horizontal = isHorizontal();
+        double mainStart = horizontal ? area.getX() : area.getY();
+        double mainEnd = mainStart + (horizontal ? area.getW() : area.getH());
+        double crossStart = horizontal ? area.getY() : area.getX();
+        double crossEnd = crossStart + (horizontal ? area.getH() : area.getW());
+        for (int l = findReachingLine(crossStart); l < flexLines.size(); l++) {
+            FlexLine line = flexLines.get(l);
+            if (line.crossFloor >= crossEnd) {
+                break;
+            }
+            if (viewport != null && !line.laidOut || line.crossMin >= crossEnd || line.crossMax <= crossStart
+                    || line.mainMin >= mainEnd || line.mainMax <= mainStart) {
+                continue;
+            }
+            List<FlexItem> flexItems = line.flexItems;
+            for (int i = findReachingItem(flexItems, mainStart); i < flexItems.size(); i++) {
+                FlexItem item = flexItems.get(i);
+                if (item.mainFloor >= mainEnd) {
+                    break;
+                }
+                if (intersects(item.bounds, area)) {
+                    result.add(item);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first line, which itself or a line before
+     * reaches beyond the given cross position, or the number of lines if
+     * there is none
+     */
+    private int findReachingLine(double crossPos) {
+        // the cross reach grows from line to line
+        int low = 0, high = flexLines.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (flexLines.get(mid).crossReach <= crossPos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the first item of a line, which itself or an item
+     * before reaches beyond the given main position, or the number of items
+     * if there is none
+     */
+    private static int findReachingItem(List<FlexItem> flexItems, double mainPos) {
+        // the main reach grows from item to item
+        int low = 0, high = flexItems.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (flexItems.get(mid).mainReach <= mainPos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean contains(Bounds bounds, double x, double y) {
+        return bounds != null && x >= bounds.getX() && x < bounds.getX() + bounds.getW()
+                && y >= bounds.getY() && y < bounds.getY() + bounds.getH();
+    }
+
+    private static boolean intersects(Bounds bounds, Bounds area) {
+        return bounds != null && bounds.getX() < area.getX() + area.getW() && area.getX() < bounds.getX() + bounds.getW()
+                && bounds.getY() < area.getY() + area.getH() && area.getY() < bounds.getY() + bounds.getH();
+    }
+
+    private void checkLineIndex() {
+        if (!lineIndexValid) {
+            throw new IllegalStateException("no line index, the last pass didn't break lines or items have been added since");
+        }
+    }
+
+    private void restoreLayout(LayoutCache.Result result) {
+        for (int i = 0; i < originalItems.size(); i++) {
+            FlexItem item = originalItems.get(i);
+            item.mainTargetSize = result.targets[i * 4];
+            item.crossTargetSize = result.targets[i * 4 + 1];
+            item.mainStartPos = result.targets[i * 4 + 2];
+            item.crossStartPos = result.targets[i * 4 + 3];
+            item.setBounds(result.bounds[i * 4], result.bounds[i * 4 + 1],
+                    result.bounds[i * 4 + 2], result.bounds[i * 4 + 3]);
+            if (tracer != null) {
+                traceBounds(item);
+            }
+        }
+        minMainSize = result.minMainSize;
+        minCrossSize = result.minCrossSize;
+    }
+
+    private int getSettings() {
+        return ordinal(flexDirection) | ordinal(flexWrap) << 4 | ordinal(justifyContent) << 8
+                | ordinal(alignItems) << 12 | ordinal(alignContent) << 16
+                | (growDistribution.isSorted() ? 1 << 20 : 0);
+    }
+
+    private static int ordinal(Enum<?> value) {
+        return value == null ? 0 : value.ordinal() + 1;
+    }
+
+    /**
+     * Enables a cache of complete layout results. The results are keyed by
+     * container size, the settings of this layout and all inputs of the items,
+     * so a container that is laid out again with a size and items it has seen
+     * before only needs to restore the bounds. The least recently used results
+     * are evicted first.
+     *
+     * @param maxEntries the maximum number of cached results, 0 disables the
+     * cache
+     */
+    public void setLayoutCacheSize(int maxEntries) {
+        if (maxEntries <= 0) {
+            layoutCache = null;
+        } else if (layoutCache == null) {
+            layoutCache = new LayoutCache(maxEntries);
+        } else {
+            layoutCache.setMaxSize(maxEntries);
+        }
+    }
+
+    public int getLayoutCacheSize() {
+        return layoutCache == null ? 0 : layoutCache.getMaxSize();
+    }
+
+    /**
+     * @return the number of passes that were served from the layout cache
+     */
+    public long getLayoutCacheHits() {
+        return layoutCache == null ? 0 : layoutCache.getHits();
+    }
+
+    /**
+     * @return the number of passes that had to be laid out although the
+     * layout cache is enabled
+     */
+    public long getLayoutCacheMisses() {
+        return layoutCache == null ? 0 : layoutCache.getMisses();
+    }
+
+    /**
+     * Marks the whole layout as invalid, so the next call to layoutSubViews
+     * does a complete layout pass. Call this if something changed that the
+     * items don't report themselves.
+     */
+    public void invalidate() {
+        layoutInvalid = true;
+        intrinsicSizes.clear();
+    }
+
+    /**
+     * Drops the cached measurements of all items with a
+     * {@link MeasureFunction} and marks them as changed. Call this if their
+     * content may have changed and they don't report it, otherwise prefer
+     * {@link FlexItem#invalidateMeasure()} on the items that changed. Items
+     * without a measure function keep their state, so passes of the layout
+     * cache for them still hit.
+     */
+    public void invalidateMeasurements() {
+        for (int i = 0; i < originalItems.size(); i++) {
+            FlexItem item = originalItems.get(i);
+            if (item.getMeasureFunction() != null) {
+                item.invalidateMeasure();
+            }
+        }
+    }
+
+    /**
+     * Sets how far the bounds of an item may move before it is updated.
+     * Items whose x, y, width and height all differ by no more than this
+     * from their current bounds keep them, their
+     * {@link FlexItem#adjustBounds(Bounds)} isn't called and they aren't
+     * counted as changed. The default 0 only skips items whose bounds are
+     * exactly the same.
+     *
+     * @param epsilon the largest difference ignored
+     * @throws IllegalArgumentException if epsilon is negative or NaN
+     */
+    public void setBoundsEpsilon(double epsilon) {
+        if (!(epsilon >= 0)) {
+            throw new IllegalArgumentException("epsilon must not be negative");
+        }
+        this.boundsEpsilon = epsilon;
+    }
+
+    public double getBoundsEpsilon() {
+        return boundsEpsilon;
+    }
+
+    /**
+     * @return the items whose bounds were changed by the last layout pass,
+     * in the order they were updated. The list is reused by the next pass.
+     */
+    public List<FlexItem> getChangedItems() {
+        return changedItemsView;
+    }
+
+    /**
+     * @return the union of the old and the new bounds of the items changed
+     * by the last layout pass, i.e. the area to repaint, or null if no item
+     * changed
+     */
+    public Bounds getDamage() {
+        if (changedItems.isEmpty()) {
+            return null;
+        }
+        return new Bounds(damageLeft, damageTop, damageRight - damageLeft, damageBottom - damageTop);
+    }
+
+    void clearChangedItems() {
+        changedItems.clear();
+        damageLeft = damageTop = Double.POSITIVE_INFINITY;
+        damageRight = damageBottom = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Called by an item before its bounds change.
+     */
+    void boundsChanging(FlexItem item, double x, double y, double w, double h) {
+        changedItems.add(item);
+        Bounds bounds = item.bounds;
+        if (bounds != null) {
+            addDamage(bounds.getX(), bounds.getY(), bounds.getW(), bounds.getH());
+        }
+        addDamage(x, y, w, h);
+    }
+
+    private void addDamage(double x, double y, double w, double h) {
+        damageLeft = Math.min(damageLeft, x);
+        damageTop = Math.min(damageTop, y);
+        damageRight = Math.max(damageRight, x + w);
+        damageBottom = Math.max(damageBottom, y + h);
+    }
+
+    void itemChanged(FlexItem item, Change change) {
+        if (item.changes == 0) {
+            dirtyItems.add(item);
+        }
+        if (change == Change.ORDER) {
+            orderInvalid = true;
+        }
+        item.changes |= 1 << change.ordinal();
+        intrinsicSizes.clear();
+        if (node != null) {
+            node.markDirty();
+        }
+    }
+
+    private boolean isOrderChanged() {
+        for (int i = 0; i < dirtyItems.size(); i++) {
+            FlexItem item = dirtyItems.get(i);
+            if (item.hasChanged(Change.ORDER)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Partial layout pass. Lines are only broken again starting with the
+     * line before the first line that contains an item with a changed size,
+     * as the first item of a line may fit on the previous one when it
+     * shrinks. Other lines with changed items are laid out again without
+     * breaking, and the remaining lines are only realigned if alignContent
+     * moved or resized them.
+     */
+    private void relayout(double mainSize, double crossSize) {
+        boolean horizontal = isHorizontal();
+        int breakFrom = items.size();
+        for (int i = 0; i < dirtyItems.size(); i++) {
+            FlexItem item = dirtyItems.get(i);
+            FlexLine line = item.line;
+            if (line == null) {
+                continue;
+            }
+            if (item.hasChanged(Change.SIZE)) {
+                breakFrom = Math.min(breakFrom, line.firstItem);
+            } else {
+                line.dirty = true;
+            }
+        }
+        for (int l = 0; l < flexLines.size(); l++) {
+            FlexLine flexLine = flexLines.get(l);
+            flexLine.previousCrossStartPos = flexLine.crossStartPos;
+            flexLine.previousCrossSize = flexLine.minCrossSize;
+        }
+        if (breakFrom < items.size()) {
+            boolean reverse = flexWrap == FlexWrap.WRAP_REVERSE;
+            if (reverse) {
+                Collections.reverse(flexLines);
+            }
+            int keep = flexLines.size();
+            while (keep > 0 && flexLines.get(keep - 1).firstItem >= breakFrom) {
+                keep--;
+            }
+            if (keep > 0) {
+                // a smaller first item may fit on the end of the line before
+                keep--;
+                breakFrom = flexLines.get(keep).firstItem;
+            }
+            releaseLines(keep);
+            minMainSize = 0;
+            for (int i = 0; i < breakFrom; i++) {
+                minMainSize = Math.max(minMainSize, itemAt(i).hypotheticalMainSize);
+            }
+            breakLines(mainSize, breakFrom);
+            if (reverse) {
+                Collections.reverse(flexLines);
+            }
+            indexLines(reverse ? 0 : keep);
+        }
         alignContent(crossSize);
-        layoutFlexLines(mainSize);
-        applyLayout();
+        for (int l = 0; l < flexLines.size(); l++) {
+            FlexLine flexLine = flexLines.get(l);
+            if (flexLine.dirty || flexLine.minCrossSize != flexLine.previousCrossSize) {
+                resetFlexLine(flexLine);
+                distributeMainLineSpace(flexLine, horizontal, mainSize);
+                applyJustifyContent(flexLine, horizontal, mainSize);
+                applyAlignItems(flexLine, horizontal);
+                applyLayout(flexLine, horizontal);
+            } else if (flexLine.crossStartPos != flexLine.previousCrossStartPos) {
+                applyLayout(flexLine, horizontal);
+            }
+            flexLine.dirty = false;
+        }
+    }
+
+    /**
+     * Layout pass for a new main size when nothing else changed, e.g. while a
+     * window is resized. Only the hypothetical sizes depending on the main
+     * size, those of items with a flex basis percentage or a measure
+     * function, are computed again. If the lines still break at the same
+     * items, they are laid out again without sorting and breaking. Otherwise
+     * false is returned and the caller does a full pass.
+     */
+    private boolean resize(double mainSize, double crossSize) {
+        boolean wrap = flexWrap != FlexWrap.NOWRAP;
+        boolean reverse = flexWrap == FlexWrap.WRAP_REVERSE;
+        int lineCount = flexLines.size();
+        double maxItemMainSize = 0, previousLineMainSize = 0, lineMainSize = 0;
+        // in the order the lines were broken
+        for (int b = 0; b < lineCount; b++) {
+            FlexLine line = flexLines.get(reverse ? lineCount - 1 - b : b);
+            List<FlexItem> lineItems = line.flexItems;
+            double lineCrossSize = 0;
+            lineMainSize = 0;
+            for (int i = 0; i < lineItems.size(); i++) {
+                FlexItem item = lineItems.get(i);
+                if (item.dependsOnMainSize()) {
+                    item.hypotheticalMainSize = item.computeHypotheticalMainSize(mainSize);
+                    item.hypotheticalCrossSize = item.computeHypotheticalCrossSize(mainSize, item.hypotheticalMainSize);
+                    mainSums.set(item.position, item.hypotheticalMainSize);
+                }
+                lineMainSize += item.hypotheticalMainSize;
+                lineCrossSize = Math.max(lineCrossSize, item.hypotheticalCrossSize);
+                maxItemMainSize = Math.max(maxItemMainSize, item.hypotheticalMainSize);
+            }
+            if (wrap && (lineItems.size() > 1 && lineMainSize > mainSize
+                    || b > 0 && !lineItems.isEmpty() && previousLineMainSize + lineItems.get(0).hypotheticalMainSize <= mainSize)) {
+                return false;
+            }
+            line.hypotheticalCrossSize = lineCrossSize;
+            previousLineMainSize = lineMainSize;
+        }
+        if (tracer != null) {
+            tracer.passStarted(this, LayoutTracer.Pass.RESIZE, mainSize, crossSize);
+            for (int i = 0; i < items.size(); i++) {
+                FlexItem item = items.get(i);
+                tracer.hypotheticalSize(item, item.index, item.hypotheticalMainSize, item.hypotheticalCrossSize);
+            }
+        }
+        minMainSize = wrap ? maxItemMainSize : lineMainSize;
+        boolean horizontal = isHorizontal();
+        alignContent(crossSize);
+        for (int l = 0; l < lineCount; l++) {
+            FlexLine flexLine = flexLines.get(l);
+            resetFlexLine(flexLine);
+            distributeMainLineSpace(flexLine, horizontal, mainSize);
+            applyJustifyContent(flexLine, horizontal, mainSize);
+            applyAlignItems(flexLine, horizontal);
+            applyLayout(flexLine, horizontal);
+            flexLine.dirty = false;
+        }
+        return true;
+    }
+
+    private void resetFlexLine(FlexLine line) {
+        line.minMainSize = 0;
+        line.grow = 0;
+        line.shrink = 0;
+        for (int i = 0; i < line.flexItems.size(); i++) {
+            FlexItem item = line.flexItems.get(i);
+            item.setMainStartPos(-1);
+            item.setCrossStartPos(-1);
+            item.setMainTargetSize(item.hypotheticalMainSize);
+            item.setCrossTargetSize(item.hypotheticalCrossSize);
+            line.minMainSize += item.hypotheticalMainSize;
+            if (item.grow != FlexItem.FLEX_GROW_DEFAULT) {
+                line.grow += item.grow;
+            }
+            if (item.shrink != FlexItem.FLEX_SHRINK_DEFAULT) {
+                line.shrink += item.shrink;
+            }
+        }
+    }
+
+    private void layoutWithArrayEngine(double mainSize, double crossSize) {
+        arrayEngine.setFlexDirection(flexDirection);
+        arrayEngine.setFlexWrap(flexWrap);
+        arrayEngine.setJustifyContent(justifyContent);
+        arrayEngine.setAlignItems(alignItems);
+        arrayEngine.setAlignContent(alignContent);
+        arrayEngine.setSortedGrowEnabled(growDistribution.isSorted());
+        arrayEngine.load(originalItems);
+        arrayEngine.layout(mainSize, crossSize);
+        arrayEngine.applyTo(originalItems);
+        minMainSize = arrayEngine.getMinMainSize();
+        minCrossSize = arrayEngine.getMinCrossSize();
+        if (tracer != null) {
+            for (int i = 0; i < originalItems.size(); i++) {
+                traceBounds(originalItems.get(i));
+            }
+        }
+    }
+
+    private void traceBounds(FlexItem item) {
+        Bounds bounds = item.getBounds();
+        tracer.bounds(item, item.index, bounds.getX(), bounds.getY(), bounds.getW(), bounds.getH());
+    }
+
+    /**
+     * Installs a tracer receiving the decisions of the following layout
+     * passes.
+     *
+     * @param tracer the tracer or null to stop tracing
+     */
+    public void setLayoutTracer(LayoutTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * @return the installed tracer or null
+     */
+    public LayoutTracer getLayoutTracer() {
+        return tracer;
+    }
+
+    /**
+     * Switches layoutSubViews to the {@link FlexboxArrayEngine}, which reads
+     * the inputs of all items into primitive arrays once per pass and runs the
+     * algorithm on these. The results are the same, but it scales better for
+     * large numbers of items.
+     *
+     * @param enabled true to use the array engine
+     */
+    public void setArrayEngineEnabled(boolean enabled) {
+        if (enabled && arrayEngine == null) {
+            arrayEngine = new FlexboxArrayEngine();
+        } else if (!enabled) {
+            arrayEngine = null;
+        }
+        layoutInvalid = true;
+    }
+
+    public boolean isArrayEngineEnabled() {
+        return arrayEngine != null;
+    }
+
+    /**
+     * Distributes the free space of growing lines by ordering their items
+     * once by the point at which they reach their maximum size, instead of
+     * handing it out in rounds over the whole line. This is O(n log n)
+     * instead of quadratic when many items are clamped one after another,
+     * but the sizes may differ from the default in the last digits.
+     *
+     * @param enabled true to order the growing items
+     */
+    public void setSortedGrowEnabled(boolean enabled) {
+        growDistribution.setSorted(enabled);
+        layoutInvalid = true;
+    }
+
+    public boolean isSortedGrowEnabled() {
+        return growDistribution.isSorted();
     }
 
     /**
@@ -221,25 +1268,136 @@ public final class FlexboxLayout {
         return flexDirection == FlexDirection.ROW || flexDirection == FlexDirection.ROW_REVERSE;
     }
 
+    /**
+     * Brings the items into the order given by their order property. The
+     * result is cached and only computed again when items are added or
+     * removed or an item reports a changed order. Items that don't report
+     * their changes are checked in O(n) on every call. Items are kept in
+     * ascending order, the *_REVERSE directions iterate them backwards via
+     * {@link #itemAt(int)}.
+     */
     void sortChildren() {
-        items = new ArrayList<>(originalItems);
+        if (items != null && !orderInvalid && (untrackedItems == 0 || isOrderValid())) {
+            return;
+        }
+        if (items == null) {
+            items = new ArrayList<>(originalItems.size());
+        }
+        items.clear();
+        boolean ordered = true;
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int i = 0; i < originalItems.size(); i++) {
+            FlexItem item = originalItems.get(i);
+            int order = item.sortOrder;
+            if (order < max) {
+                ordered = false;
+            }
+            min = Math.min(min, order);
+            max = Math.max(max, order);
+            items.add(item);
+        }
+        orderInvalid = false;
+        if (ordered) {
+            // all orders equal (the usual case) or already ascending
+            return;
+        }
+        long range = (long) max - min + 1;
+        if (range <= Math.max(items.size(), 256)) {
+            countingSortByOrder(min, (int) range);
+        } else {
+            sortByOrder();
+        }
+    }
+
+    private boolean isOrderValid() {
+        if (items.size() != originalItems.size()) {
+            return false;
+        }
+        for (int i = 1; i < items.size(); i++) {
+            FlexItem previous = items.get(i - 1), item = items.get(i);
+            int previousOrder = previous.sortOrder, order = item.sortOrder;
+            if (previousOrder > order || previousOrder == order && previous.index > item.index) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param position position in the direction of the main axis
+     * @return the item at this position
+     */
+    private FlexItem itemAt(int position) {
+        boolean descending = flexDirection == FlexDirection.ROW_REVERSE || flexDirection == FlexDirection.COLUMN_REVERSE;
+        return items.get(descending ? items.size() - 1 - position : position);
+    }
 
-        Collections.sort(items, new Comparator<FlexItem>() {
-            @Override
-            public int compare(FlexItem o1, FlexItem o2) {
+    /**
+     * Stable counting sort for orders within a small range.
+     */
+    private void countingSortByOrder(int min, int range) {
+        int n = items.size();
+        if (orderCounts.length < range + 1) {
+            orderCounts = new int[range + 1];
+        }
+        if (sortBuffer.length < n) {
+            sortBuffer = new FlexItem[n];
+            sortScratch = new FlexItem[n];
+        }
+        int[] counts = orderCounts;
+        Arrays.fill(counts, 0, range + 1, 0);
+        FlexItem[] from = items.toArray(sortBuffer);
+        for (int i = 0; i < n; i++) {
+            counts[from[i].sortOrder - min + 1]++;
+        }
+        for (int k = 1; k <= range; k++) {
+            counts[k] += counts[k - 1];
+        }
+        for (int i = 0; i < n; i++) {
+            items.set(counts[from[i].sortOrder - min]++, from[i]);
+        }
+    }
 
-                return ((Integer) o1.getOrder()).compareTo(o2.getOrder());
+    /**
+     * Stable bottom up merge sort of the items by order. Unlike
+     * Collections.sort it reuses its buffers, so it doesn't allocate.
+     */
+    private void sortByOrder() {
+        int n = items.size();
+        if (sortBuffer.length < n) {
+            sortBuffer = new FlexItem[n];
+            sortScratch = new FlexItem[n];
+        }
+        FlexItem[] from = items.toArray(sortBuffer);
+        FlexItem[] to = sortScratch;
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n), hi = Math.min(lo + 2 * width, n);
+                int a = lo, b = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (a < mid && (b >= hi || from[a].sortOrder <= from[b].sortOrder)) {
+                        to[k] = from[a++];
+                    } else {
+                        to[k] = from[b++];
+                    }
+                }
             }
-        });
-        final boolean descending = flexDirection == FlexDirection.ROW_REVERSE || flexDirection == FlexDirection.COLUMN_REVERSE;
-        if (descending) {
-            Collections.reverse(items);
+            FlexItem[] swap = from;
+            from = to;
+            to = swap;
+        }
+        for (int i = 0; i < n; i++) {
+            items.set(i, from[i]);
         }
     }
 
     void alignContent(double crossSize) {
         minCrossSize = 0;
         if (flexLines.size()==0)return;
+        for (int l = 0; l < flexLines.size(); l++) {
+            FlexLine flexLine = flexLines.get(l);
+            flexLine.minCrossSize = flexLine.hypotheticalCrossSize;
+        }
 //        if (flexLines.size() <= 1) {
 //            if (flexLines.size() == 1) {
 //                minCrossSize = flexLines.get(0).getMinCrossSize();
@@ -247,39 +1405,45 @@ public final class FlexboxLayout {
 //            return; // nothing to do according to spec
 //        }
 
-        for (FlexLine flexLine : flexLines) {
+        for (int l = 0; l < flexLines.size(); l++) {
+            FlexLine flexLine = flexLines.get(l);
             minCrossSize += flexLine.getMinCrossSize();
         }
         double crossStartPos = 0;
         switch (alignContent) {
 
             case FLEX_START:
-                for (FlexLine flexLine : flexLines) {
+                for (int l = 0; l < flexLines.size(); l++) {
+                    FlexLine flexLine = flexLines.get(l);
                     crossStartPos = getNewStartpossByAlignmentType(flexLine, crossStartPos);
                 }
                 minCrossSize = crossStartPos;
                 break;
             case FLEX_END:
                 crossStartPos = Math.max(0, crossSize - minCrossSize);
-                for (FlexLine flexLine : flexLines) {
+                for (int l = 0; l < flexLines.size(); l++) {
+                    FlexLine flexLine = flexLines.get(l);
                     crossStartPos = getNewStartpossByAlignmentType(flexLine, crossStartPos);
                 }
                 break;
             case CENTER:
                 crossStartPos = Math.max(0, (crossSize - minCrossSize) / 2);
-                for (FlexLine flexLine : flexLines) {
+                for (int l = 0; l < flexLines.size(); l++) {
+                    FlexLine flexLine = flexLines.get(l);
                     crossStartPos = getNewStartpossByAlignmentType(flexLine, crossStartPos);
                 }
                 break;
             case SPACE_BETWEEN:
                 double extra = (crossSize - minCrossSize) / (flexLines.size() - 1);
-                for (FlexLine flexLine : flexLines) {
+                for (int l = 0; l < flexLines.size(); l++) {
+                    FlexLine flexLine = flexLines.get(l);
                     crossStartPos = getNewStartPosWithExtra(flexLine, crossStartPos, extra);
                 }
                 break;
             case STRETCH: {
                 double extraSpace = ((crossSize - minCrossSize) / flexLines.size());
-                for (FlexLine flexLine : flexLines) {
+                for (int l = 0; l < flexLines.size(); l++) {
+                    FlexLine flexLine = flexLines.get(l);
                     crossStartPos = getNewStartPosWithExtra(flexLine, crossStartPos, extraSpace);
 //                    List<FlexItem> flexItems = flexLine.getFlexItems();
 //                    for (FlexItem flexItem : flexItems) {
@@ -291,7 +1455,8 @@ public final class FlexboxLayout {
             }
             case SPACE_AROUND:
                 double extraSpace = ((crossSize - minCrossSize) / flexLines.size()) / 2;
-                for (FlexLine flexLine : flexLines) {
+                for (int l = 0; l < flexLines.size(); l++) {
+                    FlexLine flexLine = flexLines.get(l);
                     crossStartPos += extraSpace;
                     crossStartPos = getNewStartPosWithExtra(flexLine, crossStartPos, extraSpace);
                 }
@@ -313,33 +1478,35 @@ public final class FlexboxLayout {
     void layoutFlexLines(double mainSize) {
         boolean horizontal = flexDirection == FlexDirection.ROW || flexDirection == FlexDirection.ROW_REVERSE;
 
-        for (FlexLine flexLine : flexLines) {
+        for (int l = 0; l < flexLines.size(); l++) {
+            FlexLine flexLine = flexLines.get(l);
             distributeMainLineSpace(flexLine, horizontal, mainSize);
             applyJustifyContent(flexLine, horizontal, mainSize);
             applyAlignItems(flexLine, horizontal);
+            flexLine.dirty = false;
         }
     }
 
     void applyAlignSelf(FlexLine line, FlexItem flexItem, boolean horizontal) {
         double lineCrossSize = line.getMinCrossSize();
-        AlignSelf flexAlignSelf = flexItem.getFlexAlignSelf();
+        AlignSelf flexAlignSelf = flexItem.alignSelf;
         switch (flexAlignSelf) {
             case AUTO:
                 break; // shouldn't happen
             case BASELINE:
                 break; // TODO: not implemented, 
             case CENTER:
-                flexItem.setCrossStartPos(flexItem.getCrossMarginStart(horizontal) + (lineCrossSize - flexItem.getCrossTargetSize()) / 2);
+                flexItem.setCrossStartPos(flexItem.crossMarginStart + (lineCrossSize - flexItem.getCrossTargetSize()) / 2);
                 break;
             case FLEX_START:
-                flexItem.setCrossStartPos(flexItem.getCrossMarginStart(horizontal));
+                flexItem.setCrossStartPos(flexItem.crossMarginStart);
                 break;
             case FLEX_END:
-                flexItem.setCrossStartPos(flexItem.getCrossMarginStart(horizontal) + lineCrossSize - flexItem.getCrossTargetSize());
+                flexItem.setCrossStartPos(flexItem.crossMarginStart + lineCrossSize - flexItem.getCrossTargetSize());
                 break;
             case STRETCH:
-                flexItem.setCrossStartPos(flexItem.getCrossMarginStart(horizontal));
-                flexItem.setCrossTargetSize(lineCrossSize - flexItem.getCrossMarginStart(horizontal) - flexItem.getCrossMarginEnd(horizontal));
+                flexItem.setCrossStartPos(flexItem.crossMarginStart);
+                flexItem.setCrossTargetSize(lineCrossSize - flexItem.crossMarginStart - flexItem.crossMarginEnd);
                 break;
         }
     }
@@ -350,41 +1517,46 @@ public final class FlexboxLayout {
 
         switch (alignItems) {
             case FLEX_START:
-                for (FlexItem flexItem : flexItems) {
-                    applyCrossStartPostOnItem(flexItem, line, horizontal, flexItem.getCrossMarginStart(horizontal));
+                for (int i = 0; i < flexItems.size(); i++) {
+                    FlexItem flexItem = flexItems.get(i);
+                    applyCrossStartPostOnItem(flexItem, line, horizontal, flexItem.crossMarginStart);
                 }
                 break;
             case FLEX_END:
-                for (FlexItem flexItem : flexItems) {
-                    applyCrossStartPostOnItem(flexItem, line, horizontal, flexItem.getCrossMarginStart(horizontal) + lineCrossSize - flexItem.getCrossTargetSize());
+                for (int i = 0; i < flexItems.size(); i++) {
+                    FlexItem flexItem = flexItems.get(i);
+                    applyCrossStartPostOnItem(flexItem, line, horizontal, flexItem.crossMarginStart + lineCrossSize - flexItem.getCrossTargetSize());
                 }
                 break;
             case STRETCH:
-                for (FlexItem flexItem : flexItems) {
-                    if (flexItem.isSelfAligned()) {
+                for (int i = 0; i < flexItems.size(); i++) {
+                    FlexItem flexItem = flexItems.get(i);
+                    if (flexItem.alignSelf != AlignSelf.AUTO) {
                         applyAlignSelf(line, flexItem, horizontal);
                     } else {
-                        flexItem.setCrossStartPos(flexItem.getCrossMarginStart(horizontal));
+                        flexItem.setCrossStartPos(flexItem.crossMarginStart);
                         flexItem.setCrossTargetSize(lineCrossSize);
                     }
                 }
                 break;
             case CENTER:
-                for (FlexItem flexItem : flexItems) {
-                    applyCrossStartPostOnItem(flexItem, line, horizontal, flexItem.getCrossMarginStart(horizontal) + (lineCrossSize - flexItem.getCrossTargetSize()) / 2);
+                for (int i = 0; i < flexItems.size(); i++) {
+                    FlexItem flexItem = flexItems.get(i);
+                    applyCrossStartPostOnItem(flexItem, line, horizontal, flexItem.crossMarginStart + (lineCrossSize - flexItem.getCrossTargetSize()) / 2);
                 }
                 break;
             case BASELINE:
                 // TODO:  find a way to calc baseline
-                for (FlexItem flexItem : flexItems) {
-                    applyCrossStartPostOnItem(flexItem, line, horizontal, flexItem.getCrossMarginStart(horizontal) + (lineCrossSize - flexItem.getCrossTargetSize()) / 2);
+                for (int i = 0; i < flexItems.size(); i++) {
+                    FlexItem flexItem = flexItems.get(i);
+                    applyCrossStartPostOnItem(flexItem, line, horizontal, flexItem.crossMarginStart + (lineCrossSize - flexItem.getCrossTargetSize()) / 2);
                 }
                 break;
         }
     }
 
     private void applyCrossStartPostOnItem(FlexItem flexItem, FlexLine line, boolean horizontal, double startPos) {
-        if (flexItem.isSelfAligned()) {
+        if (flexItem.alignSelf != AlignSelf.AUTO) {
             applyAlignSelf(line, flexItem, horizontal);
         } else {
             flexItem.setCrossStartPos(startPos);
@@ -411,7 +1583,8 @@ public final class FlexboxLayout {
             case SPACE_AROUND:
                 double extraSpacePerItem = Math.max((rest / line.flexItems.size()) / 2, 0);
 
-                for (FlexItem flexItem : flexItems) {
+                for (int i = 0; i < flexItems.size(); i++) {
+                    FlexItem flexItem = flexItems.get(i);
                     startMain += extraSpacePerItem;
                     startMain = getNewStartMainWithExtraSpace(flexItem, horizontal, startMain, extraSpacePerItem);
                 }
@@ -421,7 +1594,8 @@ public final class FlexboxLayout {
                     break;
                 }
                 double extraSpacebetweenItems = Math.max(0, rest / (line.flexItems.size() - 1));
-                for (FlexItem flexItem : flexItems) {
+                for (int i = 0; i < flexItems.size(); i++) {
+                    FlexItem flexItem = flexItems.get(i);
                     startMain = getNewStartMainWithExtraSpace(flexItem, horizontal, startMain, extraSpacebetweenItems);
                 }
                 break;
@@ -430,18 +1604,19 @@ public final class FlexboxLayout {
     }
 
     private void loopFlexItemsForStartMain(List<FlexItem> flexItems, double startMain, boolean horizontal) {
-        for (FlexItem flexItem : flexItems) {
+        for (int i = 0; i < flexItems.size(); i++) {
+            FlexItem flexItem = flexItems.get(i);
             startMain = getNewStartMain(flexItem, horizontal, startMain);
         }
     }
 
     private double getNewStartMain(FlexItem flexItem, boolean horizontal, double startMain) {
-        flexItem.setMainStartPos(flexItem.getMainMarginStart(horizontal) + startMain);
+        flexItem.setMainStartPos(flexItem.mainMarginStart + startMain);
         return startMain += flexItem.getMainTargetSize();
     }
 
     private double getNewStartMainWithExtraSpace(FlexItem flexItem, boolean horizontal, double startMain, double extraSpacePerItem) {
-        flexItem.setMainStartPos(flexItem.getMainMarginStart(horizontal) + startMain);
+        flexItem.setMainStartPos(flexItem.mainMarginStart + startMain);
         return startMain += extraSpacePerItem + flexItem.getMainTargetSize();
     }
 
@@ -451,58 +1626,49 @@ public final class FlexboxLayout {
         double growUnit = 0;
         if (freeSpace > 0) {
             if (line.getGrow() > 0) {
-                HashSet<FlexItem> frozen = new HashSet<>();
-                float totalGrow = line.getGrow();
-                growUnit = freeSpace / line.getGrow();
-                while (totalGrow > 0 && growUnit > 0) { // while we have space left
-                    double rest = 0;
-                    for (FlexItem flexItem : flexItems) {
-                        if (checkSkipItem(frozen, flexItem, flexItem.getFlexGrow(), 0f)) {
-                            continue;
-                        }
-
-                        double grow = flexItem.getFlexGrow() * growUnit;
-                        double grownSize = grow + flexItem.getMainTargetSize();
-                        double clampedSize = horizontal ? flexItem.getMaxWidth() : flexItem.getMaxHeight();
-                        if (grownSize > clampedSize) { // clamp to maxSize
-                            rest += grownSize - clampedSize;
-                            grownSize = clampedSize;
-                            // use this value to setTargetMainSize
-                            frozen.add(flexItem);
-                            totalGrow -= flexItem.getFlexGrow(); // rest is split up between the others
-                        }
-                        double distributed = grownSize - flexItem.getMainTargetSize();
-                        flexItem.setMainTargetSize(grownSize);
-                        line.minMainSize += distributed;
+                growDistribution.clear();
+                for (int i = 0; i < flexItems.size(); i++) {
+                    FlexItem flexItem = flexItems.get(i);
+                    if (flexItem.grow != 0f) {
+                        growDistribution.add(flexItem.getMainTargetSize(), flexItem.grow, flexItem.maxMain);
                     }
-                    if (rest > 0) {
-                        growUnit = getNewGrowUnit(totalGrow, rest);
-                    } else {
-                        break;
+                }
+                line.minMainSize = growDistribution.distribute(line.getGrow(), freeSpace / line.getGrow(), line.minMainSize);
+                for (int i = 0, j = 0; i < flexItems.size(); i++) {
+                    FlexItem flexItem = flexItems.get(i);
+                    if (flexItem.grow != 0f) {
+                        if (tracer != null && growDistribution.isClamped(j)) {
+                            tracer.clamped(flexItem, flexItem.index, growDistribution.getUnclampedSize(j), growDistribution.getSize(j));
+                        }
+                        flexItem.setMainTargetSize(growDistribution.getSize(j++));
                     }
                 }
             }
         } else if (freeSpace < 0) {
             if (line.getShrink() > 0) {
-                HashSet<FlexItem> frozen = new HashSet<>();
+                unfreeze(flexItems);
                 float totalGrow = line.getShrink();
                 growUnit = freeSpace / line.getShrink();
                 while (totalGrow > 0 && growUnit < 0) { // while we have space left
                     double rest = 0;
-                    for (FlexItem flexItem : flexItems) {
-                        if (checkSkipItem(frozen, flexItem, totalGrow, 1f)) {
+                    for (int i = 0; i < flexItems.size(); i++) {
+                        FlexItem flexItem = flexItems.get(i);
+                        if (checkSkipItem(flexItem, totalGrow, 1f)) {
                             continue;
                         }
 
-                        double grow = flexItem.getFlexShrink() * growUnit;
+                        double grow = flexItem.shrink * growUnit;
                         double grownSize = grow + flexItem.getMainTargetSize();
-                        double clampedSize = horizontal ? flexItem.getMinWidth() : flexItem.getMinHeight();
+                        double clampedSize = flexItem.minMain;
                         if (grownSize < clampedSize) { // clamp to minSize
+                            if (tracer != null) {
+                                tracer.clamped(flexItem, flexItem.index, grownSize, clampedSize);
+                            }
                             rest += grownSize - clampedSize;
                             grownSize = clampedSize;
                             // use this value to setTargetMainSize
-                            frozen.add(flexItem);
-                            totalGrow -= flexItem.getFlexShrink(); // rest is split up between the others
+                            flexItem.frozen = true;
+                            totalGrow -= flexItem.shrink; // rest is split up between the others
                         }
                         double distributed = grownSize - flexItem.getMainTargetSize();
                         flexItem.setMainTargetSize(grownSize);
@@ -529,82 +1695,135 @@ public final class FlexboxLayout {
         return growUnit;
     }
 
-    private boolean checkSkipItem(HashSet<FlexItem> frozen, FlexItem flexItem, float valueToCheck, float valueToCheckAgainst) {
-        if (frozen.contains(flexItem)) {
+    private static void unfreeze(List<FlexItem> flexItems) {
+        for (int i = 0; i < flexItems.size(); i++) {
+            flexItems.get(i).frozen = false;
+        }
+    }
+
+    private boolean checkSkipItem(FlexItem flexItem, float valueToCheck, float valueToCheckAgainst) {
+        if (flexItem.frozen) {
             return true;
         }
         if (valueToCheck == valueToCheckAgainst) {
-            frozen.add(flexItem);
+            flexItem.frozen = true;
             return true;
         }
         return false;
     }
 
     void calculateFlexLines(double mainSize) {
-        LOG.finest("calculateFlexLines");
-        boolean horizontal = flexDirection == FlexDirection.ROW || flexDirection == FlexDirection.ROW_REVERSE;
         minMainSize = 0;
-        flexLines.clear();
-        FlexLine line = new FlexLine();
+        releaseLines(0);
+        mainSums.reset(items.size());
+        breakLines(mainSize, 0);
+        if (flexWrap == FlexWrap.WRAP_REVERSE) {
+            Collections.reverse(flexLines);
+        }
+        indexLines(0);
+    }
+
+    private void indexLines(int from) {
+        for (int l = from; l < flexLines.size(); l++) {
+            flexLines.get(l).index = l;
+        }
+    }
+
+    /**
+     * Removes all lines starting with the given one and keeps them for reuse.
+     */
+    private void releaseLines(int from) {
+        for (int l = flexLines.size() - 1; l >= from; l--) {
+            FlexLine line = flexLines.remove(l);
+            line.flexItems.clear();
+            linePool.add(line);
+        }
+    }
+
+    private FlexLine obtainLine(int firstItem) {
+        FlexLine line = linePool.isEmpty() ? new FlexLine() : linePool.remove(linePool.size() - 1);
+        line.reset();
+        line.firstItem = firstItem;
         flexLines.add(line);
+        if (tracer != null && firstItem < items.size()) {
+            FlexItem item = itemAt(firstItem);
+            tracer.lineStarted(flexLines.size() - 1, item, item.index);
+        }
+        return line;
+    }
+
+    private void breakLines(double mainSize, int from) {
+        FlexLine line = obtainLine(from);
         if (flexWrap == FlexWrap.NOWRAP) {
-            LOG.finest("flex-wrap is FLEX_WRAP_NOWRAP");
-            line.flexItems.addAll(items);
-            for (FlexItem item : items) {
-                double hypotheticalMainSize = (horizontal ? item.getHypotheticalMainWidth(mainSize) : item.getHypotheticalMainHeight(mainSize));
+            for (int i = 0; i < items.size(); i++) {
+                FlexItem item = itemAt(i);
+                line.addFlexItem(item);
+                double hypotheticalMainSize = item.computeHypotheticalMainSize(mainSize);
                 item.setMainTargetSize(hypotheticalMainSize);
-                double hypotheticalCrossSize = (!horizontal ? item.getHypotheticalMainWidth(mainSize) : item.getHypotheticalMainHeight(mainSize));
+                double hypotheticalCrossSize = item.computeHypotheticalCrossSize(mainSize, hypotheticalMainSize);
                 item.setCrossTargetSize(hypotheticalCrossSize);
+                item.hypotheticalMainSize = hypotheticalMainSize;
+                item.hypotheticalCrossSize = hypotheticalCrossSize;
+                item.line = line;
+                item.position = i;
+                mainSums.set(i, hypotheticalMainSize);
+                if (tracer != null) {
+                    tracer.hypotheticalSize(item, item.index, hypotheticalMainSize, hypotheticalCrossSize);
+                }
                 line.setMinMainSize(line.getMinMainSize() + hypotheticalMainSize);
-                line.adjustCrossSize(horizontal ? item.getHypotheticalMainHeight(mainSize) : item.getHypotheticalMainWidth(mainSize));
-                if (item.getFlexGrow() != FlexItem.FLEX_GROW_DEFAULT) {
-                    line.setGrow(line.getGrow() + item.getFlexGrow());
+                line.adjustCrossSize(hypotheticalCrossSize);
+                if (item.grow != FlexItem.FLEX_GROW_DEFAULT) {
+                    line.setGrow(line.getGrow() + item.grow);
                 }
-                if (item.getFlexShrink() != FlexItem.FLEX_SHRINK_DEFAULT) {
-                    line.setShrink(line.getShrink() + item.getFlexShrink());
+                if (item.shrink != FlexItem.FLEX_SHRINK_DEFAULT) {
+                    line.setShrink(line.getShrink() + item.shrink);
                 }
             }
+            line.hypotheticalCrossSize = line.minCrossSize;
             minMainSize = line.getMinMainSize();
 
             return;
         }
-        else LOG.finest("flex-wrap is not FLEX_WRAP_NOWRAP");
         double minSize = 0;
 
-        for (FlexItem item : items) {
-            LOG.finest("analyze item " + item);
-            double hypotheticalMainSize = (horizontal ? item.getHypotheticalMainWidth(mainSize) : item.getHypotheticalMainHeight(mainSize));
+        for (int i = from; i < items.size(); i++) {
+            FlexItem item = itemAt(i);
+            double hypotheticalMainSize = item.computeHypotheticalMainSize(mainSize);
             item.setMainTargetSize(hypotheticalMainSize);
             if (item.getMainTargetSize() > minMainSize) {
                 minMainSize = item.getMainTargetSize();
             }
-            LOG.finest("hypotheticalMainSize = " + hypotheticalMainSize);
-            double hypotheticalCrossSize = (!horizontal ? item.getHypotheticalMainWidth(mainSize) : item.getHypotheticalMainHeight(mainSize));
+            double hypotheticalCrossSize = item.computeHypotheticalCrossSize(mainSize, hypotheticalMainSize);
             item.setCrossTargetSize(hypotheticalCrossSize);
-            LOG.finest("hypotheticalCrossSize = " + hypotheticalCrossSize);
+            item.hypotheticalMainSize = hypotheticalMainSize;
+            item.hypotheticalCrossSize = hypotheticalCrossSize;
+            item.position = i;
+            mainSums.set(i, hypotheticalMainSize);
+            if (tracer != null) {
+                tracer.hypotheticalSize(item, item.index, hypotheticalMainSize, hypotheticalCrossSize);
+            }
 
             minSize += hypotheticalMainSize;
             if (minSize > mainSize) {
                 if (!line.flexItems.isEmpty()) {
-                    line = new FlexLine();
-                    flexLines.add(line);
+                    line.hypotheticalCrossSize = line.minCrossSize;
+                    line = obtainLine(i);
                     minSize = hypotheticalMainSize;
                 }
             }
-            line.adjustCrossSize(horizontal ? item.getHypotheticalMainHeight(mainSize) : item.getHypotheticalMainWidth(mainSize));
+            line.adjustCrossSize(hypotheticalCrossSize);
             line.addFlexItem(item);
+            item.line = line;
             line.setMinMainSize(minSize);
 
-            if (item.getFlexGrow() != FlexItem.FLEX_GROW_DEFAULT) {
-                line.setGrow(line.getGrow() + item.getFlexGrow());
+            if (item.grow != FlexItem.FLEX_GROW_DEFAULT) {
+                line.setGrow(line.getGrow() + item.grow);
             }
-            if (item.getFlexShrink() != FlexItem.FLEX_SHRINK_DEFAULT) {
-                line.setShrink(line.getShrink() + item.getFlexShrink());
+            if (item.shrink != FlexItem.FLEX_SHRINK_DEFAULT) {
+                line.setShrink(line.getShrink() + item.shrink);
             }
         }
-        if (flexWrap == FlexWrap.WRAP_REVERSE) {
-            Collections.reverse(flexLines);
-        }
+        line.hypotheticalCrossSize = line.minCrossSize;
     }
 
     /**
@@ -622,6 +1841,10 @@ public final class FlexboxLayout {
      * @param flexDirection
      */
     public void setFlexDirection(FlexDirection flexDirection) {
+        if (this.flexDirection != flexDirection) {
+            layoutInvalid = true;
+            intrinsicSizes.clear();
+        }
         this.flexDirection = flexDirection;
     }
 
@@ -642,6 +1865,10 @@ public final class FlexboxLayout {
      * @param flexWrap
      */
     public void setFlexWrap(FlexWrap flexWrap) {
+        if (this.flexWrap != flexWrap) {
+            layoutInvalid = true;
+            intrinsicSizes.clear();
+        }
         this.flexWrap = flexWrap;
     }
 
@@ -662,6 +1889,9 @@ public final class FlexboxLayout {
      * @param justifyContent
      */
     public void setJustifyContent(JustifyContent justifyContent) {
+        if (this.justifyContent != justifyContent) {
+            layoutInvalid = true;
+        }
         this.justifyContent = justifyContent;
     }
 
@@ -682,6 +1912,9 @@ public final class FlexboxLayout {
      * @param alignItems
      */
     public void setAlignItems(AlignItems alignItems) {
+        if (this.alignItems != alignItems) {
+            layoutInvalid = true;
+        }
         this.alignItems = alignItems;
     }
 
@@ -704,9 +1937,19 @@ public final class FlexboxLayout {
      * @param alignContent
      */
     public void setAlignContent(AlignContent alignContent) {
+        if (this.alignContent != alignContent) {
+            layoutInvalid = true;
+        }
         this.alignContent = alignContent;
     }
 
+    /**
+     * @return the number of items added to this layout
+     */
+    public int getItemCount() {
+        return originalItems.size();
+    }
+
     /**
      * Add a FlexItem to be layed out.
      *
@@ -714,35 +1957,140 @@ public final class FlexboxLayout {
      */
     public void add(FlexItem flexItem) {
         originalItems.add(flexItem);
+        flexItem.owner = this;
+        flexItem.index = originalItems.size() - 1;
+        if (!flexItem.notifiesChanges()) {
+            untrackedItems++;
+        }
+        layoutInvalid = true;
+        orderInvalid = true;
+        lineIndexValid = false;
+        intrinsicSizes.clear();
     }
 
     /**
      * clears all FlexItems from the layout.
      */
     public void clearItems() {
+        for (int i = 0; i < originalItems.size(); i++) {
+            FlexItem item = originalItems.get(i);
+            if (item.owner == this) {
+                item.owner = null;
+                item.line = null;
+            }
+        }
         originalItems.clear();
+        clearChangedItems();
+        for (int i = 0; i < dirtyItems.size(); i++) {
+            FlexItem item = dirtyItems.get(i);
+            item.changes = 0;
+        }
+        dirtyItems.clear();
+        untrackedItems = 0;
+        layoutInvalid = true;
+        orderInvalid = true;
+        lineIndexValid = false;
+        intrinsicSizes.clear();
     }
 
     private void applyLayout() {
         boolean horizontal = flexDirection == FlexDirection.ROW || flexDirection == FlexDirection.ROW_REVERSE;
-        double crossStartPos = 0;
-        for (FlexLine flexLine : flexLines) {
-            crossStartPos = flexLine.crossStartPos;
-            List<FlexItem> flexItems = flexLine.getFlexItems();
-            for (FlexItem flexItem : flexItems) {
-                double mainMargin = flexItem.getMainMarginStart(horizontal) + flexItem.getMainMarginEnd(horizontal);
-                double crossMargin = flexItem.getCrossMarginStart(horizontal) + flexItem.getCrossMarginEnd(horizontal);
-                flexItem.setBounds(new Bounds(horizontal ? flexItem.mainStartPos : crossStartPos + flexItem.crossStartPos,
-                        horizontal ? crossStartPos + flexItem.crossStartPos : flexItem.mainStartPos,
-                        horizontal ? flexItem.mainTargetSize - mainMargin : flexItem.crossTargetSize - crossMargin,
-                        horizontal ? flexItem.crossTargetSize - crossMargin : flexItem.mainTargetSize - mainMargin));
+        for (int l = 0; l < flexLines.size(); l++) {
+            FlexLine flexLine = flexLines.get(l);
+            applyLayout(flexLine, horizontal);
+        }
+    }
 
+    private void applyLayout(FlexLine flexLine, boolean horizontal) {
+        double crossStartPos = flexLine.crossStartPos;
+        List<FlexItem> flexItems = flexLine.getFlexItems();
+        for (int i = 0; i < flexItems.size(); i++) {
+            FlexItem flexItem = flexItems.get(i);
+            double mainMargin = flexItem.mainMarginStart + flexItem.mainMarginEnd;
+            double crossMargin = flexItem.crossMarginStart + flexItem.crossMarginEnd;
+            flexItem.setBounds(horizontal ? flexItem.mainStartPos : crossStartPos + flexItem.crossStartPos,
+                    horizontal ? crossStartPos + flexItem.crossStartPos : flexItem.mainStartPos,
+                    horizontal ? flexItem.mainTargetSize - mainMargin : flexItem.crossTargetSize - crossMargin,
+                    horizontal ? flexItem.crossTargetSize - crossMargin : flexItem.mainTargetSize - mainMargin);
+            if (tracer != null) {
+                traceBounds(flexItem);
             }
         }
+        updateExtents(flexLine, horizontal);
+    }
+
+    /**
+     * Collects the extents of the bounds of the items of a line for the
+     * spatial queries. The bounds are read back, as they may differ from the
+     * computed ones by the bounds epsilon or be adjusted by the item.
+     */
+    private void updateExtents(FlexLine flexLine, boolean horizontal) {
+        List<FlexItem> flexItems = flexLine.flexItems;
+        flexLine.clearExtents();
+        for (int i = 0; i < flexItems.size(); i++) {
+            FlexItem flexItem = flexItems.get(i);
+            Bounds bounds = flexItem.bounds;
+            double mainStart = horizontal ? bounds.getX() : bounds.getY();
+            double mainEnd = mainStart + (horizontal ? bounds.getW() : bounds.getH());
+            double crossStart = horizontal ? bounds.getY() : bounds.getX();
+            double crossEnd = crossStart + (horizontal ? bounds.getH() : bounds.getW());
+            flexLine.mainMin = Math.min(flexLine.mainMin, mainStart);
+            flexLine.mainMax = Math.max(flexLine.mainMax, mainEnd);
+            flexLine.crossMin = Math.min(flexLine.crossMin, crossStart);
+            flexLine.crossMax = Math.max(flexLine.crossMax, crossEnd);
+            flexItem.mainReach = flexLine.mainMax;
+        }
+        double mainFloor = Double.POSITIVE_INFINITY;
+        for (int i = flexItems.size() - 1; i >= 0; i--) {
+            FlexItem flexItem = flexItems.get(i);
+            mainFloor = Math.min(mainFloor, horizontal ? flexItem.bounds.getX() : flexItem.bounds.getY());
+            flexItem.mainFloor = mainFloor;
+        }
+        lineExtentsValid = false;
+    }
+
+    /**
+     * Computes the cross reach and floor of the lines, so the lines an item
+     * at a cross position can be on are found by a binary search, even if
+     * the items reach out of their lines.
+     */
+    private void updateLineExtents() {
+        if (lineExtentsValid) {
+            return;
+        }
+        double crossReach = Double.NEGATIVE_INFINITY;
+        for (int l = 0; l < flexLines.size(); l++) {
+            FlexLine line = flexLines.get(l);
+            crossReach = Math.max(crossReach, line.crossMax);
+            line.crossReach = crossReach;
+        }
+        double crossFloor = Double.POSITIVE_INFINITY;
+        for (int l = flexLines.size() - 1; l >= 0; l--) {
+            FlexLine line = flexLines.get(l);
+            crossFloor = Math.min(crossFloor, line.crossMin);
+            line.crossFloor = crossFloor;
+        }
+        lineExtentsValid = true;
+    }
+
+    /**
+     * Reads the properties of all items for this pass. Every getter of an
+     * item is called once per pass, all phases use the values read here.
+     */
+    void readInputs() {
+        readInputs(originalItems);
+    }
+
+    private void readInputs(List<FlexItem> items) {
+        boolean horizontal = isHorizontal();
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).readInputs(horizontal);
+        }
     }
 
     private void resetChildren() {
-        for (FlexItem item : originalItems) {
+        for (int i = 0; i < originalItems.size(); i++) {
+            FlexItem item = originalItems.get(i);
             item.setCrossStartPos(-1);
 
             item.setCrossTargetSize(-1);
@@ -758,6 +2106,38 @@ public final class FlexboxLayout {
         private double minMainSize = 0, minCrossSize = 0;
         private float shrink = 0, grow = 0;
         private double crossStartPos = 0;
+        // state for partial layout passes
+        private int firstItem;
+        private int index;
+        private double hypotheticalCrossSize;
+        private double previousCrossStartPos, previousCrossSize;
+        private boolean dirty = true;
+        private boolean laidOut;
+        // the extents of the bounds of the items, which may reach out of the
+        // line, e.g. with baseline alignment or negative margins
+        private double mainMin, mainMax, crossMin, crossMax;
+        // the largest cross end of this and the lines before, the smallest
+        // cross start of this and the lines after
+        private double crossReach, crossFloor;
+
+        private void reset() {
+            minMainSize = 0;
+            minCrossSize = 0;
+            shrink = 0;
+            grow = 0;
+            crossStartPos = 0;
+            hypotheticalCrossSize = 0;
+            previousCrossStartPos = 0;
+            previousCrossSize = 0;
+            dirty = true;
+            laidOut = false;
+            clearExtents();
+        }
+
+        private void clearExtents() {
+            mainMin = crossMin = Double.POSITIVE_INFINITY;
+            mainMax = crossMax = Double.NEGATIVE_INFINITY;
+        }
 
         double getCrossStartPos() {
             return crossStartPos;
@@ -958,13 +2338,21 @@ public final class FlexboxLayout {
 
         }
 
+        @Override
+        protected boolean notifiesChanges() {
+            return true;
+        }
+
         @Override
         public double getWidth() {
             return width;
         }
 
         public void setWidth(double width) {
-            this.width = width;
+            if (this.width != width) {
+                this.width = width;
+                invalidate(Change.SIZE);
+            }
         }
 
         @Override
@@ -973,7 +2361,10 @@ public final class FlexboxLayout {
         }
 
         public void setHeight(double height) {
-            this.height = height;
+            if (this.height != height) {
+                this.height = height;
+                invalidate(Change.SIZE);
+            }
         }
 
         @Override
@@ -982,7 +2373,10 @@ public final class FlexboxLayout {
         }
 
         public void setMinWidth(double minWidth) {
-            this.minWidth = minWidth;
+            if (this.minWidth != minWidth) {
+                this.minWidth = minWidth;
+                invalidate(Change.SIZE);
+            }
         }
 
         @Override
@@ -991,7 +2385,10 @@ public final class FlexboxLayout {
         }
 
         public void setMinHeight(double minHeight) {
-            this.minHeight = minHeight;
+            if (this.minHeight != minHeight) {
+                this.minHeight = minHeight;
+                invalidate(Change.SIZE);
+            }
         }
 
         @Override
@@ -1000,7 +2397,10 @@ public final class FlexboxLayout {
         }
 
         public void setMaxWidth(double maxWidth) {
-            this.maxWidth = maxWidth;
+            if (this.maxWidth != maxWidth) {
+                this.maxWidth = maxWidth;
+                invalidate(Change.SIZE);
+            }
         }
 
         @Override
@@ -1009,7 +2409,10 @@ public final class FlexboxLayout {
         }
 
         public void setMaxHeight(double maxHeight) {
-            this.maxHeight = maxHeight;
+            if (this.maxHeight != maxHeight) {
+                this.maxHeight = maxHeight;
+                invalidate(Change.SIZE);
+            }
         }
 
         @Override
@@ -1018,7 +2421,10 @@ public final class FlexboxLayout {
         }
 
         public void setMarginLeft(double marginLeft) {
-            this.marginLeft = marginLeft;
+            if (this.marginLeft != marginLeft) {
+                this.marginLeft = marginLeft;
+                invalidate(Change.SIZE);
+            }
         }
 
         @Override
@@ -1027,7 +2433,10 @@ public final class FlexboxLayout {
         }
 
         public void setMarginTop(double marginTop) {
-            this.marginTop = marginTop;
+            if (this.marginTop != marginTop) {
+                this.marginTop = marginTop;
+                invalidate(Change.SIZE);
+            }
         }
 
         @Override
@@ -1036,7 +2445,10 @@ public final class FlexboxLayout {
         }
 
         public void setMarginRight(double marginRight) {
-            this.marginRight = marginRight;
+            if (this.marginRight != marginRight) {
+                this.marginRight = marginRight;
+                invalidate(Change.SIZE);
+            }
         }
 
         @Override
@@ -1045,7 +2457,10 @@ public final class FlexboxLayout {
         }
 
         public void setMarginBottom(double marginBottom) {
-            this.marginBottom = marginBottom;
+            if (this.marginBottom != marginBottom) {
+                this.marginBottom = marginBottom;
+                invalidate(Change.SIZE);
+            }
         }
 
     }
@@ -1066,18 +2481,73 @@ public final class FlexboxLayout {
         public static final int FLEX_BASIS_PERCENT_DEFAULT = -1;
         public static final AlignSelf FLEX_ALIGN_SELF_DEFAULT = AlignSelf.AUTO;
 
+        /**
+         * The kinds of changes an item can report to its layout via
+         * {@link #invalidate(Change)}.
+         */
+        public enum Change {
+            /**
+             * width, height, min and max sizes, margins or flex basis changed.
+             * The lines starting with the line of this item need to be broken
+             * again.
+             */
+            SIZE,
+            /**
+             * flex grow or flex shrink changed. Only the line of this item
+             * needs to distribute its space again.
+             */
+            FLEX,
+            /**
+             * align self changed. Only the line of this item needs to be
+             * aligned again.
+             */
+            ALIGN,
+            /**
+             * order changed. All items need to be sorted again.
+             */
+            ORDER
+        }
+
         Bounds bounds;
+        FlexboxLayout owner;
+        int changes;
+        int index;
+        // position in the order the items are placed along the main axis
+        int position;
+        FlexLine line;
+        // the largest main end of this and the items before on the line, the
+        // smallest main start of this and the items after
+        double mainReach, mainFloor;
+        boolean frozen;
+        double hypotheticalMainSize, hypotheticalCrossSize;
+        // the properties read by the current pass, in main and cross direction
+        double explicitMain, explicitCross, minMain, maxMain, minCross, maxCross;
+        double mainMarginStart, mainMarginEnd, crossMarginStart, crossMarginEnd;
+        float grow, shrink, basisPercent;
+        int sortOrder;
+        AlignSelf alignSelf;
+        boolean horizontal;
+        private MeasureFunction measureFunction;
+        private MeasureCache measureCache;
+        // changed whenever the measured content changes, for the layout cache
+        int measureVersion;
         protected double mainTargetSize = 0;
         protected double crossTargetSize = 0;
         protected double mainStartPos = 0;
         protected double crossStartPos = 0;
 
+        private static boolean isClose(double current, double value, double epsilon) {
+            return Double.compare(current, value) == 0 || Math.abs(current - value) <= epsilon;
+        }
+
         /**
          * The actual Bounds set by the FlexBoxLayout in the containers
          * Coordinate System. If you want to reuse this algorithm for your UI
          * Technology, you can either apply the layout in setBounds (e.g. by
          * setting the bounds on a wrapped widget), or call getBounds after the
-         * layout has been performed and apply it.
+         * layout has been performed and apply it. The same Bounds instance is
+         * updated by every layout pass, copy the values if you need to keep
+         * them.
          *
          * @return the bounds of this Item according to the FlexBoxlayout
          */
@@ -1085,11 +2555,113 @@ public final class FlexboxLayout {
             return this.bounds;
         }
 
-        private void setBounds(Bounds bounds) {
-            this.bounds = bounds;
+        void setBounds(double x, double y, double w, double h) {
+            if (bounds != null && owner != null && isClose(bounds.getX(), x, owner.boundsEpsilon)
+                    && isClose(bounds.getY(), y, owner.boundsEpsilon) && isClose(bounds.getW(), w, owner.boundsEpsilon)
+                    && isClose(bounds.getH(), h, owner.boundsEpsilon)) {
+                // unchanged, the item isn't touched
+                return;
+            }
+            if (owner != null) {
+                owner.boundsChanging(this, x, y, w, h);
+            }
+            if (bounds == null) {
+                bounds = new Bounds(x, y, w, h);
+            } else {
+                bounds.setX(x);
+                bounds.setY(y);
+                bounds.setW(w);
+                bounds.setH(h);
+            }
             adjustBounds(bounds);
         }
 
+        /**
+         * Tells the layout, that a property of this item has changed, so only
+         * the affected parts are laid out in the next pass. The layout skips
+         * the whole pass if no item changed and the container has the same
+         * size.
+         *
+         * @param change what has changed
+         */
+        public final void invalidate(Change change) {
+            if (owner != null) {
+                owner.itemChanged(this, change);
+            }
+        }
+
+        final boolean hasChanged(Change change) {
+            return (changes & (1 << change.ordinal())) != 0;
+        }
+
+        /**
+         * Override this and return true, if your item calls
+         * {@link #invalidate(Change)} whenever one of its properties changes.
+         * As long as a layout contains items that don't notify it, every pass
+         * is a complete layout pass.
+         *
+         * @return true if this item reports its changes
+         */
+        protected boolean notifiesChanges() {
+            return false;
+        }
+
+        /**
+         * Installs a function measuring the content of this item, for a
+         * width or height that depends on the space available, see
+         * {@link MeasureFunction}.
+         *
+         * @param measureFunction the function or null to use the width and
+         * height of this item only
+         */
+        public final void setMeasureFunction(MeasureFunction measureFunction) {
+            this.measureFunction = measureFunction;
+            if (measureFunction != null && measureCache == null) {
+                measureCache = new MeasureCache();
+            }
+            // also when it is removed, the size isn't measured anymore
+            measureVersion++;
+            invalidateMeasure();
+        }
+
+        public final MeasureFunction getMeasureFunction() {
+            return measureFunction;
+        }
+
+        /**
+         * Drops the cached measurements of this item and tells the layout its
+         * size changed. Call this when the content of the item changes.
+         */
+        public final void invalidateMeasure() {
+            clearMeasurements();
+            invalidate(Change.SIZE);
+        }
+
+        final void clearMeasurements() {
+            // only measured content changes, other items still match the
+            // entries of the layout cache
+            if (measureFunction != null) {
+                measureVersion++;
+                measureCache.clear();
+            }
+        }
+
+        /**
+         * Measures the content with the cache of this item, see
+         * {@link #measuredWidth()} and {@link #measuredHeight()}.
+         */
+        final void measure(double width, MeasureFunction.Mode widthMode, double height, MeasureFunction.Mode heightMode) {
+            measureCache.measure(this, measureFunction, width, widthMode, height, heightMode);
+        }
+
+        final double measuredWidth() {
+            return measureCache.getWidth();
+        }
+
+        final double measuredHeight() {
+            return measureCache.getHeight();
+        }
+
         public boolean isSelfAligned() {
             return getFlexAlignSelf() != AlignSelf.AUTO;
         }
@@ -1098,7 +2670,8 @@ public final class FlexboxLayout {
          * This method is called by the Layout as the final step. You can
          * override it savely to directly apply the Bounds to your widgets, in
          * case you can apply the bounds directly. (e.g. JavaFX and RoboVM could
-         * do that).
+         * do that). It is only called when the bounds changed by more than
+         * the {@link FlexboxLayout#setBoundsEpsilon bounds epsilon}.
          *
          * @param bounds the bounds of this Item according to the FlexBoxlayout
          */
@@ -1185,18 +2758,73 @@ public final class FlexboxLayout {
             this.crossTargetSize = crossTargetSize;
         }
 
-        private double getHypotheticalMainWidth(double mainSize) {
-            double flexBasisPercentWidth = (mainSize * getFlexBasisPercent()) / 100;
-            flexBasisPercentWidth = Math.min(flexBasisPercentWidth, getMaxWidth());
-            double margin = getMarginLeft() + getMarginRight();
-            return getWidth() >= 0 ? margin + getWidth() : margin + Math.max(getMinWidth(), flexBasisPercentWidth);
+        final void readInputs(boolean horizontal) {
+            double width = getWidth(), height = getHeight();
+            double minWidth = getMinWidth(), minHeight = getMinHeight();
+            double maxWidth = getMaxWidth(), maxHeight = getMaxHeight();
+            double marginLeft = getMarginLeft(), marginTop = getMarginTop();
+            double marginRight = getMarginRight(), marginBottom = getMarginBottom();
+            explicitMain = horizontal ? width : height;
+            explicitCross = horizontal ? height : width;
+            minMain = horizontal ? minWidth : minHeight;
+            minCross = horizontal ? minHeight : minWidth;
+            maxMain = horizontal ? maxWidth : maxHeight;
+            maxCross = horizontal ? maxHeight : maxWidth;
+            mainMarginStart = horizontal ? marginLeft : marginTop;
+            mainMarginEnd = horizontal ? marginRight : marginBottom;
+            crossMarginStart = horizontal ? marginTop : marginLeft;
+            crossMarginEnd = horizontal ? marginBottom : marginRight;
+            grow = getFlexGrow();
+            shrink = getFlexShrink();
+            basisPercent = getFlexBasisPercent();
+            sortOrder = getOrder();
+            alignSelf = getFlexAlignSelf();
+            this.horizontal = horizontal;
+        }
+
+        private void measureAlongAxes(double main, MeasureFunction.Mode mainMode, double cross, MeasureFunction.Mode crossMode) {
+            if (horizontal) {
+                measure(main, mainMode, cross, crossMode);
+            } else {
+                measure(cross, crossMode, main, mainMode);
+            }
         }
 
-        private double getHypotheticalMainHeight(double mainSize) {
-            double flexBasisPercentHeight = (mainSize * getFlexBasisPercent()) / 100;
-            flexBasisPercentHeight = Math.min(flexBasisPercentHeight, getMaxHeight());
-            double margin = getMarginTop() + getMarginBottom();
-            return getHeight() >= 0 ? margin + getHeight() : margin + Math.max(getMinHeight(), flexBasisPercentHeight);
+        final double computeHypotheticalMainSize(double mainSize) {
+            if (explicitMain < 0 && basisPercent < 0 && measureFunction != null) {
+                double margin = mainMarginStart + mainMarginEnd;
+                measureAlongAxes(Math.max(0, mainSize - margin),
+                        mainSize == Double.POSITIVE_INFINITY ? MeasureFunction.Mode.UNDEFINED : MeasureFunction.Mode.AT_MOST,
+                        explicitCross, explicitCross >= 0 ? MeasureFunction.Mode.EXACTLY : MeasureFunction.Mode.UNDEFINED);
+                double content = horizontal ? measuredWidth() : measuredHeight();
+                return margin + Math.max(minMain, Math.min(content, maxMain));
+            }
+            double flexBasisPercentSize = Math.min((mainSize * basisPercent) / 100, maxMain);
+            double margin = mainMarginStart + mainMarginEnd;
+            return explicitMain >= 0 ? margin + explicitMain : margin + Math.max(minMain, flexBasisPercentSize);
+        }
+
+        /**
+         * @return true if the hypothetical sizes computed from the inputs
+         * read last change with the main size of the container
+         */
+        final boolean dependsOnMainSize() {
+            return explicitMain < 0 && (basisPercent >= 0 || measureFunction != null)
+                    || explicitCross < 0 && basisPercent >= 0;
+        }
+
+        // the basis percent is applied to the cross size as well, measured
+        // content gets the hypothetical main size
+        final double computeHypotheticalCrossSize(double mainSize, double hypotheticalMainSize) {
+            if (explicitCross < 0 && measureFunction != null) {
+                measureAlongAxes(Math.max(0, hypotheticalMainSize - mainMarginStart - mainMarginEnd), MeasureFunction.Mode.EXACTLY,
+                        Double.NaN, MeasureFunction.Mode.UNDEFINED);
+                double content = horizontal ? measuredHeight() : measuredWidth();
+                return crossMarginStart + crossMarginEnd + Math.max(minCross, Math.min(content, maxCross));
+            }
+            double flexBasisPercentSize = Math.min((mainSize * basisPercent) / 100, maxCross);
+            double margin = crossMarginStart + crossMarginEnd;
+            return explicitCross >= 0 ? margin + explicitCross : margin + Math.max(minCross, flexBasisPercentSize);
         }
 
     }
@@ -1224,6 +2852,7 @@ public final class FlexboxLayout {
         }
 
         public final void setWrapBefore(boolean wrapBefore) {
+            // not read by the algorithm, so no pass is needed
             this.wrapBefore = wrapBefore;
         }
 
@@ -1233,7 +2862,10 @@ public final class FlexboxLayout {
         }
 
         public final void setFlexAlignSelf(AlignSelf alignSelf) {
-            this.flexAlignSelf = alignSelf;
+            if (this.flexAlignSelf != alignSelf) {
+                this.flexAlignSelf = alignSelf;
+                invalidate(Change.ALIGN);
+            }
         }
 
         @Override
@@ -1242,7 +2874,10 @@ public final class FlexboxLayout {
         }
 
         public final void setFlexGrow(float flexGrow) {
-            this.flexGrow = flexGrow;
+            if (this.flexGrow != flexGrow) {
+                this.flexGrow = flexGrow;
+                invalidate(Change.FLEX);
+            }
         }
 
         @Override
@@ -1251,7 +2886,10 @@ public final class FlexboxLayout {
         }
 
         public final void setFlexShrink(float flexShrink) {
-            this.flexShrink = flexShrink;
+            if (this.flexShrink != flexShrink) {
+                this.flexShrink = flexShrink;
+                invalidate(Change.FLEX);
+            }
         }
 
         @Override
@@ -1260,7 +2898,10 @@ public final class FlexboxLayout {
         }
 
         public final void setFlexBasisPercent(float flexBasisPercent) {
-            this.flexBasisPercent = flexBasisPercent;
+            if (this.flexBasisPercent != flexBasisPercent) {
+                this.flexBasisPercent = flexBasisPercent;
+                invalidate(Change.SIZE);
+            }
         }
 
         @Override
@@ -1269,7 +2910,10 @@ public final class FlexboxLayout {
         }
 
         public final void setOrder(int order) {
-            this.order = order;
+            if (this.order != order) {
+                this.order = order;
+                invalidate(Change.ORDER);
+            }
         }
 
     }
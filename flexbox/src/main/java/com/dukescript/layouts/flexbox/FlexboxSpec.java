@@ -0,0 +1,166 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import java.util.Objects;
+
+/**
+ * The settings of a flex container as an immutable value, for
+ * {@link StatelessLayout}. A spec can be shared by any number of threads,
+ * e.g. as the template of many containers laid out by render workers. The
+ * defaults are the same as those of a new {@link FlexboxLayout}.
+ *
+ * @author antonepple
+ */
+public final class FlexboxSpec {
+
+    private final FlexDirection flexDirection;
+    private final FlexWrap flexWrap;
+    private final JustifyContent justifyContent;
+    private final AlignItems alignItems;
+    private final AlignContent alignContent;
+
+    private FlexboxSpec(FlexDirection flexDirection, FlexWrap flexWrap, JustifyContent justifyContent,
+            AlignItems alignItems, AlignContent alignContent) {
+        this.flexDirection = flexDirection;
+        this.flexWrap = flexWrap;
+        this.justifyContent = justifyContent;
+        this.alignItems = alignItems;
+        this.alignContent = alignContent;
+    }
+
+    public static FlexboxSpecBuilder builder() {
+        return new FlexboxSpecBuilder();
+    }
+
+    /**
+     * @param layout a layout
+     * @return a spec with the current settings of the layout
+     */
+    public static FlexboxSpec of(FlexboxLayout layout) {
+        return new FlexboxSpec(layout.getFlexDirection(), layout.getFlexWrap(), layout.getJustifyContent(),
+                layout.getAlignItems(), layout.getAlignContent());
+    }
+
+    public FlexDirection getFlexDirection() {
+        return flexDirection;
+    }
+
+    public FlexWrap getFlexWrap() {
+        return flexWrap;
+    }
+
+    public JustifyContent getJustifyContent() {
+        return justifyContent;
+    }
+
+    public AlignItems getAlignItems() {
+        return alignItems;
+    }
+
+    public AlignContent getAlignContent() {
+        return alignContent;
+    }
+
+    /**
+     * @return a builder initialized with the settings of this spec
+     */
+    public FlexboxSpecBuilder toBuilder() {
+        return builder().flexDirection(flexDirection).flexWrap(flexWrap).justifyContent(justifyContent)
+                .alignItems(alignItems).alignContent(alignContent);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof FlexboxSpec)) {
+            return false;
+        }
+        FlexboxSpec other = (FlexboxSpec) obj;
+        return flexDirection == other.flexDirection && flexWrap == other.flexWrap
+                && justifyContent == other.justifyContent && alignItems == other.alignItems
+                && alignContent == other.alignContent;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(flexDirection, flexWrap, justifyContent, alignItems, alignContent);
+    }
+
+    @Override
+    public String toString() {
+        return "FlexboxSpec{" + flexDirection + ", " + flexWrap + ", " + justifyContent + ", " + alignItems + ", " + alignContent + '}';
+    }
+
+    public static final class FlexboxSpecBuilder {
+
+        private FlexDirection flexDirection;
+        private FlexWrap flexWrap;
+        private JustifyContent justifyContent = JustifyContent.FLEX_START;
+        private AlignItems alignItems = AlignItems.STRETCH;
+        private AlignContent alignContent = AlignContent.FLEX_START;
+
+        private FlexboxSpecBuilder() {
+        }
+
+        public FlexboxSpecBuilder flexDirection(final FlexDirection value) {
+            this.flexDirection = value;
+            return this;
+        }
+
+        public FlexboxSpecBuilder flexWrap(final FlexWrap value) {
+            this.flexWrap = value;
+            return this;
+        }
+
+        public FlexboxSpecBuilder justifyContent(final JustifyContent value) {
+            this.justifyContent = value;
+            return this;
+        }
+
+        public FlexboxSpecBuilder alignItems(final AlignItems value) {
+            this.alignItems = value;
+            return this;
+        }
+
+        public FlexboxSpecBuilder alignContent(final AlignContent value) {
+            this.alignContent = value;
+            return this;
+        }
+
+        public FlexboxSpec build() {
+            return new FlexboxSpec(flexDirection, flexWrap, justifyContent, alignItems, alignContent);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import java.util.Arrays;
+
+/**
+ * Distributes the free space of a line between its growing items. By default
+ * the space is handed out in rounds, and a round over the whole line is
+ * repeated whenever an item is clamped to its maximum size, exactly like the
+ * loop this class replaces. That is quadratic when the items clamp one after
+ * another.
+ * <p>
+ * When {@link #setSorted(boolean) sorted}, every item is ordered once by the
+ * grow unit at which it reaches its maximum size. The rounds are then
+ * replayed by advancing over this order, so each round only looks at the
+ * items clamped in it. The items clamped and the grow units of the rounds
+ * are the same as with rounds. The growth of the unclamped items is applied
+ * once per pass instead of once per round, so their sizes and the main size
+ * of the line may differ in the last digits.
+ * <p>
+ * Instances are reused between passes and don't allocate once the buffers
+ * are large enough.
+ *
+ * @author antonepple
+ */
+final class GrowDistribution {
+
+    private double[] sizes = new double[0], startSizes = new double[0], maxSizes = new double[0], thresholds = new double[0];
+    private float[] grows = new float[0];
+    private boolean[] clamped = new boolean[0];
+    private int[] order = new int[0], scratch = new int[0];
+    private int count;
+    private double growUnit;
+    private boolean sorted;
+
+    /**
+     * @param sorted true to replay the rounds over the items ordered by the
+     * grow unit at which they are clamped
+     */
+    void setSorted(boolean sorted) {
+        this.sorted = sorted;
+    }
+
+    boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * Removes all items.
+     */
+    void clear() {
+        count = 0;
+    }
+
+    /**
+     * Adds a growing item.
+     *
+     * @param size current main size of the item
+     * @param grow flex grow of the item, must be greater than 0
+     * @param maxSize maximum main size of the item
+     */
+    void add(double size, float grow, double maxSize) {
+        if (count == sizes.length) {
+            int capacity = Math.max(16, count * 2);
+            sizes = Arrays.copyOf(sizes, capacity);
+            startSizes = Arrays.copyOf(startSizes, capacity);
+            maxSizes = Arrays.copyOf(maxSizes, capacity);
+            thresholds = Arrays.copyOf(thresholds, capacity);
+            grows = Arrays.copyOf(grows, capacity);
+            clamped = Arrays.copyOf(clamped, capacity);
+            order = new int[capacity];
+            scratch = new int[capacity];
+        }
+        sizes[count] = size;
+        startSizes[count] = size;
+        grows[count] = grow;
+        maxSizes[count] = maxSize;
+        clamped[count] = false;
+        count++;
+    }
+
+    /**
+     * Distributes the free space between the added items.
+     *
+     * @param totalGrow sum of the flex grow of the line
+     * @param growUnit space per grow in the first round
+     * @param lineSize main size of the line before
+     * @return main size of the line after
+     */
+    double distribute(float totalGrow, double growUnit, double lineSize) {
+        if (!sorted) {
+            return distributeInRounds(totalGrow, growUnit, lineSize);
+        }
+        distributeSorted(totalGrow, growUnit);
+        for (int i = 0; i < count; i++) {
+            lineSize += getSize(i) - startSizes[i];
+        }
+        return lineSize;
+    }
+
+    /**
+     * The growth is added to the sizes and to the line round by round, in
+     * the order of the line.
+     */
+    private double distributeInRounds(float totalGrow, double growUnit, double lineSize) {
+        while (totalGrow > 0 && growUnit > 0) {
+            double rest = 0;
+            for (int i = 0; i < count; i++) {
+                if (clamped[i]) {
+                    continue;
+                }
+                double grownSize = grows[i] * growUnit + sizes[i];
+                double size = grownSize;
+                if (grownSize > maxSizes[i]) {
+                    rest += grownSize - maxSizes[i];
+                    size = maxSizes[i];
+                    clamped[i] = true;
+                    totalGrow -= grows[i];
+                }
+                lineSize += size - sizes[i];
+                // clamped items keep the size they would have had for getUnclampedSize
+                sizes[i] = grownSize;
+            }
+            if (rest > 0) {
+                growUnit = totalGrow <= 0 ? 0 : rest / totalGrow;
+            } else {
+                break;
+            }
+        }
+        // the sizes are final
+        this.growUnit = 0;
+        return lineSize;
+    }
+
+    private void distributeSorted(float totalGrow, double growUnit) {
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            thresholds[i] = (maxSizes[i] - sizes[i]) / grows[i];
+        }
+        sortByThreshold();
+        double unit = 0;
+        int next = 0;
+        while (totalGrow > 0 && growUnit > 0) {
+            unit += growUnit;
+            int from = next;
+            while (next < count && grows[order[next]] * unit + sizes[order[next]] > maxSizes[order[next]]) {
+                next++;
+            }
+            if (next == from) {
+                break;
+            }
+            // rest and totalGrow are summed up in the order of the line
+            Arrays.sort(order, from, next);
+            double rest = 0;
+            for (int j = from; j < next; j++) {
+                int i = order[j];
+                double grownSize = grows[i] * unit + sizes[i];
+                rest += grownSize - maxSizes[i];
+                // keep the size it would have had for getUnclampedSize
+                sizes[i] = grownSize;
+                totalGrow -= grows[i];
+                clamped[i] = true;
+            }
+            growUnit = totalGrow <= 0 ? 0 : rest / totalGrow;
+        }
+        this.growUnit = unit;
+    }
+
+    /**
+     * @param i index of the item in the order it was added
+     * @return the main size of the item after {@link #distribute}
+     */
+    double getSize(int i) {
+        return clamped[i] ? maxSizes[i] : grows[i] * growUnit + sizes[i];
+    }
+
+    /**
+     * @param i index of the item in the order it was added
+     * @return true if the item has been clamped to its maximum size
+     */
+    boolean isClamped(int i) {
+        return clamped[i];
+    }
+
+    /**
+     * @param i index of the item in the order it was added
+     * @return the main size of the item without clamping it
+     */
+    double getUnclampedSize(int i) {
+        return clamped[i] ? sizes[i] : getSize(i);
+    }
+
+    /**
+     * Stable bottom up merge sort of the item indices by threshold.
+     */
+    private void sortByThreshold() {
+        int[] from = order, to = scratch;
+        for (int width = 1; width < count; width *= 2) {
+            for (int low = 0; low < count; low += 2 * width) {
+                int mid = Math.min(low + width, count), high = Math.min(low + 2 * width, count);
+                int a = low, b = mid, k = low;
+                while (a < mid && b < high) {
+                    to[k++] = thresholds[from[b]] < thresholds[from[a]] ? from[b++] : from[a++];
+                }
+                while (a < mid) {
+                    to[k++] = from[a++];
+                }
+                while (b < high) {
+                    to[k++] = from[b++];
+                }
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        order = from;
+        scratch = to;
+    }
+}
@@ -0,0 +1,91 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+
+/**
+ * The intrinsic sizes of a layout computed since its items or settings last
+ * changed: the min-content and max-content main sizes and the cross sizes
+ * of the lines for the last few main sizes asked for. Missing values are
+ * NaN. The cross sizes are replaced round robin, so the cache never grows.
+ *
+ * @author antonepple
+ */
+final class IntrinsicSizes {
+
+    static final int SIZE = 8;
+
+    private final double[] mainSizes = new double[SIZE], crossSizes = new double[SIZE];
+    private int count, next;
+    private double minContent = Double.NaN, maxContent = Double.NaN;
+
+    /**
+     * @param mainSize the main size the lines were broken at
+     * @return the cross size of the lines or NaN
+     */
+    double getCrossSize(double mainSize) {
+        for (int i = 0; i < count; i++) {
+            if (mainSizes[i] == mainSize) {
+                return crossSizes[i];
+            }
+        }
+        return Double.NaN;
+    }
+
+    void putCrossSize(double mainSize, double crossSize) {
+        mainSizes[next] = mainSize;
+        crossSizes[next] = crossSize;
+        next = (next + 1) % SIZE;
+        count = Math.max(count, next == 0 ? SIZE : next);
+    }
+
+    double getMinContent() {
+        return minContent;
+    }
+
+    void setMinContent(double minContent) {
+        this.minContent = minContent;
+    }
+
+    double getMaxContent() {
+        return maxContent;
+    }
+
+    void setMaxContent(double maxContent) {
+        this.maxContent = maxContent;
+    }
+
+    void clear() {
+        count = 0;
+        next = 0;
+        minContent = Double.NaN;
+        maxContent = Double.NaN;
+    }
+}
@@ -0,0 +1,214 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded cache of complete layout results. The key consists of the container
+ * size, the container settings and a fingerprint of the inputs of all items.
+ * The least recently used result is evicted first.
+ *
+ * @author antonepple
+ */
+final class LayoutCache {
+
+    private static final int INPUTS_PER_ITEM = 16;
+
+    private final Map<Key, Result> results = new LinkedHashMap<Key, Result>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+            return size() > maxSize;
+        }
+    };
+    private int maxSize;
+    private long hits, misses;
+    private double[] inputs = new double[0];
+    private final Key probe = new Key();
+
+    LayoutCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        while (results.size() > maxSize) {
+            results.remove(results.keySet().iterator().next());
+        }
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Looks up the result for the inputs the layout has read from the items
+     * for this pass. The inputs are kept for a following {@link #store}.
+     *
+     * @return the cached result or null
+     */
+    Result lookup(int settings, List<FlexItem> items, double mainSize, double crossSize) {
+        int n = items.size() * INPUTS_PER_ITEM;
+        if (inputs.length < n) {
+            inputs = new double[n];
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0, j = 0; i < items.size(); i++) {
+            FlexItem item = items.get(i);
+            inputs[j++] = item.explicitMain;
+            inputs[j++] = item.explicitCross;
+            inputs[j++] = item.minMain;
+            inputs[j++] = item.minCross;
+            inputs[j++] = item.maxMain;
+            inputs[j++] = item.maxCross;
+            inputs[j++] = item.mainMarginStart;
+            inputs[j++] = item.crossMarginStart;
+            inputs[j++] = item.mainMarginEnd;
+            inputs[j++] = item.crossMarginEnd;
+            inputs[j++] = item.grow;
+            inputs[j++] = item.shrink;
+            inputs[j++] = item.basisPercent;
+            inputs[j++] = item.sortOrder;
+            inputs[j++] = item.alignSelf.ordinal();
+            inputs[j++] = item.measureVersion;
+        }
+        for (int j = 0; j < n; j++) {
+            hash = (hash ^ Double.doubleToLongBits(inputs[j])) * 0x100000001b3L;
+        }
+        probe.set(settings, mainSize, crossSize, hash, inputs, n);
+        Result result = results.get(probe);
+        if (result != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return result;
+    }
+
+    /**
+     * Stores the result for the inputs of the last {@link #lookup}.
+     *
+     * @return the stored result
+     */
+    Result store(List<FlexItem> items, double minMainSize, double minCrossSize) {
+        Key key = new Key();
+        key.set(probe.settings, probe.mainSize, probe.crossSize, probe.hash,
+                Arrays.copyOf(inputs, probe.length), probe.length);
+        Result result = new Result(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            FlexItem item = items.get(i);
+            Bounds bounds = item.getBounds();
+            result.bounds[i * 4] = bounds.getX();
+            result.bounds[i * 4 + 1] = bounds.getY();
+            result.bounds[i * 4 + 2] = bounds.getW();
+            result.bounds[i * 4 + 3] = bounds.getH();
+            result.targets[i * 4] = item.mainTargetSize;
+            result.targets[i * 4 + 1] = item.crossTargetSize;
+            result.targets[i * 4 + 2] = item.mainStartPos;
+            result.targets[i * 4 + 3] = item.crossStartPos;
+        }
+        result.minMainSize = minMainSize;
+        result.minCrossSize = minCrossSize;
+        results.put(key, result);
+        return result;
+    }
+
+    static final class Result {
+
+        final double[] bounds;
+        final double[] targets;
+        double minMainSize, minCrossSize;
+        // the lines of the pass, for snapshots of a restored pass
+        LayoutResult lines;
+
+        Result(int count) {
+            bounds = new double[count * 4];
+            targets = new double[count * 4];
+        }
+    }
+
+    private static final class Key {
+
+        private int settings;
+        private double mainSize, crossSize;
+        private long hash;
+        private double[] inputs;
+        private int length;
+
+        void set(int settings, double mainSize, double crossSize, long hash, double[] inputs, int length) {
+            this.settings = settings;
+            this.mainSize = mainSize;
+            this.crossSize = crossSize;
+            this.hash = hash;
+            this.inputs = inputs;
+            this.length = length;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = hash * 31 + Double.doubleToLongBits(mainSize);
+            h = h * 31 + Double.doubleToLongBits(crossSize);
+            h = h * 31 + settings;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            if (hash != other.hash || settings != other.settings || length != other.length
+                    || Double.compare(mainSize, other.mainSize) != 0
+                    || Double.compare(crossSize, other.crossSize) != 0) {
+                return false;
+            }
+            // a fingerprint may collide, so compare the inputs themselves
+            for (int j = 0; j < length; j++) {
+                if (Double.compare(inputs[j], other.inputs[j]) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
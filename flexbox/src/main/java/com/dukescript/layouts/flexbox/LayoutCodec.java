@@ -0,0 +1,460 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem.AlignSelf;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Compact binary format for the inputs and results of a layout, e.g. to
+ * persist, cache or send them to another process. There are two kinds of
+ * records, both starting with the magic number "FLXB", the version of the
+ * format and the kind:
+ * <ul>
+ * <li>Inputs: the settings of the container as ordinals (0 for null), its
+ * main and cross size and the items. Each item starts with a 16 bit mask of
+ * the properties that differ from the defaults of a DefaultFlexItem,
+ * followed by only these values in the order width, height, minWidth,
+ * minHeight, maxWidth, maxHeight, the margins left, top, right, bottom as
+ * doubles, flexGrow, flexShrink, flexBasisPercent as floats, order as int
+ * and alignSelf as byte. The last bit of the mask is wrapBefore. An item with
+ * defaults only takes two bytes, values are stored exactly.</li>
+ * <li>Bounds: the number of items followed by x, y, width and height of
+ * each item as doubles.</li>
+ * </ul>
+ * Values are written in the byte order of the buffer, the magic number
+ * makes a reader with the wrong byte order fail. Reading inputs into a
+ * {@link FlexboxArrayEngine} and reading bounds into an array doesn't
+ * allocate, so large layouts can be stored and reloaded in milliseconds.
+ * <p>
+ * The header of the last record read is available from the codec, so an
+ * instance must not be shared between threads.
+ *
+ * @author antonepple
+ */
+public final class LayoutCodec {
+
+    /**
+     * "FLXB", the start of every record.
+     */
+    public static final int MAGIC = 0x464C5842;
+    /**
+     * Version of the format written by this codec. Older versions can be
+     * read.
+     */
+    public static final byte VERSION = 1;
+
+    private static final byte INPUTS = 1, BOUNDS = 2;
+    private static final int HEADER_SIZE = 4 + 1 + 1;
+    private static final int SETTINGS_SIZE = 5 + 8 + 8 + 4;
+    private static final int MAX_ITEM_SIZE = 2 + 10 * 8 + 3 * 4 + 4 + 1;
+
+    private static final FlexDirection[] DIRECTIONS = FlexDirection.values();
+    private static final FlexWrap[] WRAPS = FlexWrap.values();
+    private static final JustifyContent[] JUSTIFY_CONTENTS = JustifyContent.values();
+    private static final AlignItems[] ALIGN_ITEMS = AlignItems.values();
+    private static final AlignContent[] ALIGN_CONTENTS = AlignContent.values();
+    private static final AlignSelf[] ALIGN_SELFS = AlignSelf.values();
+
+    private static final int WIDTH = 1, HEIGHT = 1 << 1, MIN_WIDTH = 1 << 2, MIN_HEIGHT = 1 << 3,
+            MAX_WIDTH = 1 << 4, MAX_HEIGHT = 1 << 5, MARGIN_LEFT = 1 << 6, MARGIN_TOP = 1 << 7,
+            MARGIN_RIGHT = 1 << 8, MARGIN_BOTTOM = 1 << 9, GROW = 1 << 10, SHRINK = 1 << 11,
+            BASIS_PERCENT = 1 << 12, ORDER = 1 << 13, ALIGN_SELF = 1 << 14, WRAP_BEFORE = 1 << 15;
+
+    private FlexDirection flexDirection;
+    private FlexWrap flexWrap;
+    private JustifyContent justifyContent;
+    private AlignItems alignItems;
+    private AlignContent alignContent;
+    private double mainSize, crossSize;
+    private int itemCount;
+
+    /**
+     * @param itemCount the number of items
+     * @return the maximum size of an inputs record
+     */
+    public static int maxInputsSize(int itemCount) {
+        return HEADER_SIZE + SETTINGS_SIZE + itemCount * MAX_ITEM_SIZE;
+    }
+
+    /**
+     * @param itemCount the number of items
+     * @return the size of a bounds record
+     */
+    public static int boundsSize(int itemCount) {
+        return HEADER_SIZE + 4 + itemCount * 4 * 8;
+    }
+
+    /**
+     * Writes the settings and items of a layout.
+     *
+     * @param layout the layout
+     * @param mainSize the main size of the container
+     * @param crossSize the cross size of the container
+     * @param out the buffer to write to
+     */
+    public static void writeInputs(FlexboxLayout layout, double mainSize, double crossSize, ByteBuffer out) {
+        writeHeader(out, INPUTS);
+        out.put(ordinal(layout.getFlexDirection()));
+        out.put(ordinal(layout.getFlexWrap()));
+        out.put(ordinal(layout.getJustifyContent()));
+        out.put(ordinal(layout.getAlignItems()));
+        out.put(ordinal(layout.getAlignContent()));
+        out.putDouble(mainSize);
+        out.putDouble(crossSize);
+        List<FlexItem> items = layout.originalItems;
+        out.putInt(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            writeItem(items.get(i), out);
+        }
+    }
+
+    private static void writeItem(FlexItem item, ByteBuffer out) {
+        double width = item.getWidth(), height = item.getHeight();
+        double minWidth = item.getMinWidth(), minHeight = item.getMinHeight();
+        double maxWidth = item.getMaxWidth(), maxHeight = item.getMaxHeight();
+        double marginLeft = item.getMarginLeft(), marginTop = item.getMarginTop();
+        double marginRight = item.getMarginRight(), marginBottom = item.getMarginBottom();
+        float grow = item.getFlexGrow(), shrink = item.getFlexShrink(), basisPercent = item.getFlexBasisPercent();
+        int order = item.getOrder();
+        AlignSelf alignSelf = item.getFlexAlignSelf();
+        int mask = 0;
+        mask |= differs(width, -1) ? WIDTH : 0;
+        mask |= differs(height, -1) ? HEIGHT : 0;
+        mask |= differs(minWidth, -1) ? MIN_WIDTH : 0;
+        mask |= differs(minHeight, -1) ? MIN_HEIGHT : 0;
+        mask |= differs(maxWidth, Double.MAX_VALUE) ? MAX_WIDTH : 0;
+        mask |= differs(maxHeight, Double.MAX_VALUE) ? MAX_HEIGHT : 0;
+        mask |= differs(marginLeft, 0) ? MARGIN_LEFT : 0;
+        mask |= differs(marginTop, 0) ? MARGIN_TOP : 0;
+        mask |= differs(marginRight, 0) ? MARGIN_RIGHT : 0;
+        mask |= differs(marginBottom, 0) ? MARGIN_BOTTOM : 0;
+        mask |= Float.floatToRawIntBits(grow) != Float.floatToRawIntBits(FlexItem.FLEX_GROW_DEFAULT) ? GROW : 0;
+        mask |= Float.floatToRawIntBits(shrink) != Float.floatToRawIntBits(FlexItem.FLEX_SHRINK_DEFAULT) ? SHRINK : 0;
+        mask |= Float.floatToRawIntBits(basisPercent) != Float.floatToRawIntBits(FlexItem.FLEX_BASIS_PERCENT_DEFAULT) ? BASIS_PERCENT : 0;
+        mask |= order != 0 ? ORDER : 0;
+        mask |= alignSelf != FlexItem.FLEX_ALIGN_SELF_DEFAULT ? ALIGN_SELF : 0;
+        mask |= item.isWrapBefore() ? WRAP_BEFORE : 0;
+        out.putShort((short) mask);
+        putIf(out, mask, WIDTH, width);
+        putIf(out, mask, HEIGHT, height);
+        putIf(out, mask, MIN_WIDTH, minWidth);
+        putIf(out, mask, MIN_HEIGHT, minHeight);
+        putIf(out, mask, MAX_WIDTH, maxWidth);
+        putIf(out, mask, MAX_HEIGHT, maxHeight);
+        putIf(out, mask, MARGIN_LEFT, marginLeft);
+        putIf(out, mask, MARGIN_TOP, marginTop);
+        putIf(out, mask, MARGIN_RIGHT, marginRight);
+        putIf(out, mask, MARGIN_BOTTOM, marginBottom);
+        if ((mask & GROW) != 0) {
+            out.putFloat(grow);
+        }
+        if ((mask & SHRINK) != 0) {
+            out.putFloat(shrink);
+        }
+        if ((mask & BASIS_PERCENT) != 0) {
+            out.putFloat(basisPercent);
+        }
+        if ((mask & ORDER) != 0) {
+            out.putInt(order);
+        }
+        if ((mask & ALIGN_SELF) != 0) {
+            out.put((byte) alignSelf.ordinal());
+        }
+    }
+
+    /**
+     * Writes the bounds of the items of a layout.
+     *
+     * @param layout the layout
+     * @param out the buffer to write to
+     */
+    public static void writeBounds(FlexboxLayout layout, ByteBuffer out) {
+        List<FlexItem> items = layout.originalItems;
+        writeHeader(out, BOUNDS);
+        out.putInt(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Bounds bounds = items.get(i).getBounds();
+            out.putDouble(bounds.getX());
+            out.putDouble(bounds.getY());
+            out.putDouble(bounds.getW());
+            out.putDouble(bounds.getH());
+        }
+    }
+
+    /**
+     * Writes the bounds computed by an engine.
+     *
+     * @param engine the engine
+     * @param out the buffer to write to
+     */
+    public static void writeBounds(FlexboxArrayEngine engine, ByteBuffer out) {
+        int count = engine.getItemCount();
+        writeHeader(out, BOUNDS);
+        out.putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.putDouble(engine.getX(i));
+            out.putDouble(engine.getY(i));
+            out.putDouble(engine.getW(i));
+            out.putDouble(engine.getH(i));
+        }
+    }
+
+    /**
+     * Reads an inputs record into an engine, without allocating.
+     *
+     * @param in the buffer to read from
+     * @param engine the engine to set the settings and items of
+     * @throws IllegalArgumentException if the buffer doesn't contain an inputs
+     * record
+     */
+    public void readInputs(ByteBuffer in, FlexboxArrayEngine engine) {
+        readSettings(in);
+        engine.setFlexDirection(flexDirection);
+        engine.setFlexWrap(flexWrap);
+        engine.setJustifyContent(justifyContent);
+        engine.setAlignItems(alignItems);
+        engine.setAlignContent(alignContent);
+        engine.setItemCount(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            int mask = in.getShort() & 0xffff;
+            engine.resetItem(i);
+            double width = getIf(in, mask, WIDTH, -1), height = getIf(in, mask, HEIGHT, -1);
+            engine.setSize(i, width, height);
+            double minWidth = getIf(in, mask, MIN_WIDTH, -1), minHeight = getIf(in, mask, MIN_HEIGHT, -1);
+            engine.setMinSize(i, minWidth, minHeight);
+            double maxWidth = getIf(in, mask, MAX_WIDTH, Double.MAX_VALUE), maxHeight = getIf(in, mask, MAX_HEIGHT, Double.MAX_VALUE);
+            engine.setMaxSize(i, maxWidth, maxHeight);
+            double marginLeft = getIf(in, mask, MARGIN_LEFT, 0), marginTop = getIf(in, mask, MARGIN_TOP, 0);
+            double marginRight = getIf(in, mask, MARGIN_RIGHT, 0), marginBottom = getIf(in, mask, MARGIN_BOTTOM, 0);
+            engine.setMargin(i, marginLeft, marginTop, marginRight, marginBottom);
+            float grow = (mask & GROW) != 0 ? in.getFloat() : FlexItem.FLEX_GROW_DEFAULT;
+            float shrink = (mask & SHRINK) != 0 ? in.getFloat() : FlexItem.FLEX_SHRINK_DEFAULT;
+            float basisPercent = (mask & BASIS_PERCENT) != 0 ? in.getFloat() : FlexItem.FLEX_BASIS_PERCENT_DEFAULT;
+            engine.setFlex(i, grow, shrink, basisPercent);
+            if ((mask & ORDER) != 0) {
+                engine.setOrder(i, in.getInt());
+            }
+            if ((mask & ALIGN_SELF) != 0) {
+                engine.setAlignSelf(i, alignSelf(in.get()));
+            }
+        }
+    }
+
+    /**
+     * Reads an inputs record into a layout. The items of the layout are
+     * replaced by new DefaultFlexItems.
+     *
+     * @param in the buffer to read from
+     * @param layout the layout to set the settings and items of
+     * @throws IllegalArgumentException if the buffer doesn't contain an inputs
+     * record
+     */
+    public void readInputs(ByteBuffer in, FlexboxLayout layout) {
+        readSettings(in);
+        layout.setFlexDirection(flexDirection);
+        layout.setFlexWrap(flexWrap);
+        layout.setJustifyContent(justifyContent);
+        layout.setAlignItems(alignItems);
+        layout.setAlignContent(alignContent);
+        layout.clearItems();
+        for (int i = 0; i < itemCount; i++) {
+            int mask = in.getShort() & 0xffff;
+            DefaultFlexItem.DefaultFlexItemBuilder builder = DefaultFlexItem.builder()
+                    .width(getIf(in, mask, WIDTH, -1))
+                    .height(getIf(in, mask, HEIGHT, -1))
+                    .minWidth(getIf(in, mask, MIN_WIDTH, -1))
+                    .minHeight(getIf(in, mask, MIN_HEIGHT, -1))
+                    .maxWidth(getIf(in, mask, MAX_WIDTH, Double.MAX_VALUE))
+                    .maxHeight(getIf(in, mask, MAX_HEIGHT, Double.MAX_VALUE))
+                    .marginLeft(getIf(in, mask, MARGIN_LEFT, 0))
+                    .marginTop(getIf(in, mask, MARGIN_TOP, 0))
+                    .marginRight(getIf(in, mask, MARGIN_RIGHT, 0))
+                    .marginBottom(getIf(in, mask, MARGIN_BOTTOM, 0));
+            if ((mask & GROW) != 0) {
+                builder.flexGrow(in.getFloat());
+            }
+            if ((mask & SHRINK) != 0) {
+                builder.flexShrink(in.getFloat());
+            }
+            if ((mask & BASIS_PERCENT) != 0) {
+                builder.flexBasisPercent(in.getFloat());
+            }
+            if ((mask & ORDER) != 0) {
+                builder.order(in.getInt());
+            }
+            if ((mask & ALIGN_SELF) != 0) {
+                builder.flexAlignSelf(alignSelf(in.get()));
+            }
+            layout.add(builder.wrapBefore((mask & WRAP_BEFORE) != 0).build());
+        }
+    }
+
+    /**
+     * Reads a bounds record, without allocating.
+     *
+     * @param in the buffer to read from
+     * @param bounds array receiving x, y, width and height of each item, it
+     * must have room for 4 values per item
+     * @return the number of items
+     * @throws IllegalArgumentException if the buffer doesn't contain a bounds
+     * record
+     */
+    public int readBounds(ByteBuffer in, double[] bounds) {
+        readHeader(in, BOUNDS);
+        itemCount = in.getInt();
+        if (itemCount < 0 || itemCount > in.remaining() / (4 * 8)) {
+            throw new IllegalArgumentException("invalid item count " + itemCount);
+        }
+        if (bounds.length < itemCount * 4) {
+            throw new IllegalArgumentException("room for " + itemCount + " bounds needed");
+        }
+        for (int i = 0; i < itemCount * 4; i++) {
+            bounds[i] = in.getDouble();
+        }
+        return itemCount;
+    }
+
+    public FlexDirection getFlexDirection() {
+        return flexDirection;
+    }
+
+    public FlexWrap getFlexWrap() {
+        return flexWrap;
+    }
+
+    public JustifyContent getJustifyContent() {
+        return justifyContent;
+    }
+
+    public AlignItems getAlignItems() {
+        return alignItems;
+    }
+
+    public AlignContent getAlignContent() {
+        return alignContent;
+    }
+
+    /**
+     * @return the main size of the container of the last inputs record read
+     */
+    public double getMainSize() {
+        return mainSize;
+    }
+
+    /**
+     * @return the cross size of the container of the last inputs record read
+     */
+    public double getCrossSize() {
+        return crossSize;
+    }
+
+    /**
+     * @return the number of items of the last record read
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    private void readSettings(ByteBuffer in) {
+        readHeader(in, INPUTS);
+        flexDirection = value(DIRECTIONS, in.get());
+        flexWrap = value(WRAPS, in.get());
+        justifyContent = value(JUSTIFY_CONTENTS, in.get());
+        alignItems = value(ALIGN_ITEMS, in.get());
+        alignContent = value(ALIGN_CONTENTS, in.get());
+        mainSize = in.getDouble();
+        crossSize = in.getDouble();
+        itemCount = in.getInt();
+        // every item takes at least its mask, checked before allocating
+        if (itemCount < 0 || itemCount > in.remaining() / 2) {
+            throw new IllegalArgumentException("invalid item count " + itemCount);
+        }
+    }
+
+    private static void writeHeader(ByteBuffer out, byte kind) {
+        out.putInt(MAGIC);
+        out.put(VERSION);
+        out.put(kind);
+    }
+
+    private static void readHeader(ByteBuffer in, byte kind) {
+        if (in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("not a layout record");
+        }
+        byte version = in.get();
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("unsupported version " + version);
+        }
+        if (in.get() != kind) {
+            throw new IllegalArgumentException(kind == INPUTS ? "inputs expected" : "bounds expected");
+        }
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return (byte) (value == null ? 0 : value.ordinal() + 1);
+    }
+
+    private static <T> T value(T[] values, byte ordinal) {
+        if (ordinal < 0 || ordinal > values.length) {
+            throw new IllegalArgumentException("invalid " + values[0].getClass().getSimpleName() + " " + ordinal);
+        }
+        return ordinal == 0 ? null : values[ordinal - 1];
+    }
+
+    private static AlignSelf alignSelf(byte ordinal) {
+        if (ordinal < 0 || ordinal >= ALIGN_SELFS.length) {
+            throw new IllegalArgumentException("invalid AlignSelf " + ordinal);
+        }
+        return ALIGN_SELFS[ordinal];
+    }
+
+    private static boolean differs(double value, double defaultValue) {
+        return Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(defaultValue);
+    }
+
+    private static void putIf(ByteBuffer out, int mask, int bit, double value) {
+        if ((mask & bit) != 0) {
+            out.putDouble(value);
+        }
+    }
+
+    private static double getIf(ByteBuffer in, int mask, int bit, double defaultValue) {
+        return (mask & bit) != 0 ? in.getDouble() : defaultValue;
+    }
+}
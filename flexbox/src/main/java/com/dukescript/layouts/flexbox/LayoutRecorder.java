@@ -0,0 +1,158 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link LayoutTracer} recording the inputs and results of every layout pass
+ * of a FlexboxLayout, so a slow or wrong layout seen in an application can
+ * be reproduced and measured with {@link LayoutReplay}. Install it with
+ * {@link FlexboxLayout#setLayoutTracer} and close it when done:
+ * <pre>
+ * try (LayoutRecorder recorder = new LayoutRecorder(Paths.get("session.flx"))) {
+ *     layout.setLayoutTracer(recorder);
+ *     ...
+ * }
+ * </pre>
+ * A session starts with the magic number "FLXS" and the version, followed by
+ * one frame per pass: the length of the frame, the kind of the pass, its
+ * duration in nanoseconds without the time taken by the recorder, the
+ * {@link LayoutCodec} inputs record taken when the pass started and the
+ * bounds record taken when it finished. Passes without changes are skipped
+ * by the layout and not recorded.
+ * <p>
+ * The buffer for the frames is reused and only grows with the number of
+ * items. A recorder belongs to one layout and must not be shared.
+ *
+ * @author antonepple
+ */
+public final class LayoutRecorder implements LayoutTracer, Closeable {
+
+    /**
+     * "FLXS", the start of every session.
+     */
+    public static final int MAGIC = 0x464C5853;
+    /**
+     * Version of the session format written by this recorder.
+     */
+    public static final byte VERSION = 1;
+
+    static final int HEADER_SIZE = 4 + 1;
+    // length, pass, nanos
+    static final int FRAME_HEADER_SIZE = 4 + 1 + 8;
+
+    private final WritableByteChannel out;
+    private ByteBuffer buffer;
+    private int passes;
+    // time spent encoding the inputs, it is part of the pass duration
+    private long overhead;
+
+    /**
+     * Creates a recorder writing to a new file, an existing file is
+     * replaced.
+     *
+     * @param file the file
+     * @throws IOException if the file can't be written
+     */
+    public LayoutRecorder(Path file) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Creates a recorder writing to a channel. The channel is closed with
+     * the recorder.
+     *
+     * @param out the channel
+     * @throws IOException if the header can't be written
+     */
+    public LayoutRecorder(WritableByteChannel out) throws IOException {
+        this.out = out;
+        this.buffer = ByteBuffer.allocate(1024);
+        buffer.putInt(MAGIC).put(VERSION);
+        write();
+    }
+
+    @Override
+    public void passStarted(FlexboxLayout layout, Pass pass, double mainSize, double crossSize) {
+        long start = System.nanoTime();
+        int count = layout.originalItems.size();
+        int size = FRAME_HEADER_SIZE + LayoutCodec.maxInputsSize(count) + LayoutCodec.boundsSize(count);
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+        }
+        buffer.clear();
+        buffer.position(4);
+        buffer.put((byte) pass.ordinal());
+        buffer.putLong(0);
+        LayoutCodec.writeInputs(layout, mainSize, crossSize, buffer);
+        overhead = System.nanoTime() - start;
+    }
+
+    @Override
+    public void passFinished(FlexboxLayout layout, long nanos) {
+        LayoutCodec.writeBounds(layout, buffer);
+        buffer.putInt(0, buffer.position() - 4);
+        buffer.putLong(5, Math.max(0, nanos - overhead));
+        passes++;
+        try {
+            write();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @return the number of passes recorded so far
+     */
+    public int getPassCount() {
+        return passes;
+    }
+
+    private void write() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,363 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.LayoutTracer.Pass;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs the passes of a session captured by {@link LayoutRecorder} again and
+ * compares them with the recording. Every pass is loaded into the given
+ * layout, so it can be configured like the layout under test, e.g. with the
+ * array engine enabled. A pass is laid out a number of times, the fastest
+ * run is reported, and the resulting bounds are compared with the recorded
+ * ones.
+ * <p>
+ * The items are replaced by DefaultFlexItems for every pass, so each pass is
+ * computed in full. Passes recorded in the windowed mode aren't compared, as
+ * the items outside of the viewport keep older bounds there.
+ *
+ * @author antonepple
+ */
+public final class LayoutReplay {
+
+    private final FlexboxLayout layout;
+    private final LayoutCodec codec = new LayoutCodec();
+    private int iterations = 1;
+    private double epsilon = 1e-6;
+    private double[] recorded = new double[0];
+
+    /**
+     * Creates a replay on a new FlexboxLayout.
+     */
+    public LayoutReplay() {
+        this(new FlexboxLayout());
+    }
+
+    /**
+     * @param layout the layout to replay the passes with, its settings and
+     * items are replaced by the ones of each pass
+     */
+    public LayoutReplay(FlexboxLayout layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * @param iterations how often every pass is laid out, the fastest run is
+     * reported
+     * @return this replay
+     */
+    public LayoutReplay setIterations(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be at least 1");
+        }
+        this.iterations = iterations;
+        return this;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @param epsilon the largest difference of a coordinate that isn't
+     * reported
+     * @return this replay
+     */
+    public LayoutReplay setEpsilon(double epsilon) {
+        this.epsilon = epsilon;
+        return this;
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * Replays a session file.
+     *
+     * @param file the file written by a LayoutRecorder
+     * @return the result of every pass
+     * @throws IOException if the file can't be read or isn't a session
+     */
+    public Report replay(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file)) {
+            return replay(in);
+        }
+    }
+
+    /**
+     * Replays a session.
+     *
+     * @param in the channel to read the session from, it isn't closed
+     * @return the result of every pass
+     * @throws IOException if the channel can't be read or doesn't contain a
+     * session
+     */
+    public Report replay(ReadableByteChannel in) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.limit(LayoutRecorder.HEADER_SIZE);
+        if (!read(in, buffer, true) || buffer.getInt(0) != LayoutRecorder.MAGIC) {
+            throw new IOException("not a layout session");
+        }
+        if (buffer.get(4) > LayoutRecorder.VERSION) {
+            throw new IOException("unsupported session version " + buffer.get(4));
+        }
+        List<PassResult> passes = new ArrayList<>();
+        for (;;) {
+            buffer.clear();
+            buffer.limit(4);
+            if (!read(in, buffer, false)) {
+                break;
+            }
+            int length = buffer.getInt(0);
+            if (buffer.capacity() < length) {
+                buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+            }
+            buffer.clear();
+            buffer.limit(length);
+            read(in, buffer, true);
+            buffer.flip();
+            passes.add(replay(passes.size(), buffer));
+        }
+        return new Report(passes);
+    }
+
+    private PassResult replay(int index, ByteBuffer frame) {
+        Pass pass = Pass.values()[frame.get()];
+        long recordedNanos = frame.getLong();
+        int inputs = frame.position();
+        long nanos = Long.MAX_VALUE;
+        for (int i = 0; i < iterations; i++) {
+            frame.position(inputs);
+            codec.readInputs(frame, layout);
+            long start = System.nanoTime();
+            layout.layoutSubViews(codec.getMainSize(), codec.getCrossSize());
+            nanos = Math.min(nanos, System.nanoTime() - start);
+        }
+        double mainSize = codec.getMainSize(), crossSize = codec.getCrossSize();
+        int count = codec.getItemCount();
+        if (recorded.length < count * 4) {
+            recorded = new double[count * 4];
+        }
+        codec.readBounds(frame, recorded);
+        int differences = 0;
+        double maxDifference = 0;
+        if (pass != Pass.WINDOWED) {
+            for (int i = 0; i < count; i++) {
+                Bounds bounds = layout.originalItems.get(i).getBounds();
+                double difference = Math.max(
+                        Math.max(difference(bounds.getX(), recorded[i * 4]), difference(bounds.getY(), recorded[i * 4 + 1])),
+                        Math.max(difference(bounds.getW(), recorded[i * 4 + 2]), difference(bounds.getH(), recorded[i * 4 + 3])));
+                if (difference > epsilon) {
+                    differences++;
+                }
+                maxDifference = Math.max(maxDifference, difference);
+            }
+        }
+        return new PassResult(index, pass, count, mainSize, crossSize, recordedNanos, nanos, differences, maxDifference);
+    }
+
+    private static double difference(double a, double b) {
+        if (Double.compare(a, b) == 0) {
+            return 0;
+        }
+        double difference = Math.abs(a - b);
+        return Double.isNaN(difference) ? Double.POSITIVE_INFINITY : difference;
+    }
+
+    private static boolean read(ReadableByteChannel in, ByteBuffer buffer, boolean required) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                if (buffer.position() == 0 && !required) {
+                    return false;
+                }
+                throw new EOFException("truncated layout session");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Result of replaying one pass.
+     */
+    public static final class PassResult {
+
+        private final int index;
+        private final Pass pass;
+        private final int itemCount;
+        private final double mainSize, crossSize;
+        private final long recordedNanos, nanos;
+        private final int differences;
+        private final double maxDifference;
+
+        PassResult(int index, Pass pass, int itemCount, double mainSize, double crossSize,
+                long recordedNanos, long nanos, int differences, double maxDifference) {
+            this.index = index;
+            this.pass = pass;
+            this.itemCount = itemCount;
+            this.mainSize = mainSize;
+            this.crossSize = crossSize;
+            this.recordedNanos = recordedNanos;
+            this.nanos = nanos;
+            this.differences = differences;
+            this.maxDifference = maxDifference;
+        }
+
+        /**
+         * @return the index of the pass in the session
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return how the pass was computed when it was recorded
+         */
+        public Pass getPass() {
+            return pass;
+        }
+
+        public int getItemCount() {
+            return itemCount;
+        }
+
+        public double getMainSize() {
+            return mainSize;
+        }
+
+        public double getCrossSize() {
+            return crossSize;
+        }
+
+        /**
+         * @return the duration of the pass when it was recorded
+         */
+        public long getRecordedNanos() {
+            return recordedNanos;
+        }
+
+        /**
+         * @return the duration of the fastest replay of the pass
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return the number of items with bounds different from the
+         * recording
+         */
+        public int getDifferences() {
+            return differences;
+        }
+
+        /**
+         * @return the largest difference of a coordinate
+         */
+        public double getMaxDifference() {
+            return maxDifference;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d %s %d items %.1fx%.1f recorded %.3fms replayed %.3fms differences %d (max %.3g)",
+                    index, pass, itemCount, mainSize, crossSize, recordedNanos / 1e6, nanos / 1e6, differences, maxDifference);
+        }
+    }
+
+    /**
+     * Results of all passes of a session.
+     */
+    public static final class Report {
+
+        private final List<PassResult> passes;
+
+        Report(List<PassResult> passes) {
+            this.passes = Collections.unmodifiableList(passes);
+        }
+
+        public List<PassResult> getPasses() {
+            return passes;
+        }
+
+        public long getRecordedNanos() {
+            long nanos = 0;
+            for (PassResult pass : passes) {
+                nanos += pass.getRecordedNanos();
+            }
+            return nanos;
+        }
+
+        public long getNanos() {
+            long nanos = 0;
+            for (PassResult pass : passes) {
+                nanos += pass.getNanos();
+            }
+            return nanos;
+        }
+
+        /**
+         * @return the number of passes with bounds different from the
+         * recording
+         */
+        public int getDifferentPasses() {
+            int count = 0;
+            for (PassResult pass : passes) {
+                if (pass.getDifferences() > 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @return one line per pass and a summary
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (PassResult pass : passes) {
+                sb.append(pass).append('\n');
+            }
+            sb.append(String.format("%d passes recorded %.3fms replayed %.3fms, %d with differences%n",
+                    passes.size(), getRecordedNanos() / 1e6, getNanos() / 1e6, getDifferentPasses()));
+            return sb.toString();
+        }
+    }
+}
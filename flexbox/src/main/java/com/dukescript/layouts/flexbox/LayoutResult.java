@@ -0,0 +1,198 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import java.nio.BufferOverflowException;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Snapshot of a layout pass: the bounds of the items and the metrics of the
+ * lines, for renderers drawing many items at once, e.g. on a canvas or in
+ * batches. Results are returned by {@link StatelessLayout} and
+ * {@link FlexboxLayout#getLayoutResult()}. Items are indexed in the order
+ * they were passed in or added, lines in the order of their cross start
+ * position.
+ * <p>
+ * The bounds are kept in one array with x, y, w and h of each item after
+ * another, the same layout as {@link LayoutCodec} bounds records.
+ * {@link #asDoubleBuffer()} exposes that array without copying it,
+ * {@link #writeTo(FloatBuffer)} converts it straight into the buffer of the
+ * renderer. The arrays are never changed after the result is created and
+ * are only reachable through final fields and read-only buffers, so a result
+ * can be handed to other threads without synchronization.
+ *
+ * @author antonepple
+ */
+public final class LayoutResult {
+
+    private final double[] bounds;
+    // item indexes line by line, and where each line ends in them
+    private final int[] lineItems;
+    private final int[] lineEnds;
+    // main size, cross size and cross start of each line
+    private final double[] lines;
+    private final double minMainSize, minCrossSize;
+
+    LayoutResult(double[] bounds, int[] lineItems, int[] lineEnds, double[] lines, double minMainSize, double minCrossSize) {
+        this.bounds = bounds;
+        this.lineItems = lineItems;
+        this.lineEnds = lineEnds;
+        this.lines = lines;
+        this.minMainSize = minMainSize;
+        this.minCrossSize = minCrossSize;
+    }
+
+    /**
+     * @return a result with other bounds and the same lines
+     */
+    LayoutResult withBounds(double[] bounds) {
+        return new LayoutResult(bounds, lineItems, lineEnds, lines, minMainSize, minCrossSize);
+    }
+
+    public int getItemCount() {
+        return bounds.length / 4;
+    }
+
+    public double getX(int i) {
+        return bounds[i * 4];
+    }
+
+    public double getY(int i) {
+        return bounds[i * 4 + 1];
+    }
+
+    public double getW(int i) {
+        return bounds[i * 4 + 2];
+    }
+
+    public double getH(int i) {
+        return bounds[i * 4 + 3];
+    }
+
+    /**
+     * @see FlexboxLayout#getMinMainSize()
+     */
+    public double getMinMainSize() {
+        return minMainSize;
+    }
+
+    /**
+     * @see FlexboxLayout#getMinCrossSize()
+     */
+    public double getMinCrossSize() {
+        return minCrossSize;
+    }
+
+    public int getLineCount() {
+        return lineEnds.length;
+    }
+
+    /**
+     * @param line index of the line
+     * @return the first position of the line in the
+     * {@link #getLineItem line order} (inclusive)
+     */
+    public int getLineStart(int line) {
+        return line == 0 ? 0 : lineEnds[line - 1];
+    }
+
+    /**
+     * @param line index of the line
+     * @return the last position of the line in the
+     * {@link #getLineItem line order} (exclusive)
+     */
+    public int getLineEnd(int line) {
+        return lineEnds[line];
+    }
+
+    /**
+     * @param position position in the line order, the items of each line
+     * in the order they are placed, line after line
+     * @return the index of the item at the position
+     */
+    public int getLineItem(int position) {
+        return lineItems[position];
+    }
+
+    /**
+     * @param line index of the line
+     * @return the sum of the hypothetical main sizes of the items of the line
+     */
+    public double getLineMainSize(int line) {
+        return lines[line * 3];
+    }
+
+    public double getLineCrossSize(int line) {
+        return lines[line * 3 + 1];
+    }
+
+    public double getLineCrossStart(int line) {
+        return lines[line * 3 + 2];
+    }
+
+    /**
+     * @return a read-only view of the bounds, x, y, w and h of each item
+     * after another, sharing the array of this result
+     */
+    public DoubleBuffer asDoubleBuffer() {
+        return DoubleBuffer.wrap(bounds).asReadOnlyBuffer();
+    }
+
+    /**
+     * Puts the bounds at the position of a buffer, x, y, w and h of each
+     * item after another, and advances the position.
+     *
+     * @param buffer the buffer
+     * @throws BufferOverflowException if the buffer has less than
+     * four values left per item
+     */
+    public void writeTo(DoubleBuffer buffer) {
+        buffer.put(bounds);
+    }
+
+    /**
+     * Puts the bounds at the position of a buffer, x, y, w and h of each
+     * item after another, and advances the position. The values are
+     * converted one by one, without an intermediate array.
+     *
+     * @param buffer the buffer
+     * @throws BufferOverflowException if the buffer has less than
+     * four values left per item
+     */
+    public void writeTo(FloatBuffer buffer) {
+        if (buffer.remaining() < bounds.length) {
+            throw new BufferOverflowException();
+        }
+        for (int i = 0; i < bounds.length; i++) {
+            buffer.put((float) bounds[i]);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem;
+
+/**
+ * Receives the decisions a {@link FlexboxLayout} takes during a layout pass.
+ * A tracer is installed with {@link FlexboxLayout#setLayoutTracer}. Without
+ * a tracer the layout doesn't create any events, so tracing costs nothing
+ * unless it is used.
+ * <p>
+ * Items are identified by their index in the order they were added to the
+ * layout. All methods do nothing by default, so a tracer only needs to
+ * implement the events it is interested in. The methods are called on the
+ * thread doing the layout and must not change the layout or its items.
+ *
+ * @author antonepple
+ */
+public interface LayoutTracer {
+
+    /**
+     * The way a layout pass is computed.
+     */
+    enum Pass {
+        /**
+         * All phases for all items.
+         */
+        FULL,
+        /**
+         * Only the lines containing changed items.
+         */
+        PARTIAL,
+        /**
+         * Result taken from the layout cache.
+         */
+        CACHED,
+        /**
+         * All phases computed by the {@link FlexboxArrayEngine}.
+         */
+        ARRAY_ENGINE,
+        /**
+         * Only the lines intersecting the viewport, see
+         * {@link FlexboxLayout#setViewport}.
+         */
+        WINDOWED,
+        /**
+         * Only the main size changed and the lines break at the same items,
+         * the lines are laid out again without sorting and breaking.
+         */
+        RESIZE
+    }
+
+    /**
+     * A layout pass starts. Passes without any changes are skipped and not
+     * reported.
+     *
+     * @param layout the layout
+     * @param pass how the pass is computed
+     * @param mainSize available size in the main direction
+     * @param crossSize available size in the cross direction
+     */
+    default void passStarted(FlexboxLayout layout, Pass pass, double mainSize, double crossSize) {
+    }
+
+    /**
+     * The hypothetical sizes of an item have been computed.
+     *
+     * @param item the item
+     * @param index index of the item
+     * @param mainSize hypothetical main size
+     * @param crossSize hypothetical cross size
+     */
+    default void hypotheticalSize(FlexItem item, int index, double mainSize, double crossSize) {
+    }
+
+    /**
+     * A new line starts. Lines are reported in the order they are broken,
+     * before WRAP_REVERSE reverses them.
+     *
+     * @param line index of the line
+     * @param item first item of the line
+     * @param index index of the first item
+     */
+    default void lineStarted(int line, FlexItem item, int index) {
+    }
+
+    /**
+     * An item has been clamped to its maximum size while growing or to its
+     * minimum size while shrinking.
+     *
+     * @param item the item
+     * @param index index of the item
+     * @param size main size the item would have had without the limit
+     * @param limit main size the item has been clamped to
+     */
+    default void clamped(FlexItem item, int index, double size, double limit) {
+    }
+
+    /**
+     * The final bounds of an item have been set.
+     *
+     * @param item the item
+     * @param index index of the item
+     * @param x the x position
+     * @param y the y position
+     * @param w the width
+     * @param h the height
+     */
+    default void bounds(FlexItem item, int index, double x, double y, double w, double h) {
+    }
+
+    /**
+     * The layout pass has finished.
+     *
+     * @param layout the layout
+     * @param nanos duration of the pass in nanoseconds
+     */
+    default void passFinished(FlexboxLayout layout, long nanos) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem;
+import com.dukescript.layouts.flexbox.MeasureFunction.Mode;
+
+/**
+ * The last measurements of an item. A request is answered from an entry if
+ * the entry was measured with the same constraints, or if the constraints
+ * of the request can't change its result: content that took less than the
+ * space it was offered, or had no limit, has the same size in any space it
+ * still fits in, and content measured at a certain size gets the same
+ * result when it is given exactly this size.
+ * <p>
+ * The entries are replaced round robin, so the cache never grows.
+ *
+ * @author antonepple
+ */
+final class MeasureCache {
+
+    static final int SIZE = 8;
+
+    private final double[] widths = new double[SIZE], heights = new double[SIZE];
+    private final Mode[] widthModes = new Mode[SIZE], heightModes = new Mode[SIZE];
+    private final double[] measuredWidths = new double[SIZE], measuredHeights = new double[SIZE];
+    private final Bounds size = new Bounds(0, 0, 0, 0);
+    private int count, next;
+    private double width, height;
+
+    /**
+     * Measures the item or takes the result from a matching entry, see
+     * {@link #getWidth()} and {@link #getHeight()}.
+     */
+    void measure(FlexItem item, MeasureFunction function, double width, Mode widthMode, double height, Mode heightMode) {
+        for (int i = 0; i < count; i++) {
+            if (matches(width, widthMode, widths[i], widthModes[i], measuredWidths[i])
+                    && matches(height, heightMode, heights[i], heightModes[i], measuredHeights[i])) {
+                this.width = measuredWidths[i];
+                this.height = measuredHeights[i];
+                return;
+            }
+        }
+        size.setW(0);
+        size.setH(0);
+        function.measure(item, widthMode == Mode.UNDEFINED ? Double.NaN : width, widthMode,
+                heightMode == Mode.UNDEFINED ? Double.NaN : height, heightMode, size);
+        this.width = size.getW();
+        this.height = size.getH();
+        widths[next] = width;
+        widthModes[next] = widthMode;
+        heights[next] = height;
+        heightModes[next] = heightMode;
+        measuredWidths[next] = this.width;
+        measuredHeights[next] = this.height;
+        next = (next + 1) % SIZE;
+        count = Math.max(count, next == 0 ? SIZE : next);
+    }
+
+    private static boolean matches(double value, Mode mode, double entryValue, Mode entryMode, double measured) {
+        if (mode == entryMode && (mode == Mode.UNDEFINED || value == entryValue)) {
+            return true;
+        }
+        switch (mode) {
+            case AT_MOST:
+                return (entryMode == Mode.UNDEFINED || entryMode == Mode.AT_MOST && measured < entryValue)
+                        && measured <= value;
+            case EXACTLY:
+                return entryMode != Mode.EXACTLY && measured == value;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return the width of the last measurement
+     */
+    double getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the last measurement
+     */
+    double getHeight() {
+        return height;
+    }
+
+    void clear() {
+        count = 0;
+        next = 0;
+    }
+}
@@ -0,0 +1,85 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem;
+
+/**
+ * Measures the content of an item whose size depends on the space it gets,
+ * e.g. wrapping text that gets taller when it gets narrower. It is installed
+ * with {@link FlexItem#setMeasureFunction} and used for the width or height
+ * of an item that returns a negative width or height and has no flex basis
+ * percent. The measured size is limited by the min and max size of the item.
+ * <p>
+ * The main size is measured with at most the main size of the container
+ * available, the cross size is then measured with exactly the hypothetical
+ * main size. Results are cached per item and constraint, so a toolkit
+ * measurement only happens once for every distinct constraint, until the
+ * item calls {@link FlexItem#invalidateMeasure()} because its content
+ * changed. A result is also reused for constraints that wouldn't change it,
+ * e.g. for more space than the content took before. The
+ * {@link FlexboxArrayEngine} measures the content once without constraints.
+ *
+ * @author antonepple
+ */
+@FunctionalInterface
+public interface MeasureFunction {
+
+    /**
+     * How a size constrains the content.
+     */
+    enum Mode {
+        /**
+         * The content gets exactly this size.
+         */
+        EXACTLY,
+        /**
+         * The content may take up to this size.
+         */
+        AT_MOST,
+        /**
+         * The content may take any size, the size is NaN.
+         */
+        UNDEFINED
+    }
+
+    /**
+     * Measures the content of an item. The method is called on the thread
+     * doing the layout and must not change the layout or its items.
+     *
+     * @param item the item
+     * @param width the width available for the content, without margins
+     * @param widthMode how the width constrains the content
+     * @param height the height available for the content, without margins
+     * @param heightMode how the height constrains the content
+     * @param size receives the measured width and height of the content
+     */
+    void measure(FlexItem item, double width, Mode widthMode, double height, Mode heightMode, Bounds size);
+}
@@ -0,0 +1,227 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lays out trees of {@link FlexNode}s and independent
+ * {@link FlexboxLayout}s in parallel on a {@link ForkJoinPool}. Once the
+ * layout of a node has set the bounds of its children, the children are
+ * independent of each other and are laid out as separate tasks. Subtrees
+ * and groups of containers smaller than the sequential threshold are laid
+ * out on a single thread, so small trees don't pay for the forking.
+ * <p>
+ * Every node and every layout is only touched by one thread and goes
+ * through exactly the same steps as when it is laid out sequentially, so the
+ * results are identical. The trees and layouts must not be changed while
+ * they are laid out.
+ *
+ * @author antonepple
+ */
+public final class ParallelLayout {
+
+    /**
+     * Default for the number of nodes or items below which work isn't split
+     * up further.
+     */
+    public static final int DEFAULT_THRESHOLD = 512;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * Creates an instance using the common pool and the default threshold.
+     */
+    public ParallelLayout() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param pool the pool to run the tasks in
+     * @param threshold number of nodes or items below which work is done on a
+     * single thread
+     */
+    public ParallelLayout(ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("threshold must be at least 1");
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Same as {@link FlexNode#layout(double, double)}, but in parallel.
+     *
+     * @param root the root of the tree
+     * @param width the width of the root
+     * @param height the height of the root
+     */
+    public void layout(FlexNode root, double width, double height) {
+        root.setBounds(0, 0, width, height);
+        if (root.getSubtreeSize() < threshold) {
+            root.layoutChildren(width, height);
+        } else {
+            pool.invoke(new NodeTask(root, width, height));
+        }
+    }
+
+    /**
+     * Lays out a forest of trees, each as its own root.
+     *
+     * @param roots the roots of the trees
+     * @param widths the width of each root
+     * @param heights the height of each root
+     */
+    public void layout(List<? extends FlexNode> roots, double[] widths, double[] heights) {
+        for (int i = 0; i < roots.size(); i++) {
+            roots.get(i).setBounds(0, 0, widths[i], heights[i]);
+        }
+        pool.invoke(new RootsTask(roots, widths, heights, 0, roots.size()));
+    }
+
+    /**
+     * Calls {@link FlexboxLayout#layoutSubViews(double, double)} for
+     * independent layouts.
+     *
+     * @param layouts the layouts
+     * @param mainSizes the main size of each layout
+     * @param crossSizes the cross size of each layout
+     */
+    public void layoutSubViews(List<FlexboxLayout> layouts, double[] mainSizes, double[] crossSizes) {
+        pool.invoke(new LayoutsTask(layouts, mainSizes, crossSizes, 0, layouts.size()));
+    }
+
+    private final class NodeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final FlexNode node;
+        private final double width, height;
+
+        NodeTask(FlexNode node, double width, double height) {
+            this.node = node;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        protected void compute() {
+            if (node.getSubtreeSize() < threshold) {
+                node.layoutChildren(width, height);
+                return;
+            }
+            if (!node.needsLayout(width, height)) {
+                return;
+            }
+            node.layoutOwnChildren(width, height);
+            List<FlexNode> children = node.children();
+            NodeTask[] tasks = new NodeTask[children.size()];
+            for (int i = 0; i < tasks.length; i++) {
+                FlexNode child = children.get(i);
+                Bounds bounds = child.getBounds();
+                tasks[i] = new NodeTask(child, bounds.getW(), bounds.getH());
+            }
+            invokeAll(tasks);
+            node.laidOut(width, height);
+        }
+    }
+
+    private final class RootsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final List<? extends FlexNode> roots;
+        private final double[] widths, heights;
+        private final int from, to;
+
+        RootsTask(List<? extends FlexNode> roots, double[] widths, double[] heights, int from, int to) {
+            this.roots = roots;
+            this.widths = widths;
+            this.heights = heights;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                new NodeTask(roots.get(from), widths[from], heights[from]).compute();
+                return;
+            }
+            int size = 0;
+            for (int i = from; i < to && size < threshold; i++) {
+                size += roots.get(i).getSubtreeSize();
+            }
+            if (size < threshold) {
+                for (int i = from; i < to; i++) {
+                    roots.get(i).layoutChildren(widths[i], heights[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RootsTask(roots, widths, heights, from, mid),
+                    new RootsTask(roots, widths, heights, mid, to));
+        }
+    }
+
+    private final class LayoutsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final List<FlexboxLayout> layouts;
+        private final double[] mainSizes, crossSizes;
+        private final int from, to;
+
+        LayoutsTask(List<FlexboxLayout> layouts, double[] mainSizes, double[] crossSizes, int from, int to) {
+            this.layouts = layouts;
+            this.mainSizes = mainSizes;
+            this.crossSizes = crossSizes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int size = 0;
+            for (int i = from; i < to && size < threshold; i++) {
+                size += layouts.get(i).getItemCount();
+            }
+            if (size < threshold || to - from == 1) {
+                for (int i = from; i < to; i++) {
+                    layouts.get(i).layoutSubViews(mainSizes[i], crossSizes[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new LayoutsTask(layouts, mainSizes, crossSizes, from, mid),
+                    new LayoutsTask(layouts, mainSizes, crossSizes, mid, to));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import java.util.Arrays;
+
+/**
+ * Prefix sums over a sequence of sizes, stored as a Fenwick tree. Sums,
+ * single updates and the search for the element at an offset take
+ * O(log n). After {@link #reset} the values are only collected and the tree
+ * is built in O(n) on the first query, so a full pass doesn't pay for n
+ * single updates.
+ * <p>
+ * Instances are reused between passes and don't allocate once the buffers
+ * are large enough.
+ *
+ * @author antonepple
+ */
+final class PrefixSums {
+
+    private double[] values = new double[0], tree = new double[1];
+    private int size;
+    private boolean built;
+
+    /**
+     * Removes all values and prepares for the given number of values.
+     *
+     * @param size the number of values
+     */
+    void reset(int size) {
+        if (values.length < size) {
+            int capacity = Math.max(16, Math.max(size, values.length * 2));
+            values = new double[capacity];
+            tree = new double[capacity + 1];
+        } else {
+            Arrays.fill(values, 0, size, 0);
+        }
+        this.size = size;
+        built = false;
+    }
+
+    /**
+     * @return the number of values
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Sets a value.
+     *
+     * @param i the index of the value
+     * @param value the value
+     */
+    void set(int i, double value) {
+        double delta = value - values[i];
+        if (delta == 0) {
+            return;
+        }
+        values[i] = value;
+        if (built) {
+            for (int j = i + 1; j <= size; j += j & -j) {
+                tree[j] += delta;
+            }
+        }
+    }
+
+    /**
+     * @param i the index of the value
+     * @return the value
+     */
+    double get(int i) {
+        return values[i];
+    }
+
+    /**
+     * @param to end of the range, exclusive
+     * @return the sum of the values before the given index
+     */
+    double sum(int to) {
+        build();
+        double sum = 0;
+        for (int j = to; j > 0; j -= j & -j) {
+            sum += tree[j];
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the element covering an offset, when the values are laid out one
+     * after another starting at 0. All values must not be negative.
+     *
+     * @param offset the offset
+     * @return the number of values ending at or before the offset, which is
+     * the index of the element covering it or size if the offset is beyond
+     * the last element
+     */
+    int find(double offset) {
+        build();
+        int position = 0;
+        for (int step = Integer.highestOneBit(Math.max(1, size)); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= size && tree[next] <= offset) {
+                position = next;
+                offset -= tree[next];
+            }
+        }
+        return position;
+    }
+
+    private void build() {
+        if (built) {
+            return;
+        }
+        for (int j = 1; j <= size; j++) {
+            tree[j] = values[j - 1];
+        }
+        for (int j = 1; j <= size; j++) {
+            int parent = j + (j & -j);
+            if (parent <= size) {
+                tree[parent] += tree[j];
+            }
+        }
+        built = true;
+    }
+}
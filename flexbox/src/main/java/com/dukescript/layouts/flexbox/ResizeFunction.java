@@ -0,0 +1,327 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The bounds of the items of a layout as a function of the main size of
+ * the container, precomputed for a range of main sizes, e.g. for a resize
+ * animation or while the user drags the border of a window. Between the
+ * main sizes where a line breaks differently or an item reaches its minimum
+ * or maximum size, all bounds are linear in the main size. These knots are
+ * found once when the function is computed. Afterwards
+ * {@link #evaluate(double, double[])} finds the segment with a binary
+ * search and interpolates the bounds in O(n), without running the layout.
+ * <p>
+ * The knots are found by subdividing the range until the bounds at a third
+ * and two thirds of a segment are the linear interpolation of its ends, and
+ * adjacent segments on the same line are merged again. Segments shorter
+ * than the resolution are interpolated if the bounds are continuous there,
+ * i.e. off by less than the resolution in their middle. Otherwise they
+ * contain a line break and return the bounds of their nearer end. The
+ * function keeps four doubles per item and knot, the layout runs a few
+ * dozen times per knot while it is computed.
+ * <p>
+ * The function is immutable and may be evaluated from several threads,
+ * {@link #apply(double)} sets the bounds of the items and has to be called
+ * on the thread owning them.
+ *
+ * @author antonepple
+ */
+public final class ResizeFunction {
+
+    /**
+     * Default for the shortest segment, in pixels.
+     */
+    public static final double DEFAULT_RESOLUTION = 1.0 / 16;
+
+    private static final double EPSILON = 1e-9;
+
+    private final FlexboxLayout layout;
+    private final List<FlexItem> items;
+    private final double crossSize;
+    private final double[] knots;
+    // the bounds at every knot, x, y, w and h per item
+    private final double[][] bounds;
+    // false for segments evaluated as a step
+    private final boolean[] linear;
+
+    private ResizeFunction(FlexboxLayout layout, List<FlexItem> items, double crossSize, double[] knots, double[][] bounds, boolean[] linear) {
+        this.layout = layout;
+        this.items = items;
+        this.crossSize = crossSize;
+        this.knots = knots;
+        this.bounds = bounds;
+        this.linear = linear;
+    }
+
+    /**
+     * Computes the function with the {@link #DEFAULT_RESOLUTION}.
+     *
+     * @see #compute(FlexboxLayout, double, double, double, double)
+     */
+    public static ResizeFunction compute(FlexboxLayout layout, double fromMainSize, double toMainSize, double crossSize) {
+        return compute(layout, fromMainSize, toMainSize, crossSize, DEFAULT_RESOLUTION);
+    }
+
+    /**
+     * Computes the function for the current items and settings of a layout.
+     * The layout lays out its items for many main sizes during the
+     * computation, their bounds are those of an arbitrary main size
+     * afterwards. Changes of the layout made later aren't reflected by the
+     * function.
+     *
+     * @param layout the layout
+     * @param fromMainSize the smallest main size
+     * @param toMainSize the largest main size
+     * @param crossSize the cross size of the container
+     * @param resolution the length of the shortest segment
+     * @return the function
+     * @throws IllegalArgumentException if the range is empty or the
+     * resolution isn't positive
+     */
+    public static ResizeFunction compute(FlexboxLayout layout, double fromMainSize, double toMainSize, double crossSize, double resolution) {
+        if (!(fromMainSize < toMainSize)) {
+            throw new IllegalArgumentException("empty range " + fromMainSize + " - " + toMainSize);
+        }
+        if (!(resolution > 0)) {
+            throw new IllegalArgumentException("resolution must be positive");
+        }
+        Builder builder = new Builder(layout, crossSize, resolution);
+        double[] from = builder.sample(fromMainSize), to = builder.sample(toMainSize);
+        builder.knot(fromMainSize, from);
+        builder.refine(fromMainSize, from, toMainSize, to);
+        return builder.build();
+    }
+
+    /**
+     * @return the number of items
+     */
+    public int getItemCount() {
+        return items.size();
+    }
+
+    /**
+     * @return the number of linear segments
+     */
+    public int getSegmentCount() {
+        return knots.length - 1;
+    }
+
+    public double getFromMainSize() {
+        return knots[0];
+    }
+
+    public double getToMainSize() {
+        return knots[knots.length - 1];
+    }
+
+    public double getCrossSize() {
+        return crossSize;
+    }
+
+    /**
+     * Computes the bounds of all items at a main size. Main sizes outside of
+     * the range get the bounds at its nearer end.
+     *
+     * @param mainSize the main size of the container
+     * @param result receives x, y, width and height of every item, in the
+     * order they were added to the layout
+     * @throws IllegalArgumentException if result is shorter than four
+     * doubles per item
+     */
+    public void evaluate(double mainSize, double[] result) {
+        int size = items.size() * 4;
+        if (result.length < size) {
+            throw new IllegalArgumentException("result needs " + size + " doubles");
+        }
+        int segment = segmentAt(mainSize);
+        double start = knots[segment], end = knots[segment + 1];
+        double[] from = bounds[segment], to = bounds[segment + 1];
+        if (mainSize <= start) {
+            System.arraycopy(from, 0, result, 0, size);
+        } else if (mainSize >= end) {
+            System.arraycopy(to, 0, result, 0, size);
+        } else if (!linear[segment]) {
+            System.arraycopy(mainSize - start < end - mainSize ? from : to, 0, result, 0, size);
+        } else {
+            double t = (mainSize - start) / (end - start);
+            for (int i = 0; i < size; i++) {
+                result[i] = from[i] + (to[i] - from[i]) * t;
+            }
+        }
+    }
+
+    /**
+     * Sets the bounds of all items to their bounds at a main size, like a
+     * layout pass does. The changed items and the damage are reported by the
+     * layout, see {@link FlexboxLayout#getChangedItems()}.
+     *
+     * @param mainSize the main size of the container
+     */
+    public void apply(double mainSize) {
+        double[] result = new double[items.size() * 4];
+        evaluate(mainSize, result);
+        layout.clearChangedItems();
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setBounds(result[i * 4], result[i * 4 + 1], result[i * 4 + 2], result[i * 4 + 3]);
+        }
+    }
+
+    /**
+     * @return the index of the segment containing the main size
+     */
+    int segmentAt(double mainSize) {
+        int index = Arrays.binarySearch(knots, mainSize);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return Math.max(0, Math.min(index, knots.length - 2));
+    }
+
+    boolean isLinear(int segment) {
+        return linear[segment];
+    }
+
+    double getKnot(int index) {
+        return knots[index];
+    }
+
+    private static final class Builder {
+
+        private final FlexboxLayout layout;
+        private final double crossSize;
+        private final double resolution;
+        private final List<FlexItem> items;
+        private final List<double[]> bounds = new ArrayList<>();
+        private double[] knots = new double[16];
+        private boolean[] linear = new boolean[16];
+        private int count;
+
+        Builder(FlexboxLayout layout, double crossSize, double resolution) {
+            this.layout = layout;
+            this.crossSize = crossSize;
+            this.resolution = resolution;
+            this.items = new ArrayList<>(layout.originalItems);
+        }
+
+        double[] sample(double mainSize) {
+            layout.layoutSubViews(mainSize, crossSize);
+            double[] sample = new double[items.size() * 4];
+            for (int i = 0; i < items.size(); i++) {
+                Bounds b = items.get(i).getBounds();
+                sample[i * 4] = b.getX();
+                sample[i * 4 + 1] = b.getY();
+                sample[i * 4 + 2] = b.getW();
+                sample[i * 4 + 3] = b.getH();
+            }
+            return sample;
+        }
+
+        /**
+         * Adds the knots of the segment from a to b, except for a, which has
+         * been added already.
+         */
+        void refine(double a, double[] from, double b, double[] to) {
+            if (b - a <= resolution) {
+                double[] middle = sample(a + (b - a) / 2);
+                segment(isInterpolated(from, to, middle, 0.5, resolution));
+                knot(b, to);
+                return;
+            }
+            double third = a + (b - a) / 3, twoThirds = a + 2 * (b - a) / 3;
+            double[] first = sample(third), second = sample(twoThirds);
+            if (isInterpolated(from, to, first, 1.0 / 3, 0) && isInterpolated(from, to, second, 2.0 / 3, 0)) {
+                segment(true);
+                knot(b, to);
+                return;
+            }
+            refine(a, from, third, first);
+            refine(third, first, twoThirds, second);
+            refine(twoThirds, second, b, to);
+        }
+
+        private static boolean isInterpolated(double[] from, double[] to, double[] value, double t, double tolerance) {
+            for (int i = 0; i < value.length; i++) {
+                double expected = from[i] + (to[i] - from[i]) * t;
+                if (Math.abs(value[i] - expected) > Math.max(tolerance, EPSILON * Math.max(1, Math.abs(expected)))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void knot(double mainSize, double[] sample) {
+            if (count == knots.length) {
+                knots = Arrays.copyOf(knots, count * 2);
+                linear = Arrays.copyOf(linear, count * 2);
+            }
+            knots[count++] = mainSize;
+            bounds.add(sample);
+        }
+
+        // the segment ending at the next knot
+        private void segment(boolean isLinear) {
+            linear[count - 1] = isLinear;
+        }
+
+        /**
+         * Merges runs of linear segments whose inner knots lie on the line
+         * from the start of the run to its end.
+         */
+        ResizeFunction build() {
+            double[] keptKnots = new double[count];
+            List<double[]> keptBounds = new ArrayList<>();
+            boolean[] keptLinear = new boolean[Math.max(1, count - 1)];
+            int kept = 0, start = 0;
+            keptKnots[kept++] = knots[0];
+            keptBounds.add(bounds.get(0));
+            for (int k = 1; k < count; k++) {
+                boolean merge = k < count - 1 && linear[k - 1] && linear[k];
+                for (int inner = start + 1; merge && inner <= k; inner++) {
+                    double t = (knots[inner] - knots[start]) / (knots[k + 1] - knots[start]);
+                    merge = isInterpolated(bounds.get(start), bounds.get(k + 1), bounds.get(inner), t, 0);
+                }
+                if (!merge) {
+                    keptLinear[kept - 1] = linear[k - 1];
+                    keptKnots[kept++] = knots[k];
+                    keptBounds.add(bounds.get(k));
+                    start = k;
+                }
+            }
+            return new ResizeFunction(layout, items, crossSize, Arrays.copyOf(keptKnots, kept),
+                    keptBounds.toArray(new double[kept][]), Arrays.copyOf(keptLinear, Math.max(1, kept - 1)));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem;
+import java.util.List;
+
+/**
+ * Lays out a container without any state shared between calls, so the same
+ * spec and the same items can be laid out by several threads at once, e.g.
+ * by render workers filling a template with different sizes:
+ * <pre>
+ * FlexboxSpec spec = FlexboxSpec.builder().flexDirection(FlexDirection.ROW).flexWrap(FlexWrap.WRAP).build();
+ * LayoutResult result = StatelessLayout.layout(spec, items, 400, 300);
+ * </pre>
+ * The items are only read, their bounds and other state aren't changed, so
+ * their getters must return the same values while they are laid out. Measure
+ * functions are called without the cache of the item, with the same
+ * constraints as by {@link FlexboxLayout}. The layout is computed by a
+ * {@link FlexboxArrayEngine}. Each thread keeps an engine for its calls, a layout started by a
+ * measure function while another one is running on the same thread gets an
+ * engine of its own.
+ *
+ * @author antonepple
+ */
+public final class StatelessLayout {
+
+    private static final ThreadLocal<FlexboxArrayEngine> ENGINES = new ThreadLocal<>();
+
+    private StatelessLayout() {
+    }
+
+    /**
+     * Lays out the items of a container.
+     *
+     * @param spec the settings of the container
+     * @param items the items of the container
+     * @param mainSize available size of the container in the main direction
+     * @param crossSize available size of the container in the cross
+     * direction
+     * @return the bounds of the items
+     */
+    public static LayoutResult layout(FlexboxSpec spec, List<? extends FlexItem> items, double mainSize, double crossSize) {
+        FlexboxArrayEngine engine = ENGINES.get();
+        if (engine == null) {
+            engine = new FlexboxArrayEngine();
+        } else {
+            // taken while in use, a nested layout creates its own
+            ENGINES.set(null);
+        }
+        try {
+            engine.setFlexDirection(spec.getFlexDirection());
+            engine.setFlexWrap(spec.getFlexWrap());
+            engine.setJustifyContent(spec.getJustifyContent());
+            engine.setAlignItems(spec.getAlignItems());
+            engine.setAlignContent(spec.getAlignContent());
+            engine.loadShared(items);
+            engine.layout(mainSize, crossSize);
+            return engine.toResult();
+        } finally {
+            engine.releaseItems();
+            ENGINES.set(engine);
+        }
+    }
+}
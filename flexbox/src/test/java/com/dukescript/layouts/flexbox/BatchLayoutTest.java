@@ -0,0 +1,127 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.BatchLayout.Job;
+import com.dukescript.layouts.flexbox.BatchLayout.Throughput;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author antonepple
+ */
+public class BatchLayoutTest {
+
+    private static List<Job> randomJobs(long seed, int count) {
+        Random random = new Random(seed);
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(random, random.nextInt(30));
+            jobs.add(new Job(items, 50 + random.nextInt(300), 50 + random.nextInt(300))
+                    .setFlexDirection(FlexDirection.values()[random.nextInt(4)])
+                    .setFlexWrap(FlexWrap.values()[random.nextInt(3)])
+                    .setJustifyContent(JustifyContent.values()[random.nextInt(5)])
+                    .setAlignItems(AlignItems.values()[random.nextInt(5)])
+                    .setAlignContent(AlignContent.values()[random.nextInt(6)]));
+        }
+        return jobs;
+    }
+
+    private static void assertSameAsLayout(List<Job> jobs) {
+        List<Job> expectedJobs = randomJobs(7, jobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            Job job = jobs.get(i);
+            Job expectedJob = expectedJobs.get(i);
+            FlexboxLayout expected = FlexboxArrayEngineTest.layout(expectedJob.getItems(), job.getFlexDirection(), job.getFlexWrap(),
+                    job.getJustifyContent(), job.getAlignItems(), job.getAlignContent());
+            expected.layoutSubViews(job.getMainSize(), job.getCrossSize());
+            Assert.assertArrayEquals("job " + i, FlexboxArrayEngineTest.bounds(expectedJob.getItems()),
+                    FlexboxArrayEngineTest.bounds(job.getItems()), 1e-9);
+            Assert.assertEquals(expected.getMinMainSize(), job.getMinMainSize(), 1e-9);
+            Assert.assertEquals(expected.getMinCrossSize(), job.getMinCrossSize(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testSameResultsAsLayout() {
+        List<Job> jobs = randomJobs(7, 500);
+        Throughput throughput = new BatchLayout().layout(jobs);
+        Assert.assertEquals(500, throughput.getJobs());
+        int items = 0;
+        for (Job job : jobs) {
+            items += job.getItems().size();
+        }
+        Assert.assertEquals(items, throughput.getItems());
+        assertSameAsLayout(jobs);
+    }
+
+    @Test
+    public void testExecutor() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            BatchLayout batchLayout = new BatchLayout(executor, 100);
+            List<Job> jobs = randomJobs(7, 500);
+            for (int batch = 0; batch < 3; batch++) {
+                Throughput throughput = batchLayout.layout(jobs);
+                Assert.assertEquals(500, throughput.getJobs());
+                Assert.assertTrue(throughput.getItemsPerSecond() > 0);
+            }
+            assertSameAsLayout(jobs);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailure() {
+        List<Job> jobs = randomJobs(7, 10);
+        jobs.add(new Job(Collections.singletonList((FlexItem) null), 100, 100));
+        try {
+            new BatchLayout(Runnable::run, 1).layout(jobs);
+            Assert.fail("null item");
+        } catch (NullPointerException ex) {
+            // expected
+        }
+    }
+}
@@ -33,16 +33,21 @@ import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
 import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
 import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
 import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem;
 import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem.AlignSelf;
 import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItemBase;
 import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
 import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
 /**
@@ -63,6 +68,7 @@ public class FlexBoxLayoutTest {
             flexItemImpl.setMinHeight(50);
             flexboxLayout.add(flexItemImpl);
         }
+        flexboxLayout.readInputs();
         flexboxLayout.sortChildren();
         flexboxLayout.calculateFlexLines(100);
         Assert.assertEquals(1, flexboxLayout.flexLines.size());
@@ -77,6 +83,7 @@ public class FlexBoxLayoutTest {
             flexItemImpl.setMinWidth(51);
             flexboxLayout.add(flexItemImpl);
         }
+        flexboxLayout.readInputs();
         flexboxLayout.sortChildren();
 
         flexboxLayout.calculateFlexLines(100);
@@ -86,6 +93,7 @@ public class FlexBoxLayoutTest {
         DefaultFlexItem flexItemImpl = new DefaultFlexItem();
         flexItemImpl.setMinWidth(151);
         flexboxLayout.add(flexItemImpl);
+        flexboxLayout.readInputs();
         flexboxLayout.sortChildren();
 
         flexboxLayout.calculateFlexLines(100);
@@ -132,17 +140,51 @@ public class FlexBoxLayoutTest {
         DefaultFlexItem flexItemImpl2 = DefaultFlexItem.builder().minWidth(50).build();
         flexboxLayout.add(flexItemImpl2);
         DefaultFlexItem flexItemImpl3 = DefaultFlexItem.builder().minWidth(51).build();
+        flexboxLayout.readInputs();
         flexboxLayout.sortChildren();
         flexboxLayout.add(flexItemImpl3);
         flexboxLayout.calculateFlexLines(100);
         Assert.assertEquals(2, flexboxLayout.flexLines.get(0).getFlexItems().size());
         flexItemImpl3.setOrder(-1);
+        flexboxLayout.readInputs();
         flexboxLayout.sortChildren();
         flexboxLayout.calculateFlexLines(100);
         Assert.assertEquals(1, flexboxLayout.flexLines.get(0).getFlexItems().size());
     }
 
 
+    @Test
+    public void testCachedOrder() {
+        FlexboxLayout flexboxLayout = new FlexboxLayout();
+        flexboxLayout.setFlexDirection(FlexDirection.ROW_REVERSE);
+        List<DefaultFlexItem> items = new ArrayList<>();
+        int[] orders = {3, -2, 0, 3, 100000, -2, 0};
+        for (int order : orders) {
+            DefaultFlexItem item = DefaultFlexItem.builder().minWidth(10).order(order).build();
+            items.add(item);
+            flexboxLayout.add(item);
+        }
+        flexboxLayout.readInputs();
+        flexboxLayout.sortChildren();
+        int[] expected = {1, 5, 2, 6, 0, 3, 4};
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertSame(items.get(expected[i]), flexboxLayout.items.get(i));
+        }
+        List<FlexItem> sorted = flexboxLayout.items;
+        flexboxLayout.readInputs();
+        flexboxLayout.sortChildren();
+        Assert.assertSame(sorted, flexboxLayout.items);
+        Assert.assertSame(items.get(1), sorted.get(0));
+        items.get(4).setOrder(-5);
+        flexboxLayout.readInputs();
+        flexboxLayout.sortChildren();
+        Assert.assertSame(items.get(4), flexboxLayout.items.get(0));
+        flexboxLayout.layoutSubViews(100, 100);
+        // reverse direction starts with the last item in order
+        Assert.assertEquals(60, items.get(4).getBounds().getX(), 0);
+        Assert.assertEquals(0, items.get(3).getBounds().getX(), 0);
+    }
+
     @Test
     public void testCalculateFlexLinesReversion() {
         FlexboxLayout flexboxLayout = new FlexboxLayout();
@@ -154,6 +196,7 @@ public class FlexBoxLayoutTest {
             flexItemImpl.setMinWidth(50);
             flexboxLayout.add(flexItemImpl);
         }
+        flexboxLayout.readInputs();
         flexboxLayout.sortChildren();
         flexboxLayout.calculateFlexLines(100);
         Assert.assertEquals(2, flexboxLayout.flexLines.get(0).getFlexItems().size());
@@ -169,12 +212,15 @@ public class FlexBoxLayoutTest {
         DefaultFlexItem flexItemImpl = DefaultFlexItem.builder()
                 .width(50).height(50).build();
         flexItemImpl.setMainTargetSize(50);
+        flexItemImpl.readInputs(true);
         DefaultFlexItem flexItemImpl2 = DefaultFlexItem.builder()
                 .width(50).height(50).build();
         flexItemImpl2.setMainTargetSize(50);
+        flexItemImpl2.readInputs(true);
         DefaultFlexItem flexItemImpl3 = DefaultFlexItem.builder()
                 .width(50).height(50).build();
         flexItemImpl3.setMainTargetSize(50);
+        flexItemImpl3.readInputs(true);
         flexLine.addFlexItem(flexItemImpl);
         flexLine.addFlexItem(flexItemImpl2);
         flexLine.addFlexItem(flexItemImpl3);
@@ -203,9 +249,11 @@ public class FlexBoxLayoutTest {
         DefaultFlexItem flexItemImpl = DefaultFlexItem.builder()
                 .width(50).height(50).flexGrow(1).maxWidth(60).build();
         flexItemImpl.setMainTargetSize(50);
+        flexItemImpl.readInputs(true);
         DefaultFlexItem flexItemImpl2 = DefaultFlexItem.builder()
                 .width(50).height(50).flexGrow(1).build();
         flexItemImpl2.setMainTargetSize(50);
+        flexItemImpl2.readInputs(true);
         flexLine.addFlexItem(flexItemImpl);
         flexLine.addFlexItem(flexItemImpl2);
         FlexboxLayout flexboxLayout = new FlexboxLayout();
@@ -227,6 +275,7 @@ public class FlexBoxLayoutTest {
             flexItemImpl.setMinHeight(20);
             flexboxLayout.add(flexItemImpl);
         }
+        flexboxLayout.readInputs();
         flexboxLayout.sortChildren();
         flexboxLayout.calculateFlexLines(100);
         flexboxLayout.alignContent(500);
@@ -361,4 +410,1017 @@ public class FlexBoxLayoutTest {
         Assert.assertEquals(100, flexItem2.bounds.getW(), 0.001);
     }
 
+    @Test
+    public void testSkipUnchangedPass() {
+        final int[] applied = new int[1];
+        FlexboxLayout layout = new FlexboxLayout();
+        layout.setFlexWrap(FlexWrap.WRAP);
+        layout.setFlexDirection(FlexDirection.ROW);
+        for (int i = 0; i < 10; i++) {
+            DefaultFlexItem item = new DefaultFlexItem() {
+                @Override
+                protected void adjustBounds(Bounds bounds) {
+                    applied[0]++;
+                }
+            };
+            item.setMinWidth(50);
+            item.setMinHeight(20);
+            layout.add(item);
+        }
+        layout.layoutSubViews(200, 400);
+        Assert.assertEquals(10, applied[0]);
+        layout.layoutSubViews(200, 400);
+        Assert.assertEquals(10, applied[0]);
+    }
+
+    @Test
+    public void testPartialRelayout() {
+        java.util.Random random = new java.util.Random(42);
+        for (FlexWrap wrap : FlexWrap.values()) {
+            for (AlignContent alignContent : AlignContent.values()) {
+                List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(random, 40);
+                FlexboxLayout layout = FlexboxArrayEngineTest.layout(items, FlexDirection.ROW, wrap,
+                        JustifyContent.SPACE_AROUND, AlignItems.STRETCH, alignContent);
+                layout.layoutSubViews(300, 500);
+                for (int run = 0; run < 50; run++) {
+                    DefaultFlexItem item = items.get(random.nextInt(items.size()));
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            item.setMinWidth(random.nextInt(80));
+                            break;
+                        case 1:
+                            item.setFlexGrow(random.nextInt(3));
+                            break;
+                        case 2:
+                            item.setFlexAlignSelf(AlignSelf.values()[random.nextInt(AlignSelf.values().length)]);
+                            break;
+                        default:
+                            item.setHeight(random.nextBoolean() ? -1 : random.nextInt(60));
+                    }
+                    double crossSize = random.nextBoolean() ? 500 : 300 + random.nextInt(300);
+                    layout.layoutSubViews(300, crossSize);
+                    FlexboxArrayEngine engine = new FlexboxArrayEngine();
+                    engine.setFlexDirection(FlexDirection.ROW);
+                    engine.setFlexWrap(wrap);
+                    engine.setJustifyContent(JustifyContent.SPACE_AROUND);
+                    engine.setAlignItems(AlignItems.STRETCH);
+                    engine.setAlignContent(alignContent);
+                    engine.load(items);
+                    engine.layout(300, crossSize);
+                    for (int i = 0; i < items.size(); i++) {
+                        Bounds bounds = items.get(i).getBounds();
+                        Assert.assertEquals(engine.getX(i), bounds.getX(), 0);
+                        Assert.assertEquals(engine.getY(i), bounds.getY(), 0);
+                        Assert.assertEquals(engine.getW(i), bounds.getW(), 0);
+                        Assert.assertEquals(engine.getH(i), bounds.getH(), 0);
+                    }
+                    Assert.assertEquals(engine.getMinMainSize(), layout.getMinMainSize(), 0);
+                    Assert.assertEquals(engine.getMinCrossSize(), layout.getMinCrossSize(), 0);
+                }
+            }
+        }
+    }
+
+    private static DefaultFlexItem copy(FlexItem item) {
+        return DefaultFlexItem.builder()
+                .width(item.getWidth()).height(item.getHeight())
+                .minWidth(item.getMinWidth()).minHeight(item.getMinHeight())
+                .maxWidth(item.getMaxWidth()).maxHeight(item.getMaxHeight())
+                .marginLeft(item.getMarginLeft()).marginTop(item.getMarginTop())
+                .marginRight(item.getMarginRight()).marginBottom(item.getMarginBottom())
+                .flexGrow(item.getFlexGrow()).flexShrink(item.getFlexShrink())
+                .flexBasisPercent(item.getFlexBasisPercent()).order(item.getOrder())
+                .flexAlignSelf(item.getFlexAlignSelf())
+                .build();
+    }
+
+    private static void mutate(Random random, DefaultFlexItem item) {
+        switch (random.nextInt(10)) {
+            case 0:
+                item.setWidth(random.nextBoolean() ? -1 : 10 + random.nextInt(80));
+                break;
+            case 1:
+                item.setHeight(random.nextBoolean() ? -1 : 10 + random.nextInt(60));
+                break;
+            case 2:
+                item.setMinWidth(random.nextInt(60));
+                break;
+            case 3:
+                item.setMaxHeight(random.nextBoolean() ? Double.MAX_VALUE : 20 + random.nextInt(60));
+                break;
+            case 4:
+                item.setMarginLeft(random.nextInt(3) * 2);
+                break;
+            case 5:
+                item.setMarginBottom(random.nextInt(3) * 2);
+                break;
+            case 6:
+                item.setFlexGrow(random.nextInt(3));
+                break;
+            case 7:
+                item.setFlexShrink(random.nextInt(3));
+                break;
+            case 8:
+                item.setFlexAlignSelf(AlignSelf.values()[random.nextInt(AlignSelf.values().length)]);
+                break;
+            default:
+                item.setOrder(random.nextInt(4) == 0 ? random.nextInt(3) - 1 : 0);
+        }
+    }
+
+    /**
+     * Partial passes must give the results of a full pass of a new layout,
+     * whatever changes between them.
+     */
+    @Test
+    public void testPartialPassesMatchFullPass() {
+        List<DefaultFlexItem> items = Arrays.asList(
+                DefaultFlexItem.builder().width(50).height(10).build(),
+                DefaultFlexItem.builder().width(60).height(10).build());
+        FlexboxLayout layout = FlexboxArrayEngineTest.layout(items, FlexDirection.ROW, FlexWrap.WRAP,
+                JustifyContent.FLEX_START, AlignItems.FLEX_START, AlignContent.FLEX_START);
+        layout.layoutSubViews(100, 100);
+        Assert.assertEquals("0.0 10.0 60.0 10.0", toString(items.get(1).getBounds()));
+        items.get(1).setWidth(40);
+        layout.layoutSubViews(100, 100);
+        Assert.assertEquals("the first item of a line moves to the line before", "50.0 0.0 40.0 10.0", toString(items.get(1).getBounds()));
+
+        checkIncrementalPasses(new Random(2024), 2000, false);
+    }
+
+    /**
+     * Lays out random layouts after random changes and compares them with a
+     * full pass of a new layout with the same items.
+     *
+     * @param resize whether the main size changes between passes too
+     * @return the number of resize passes
+     */
+    private static int checkIncrementalPasses(Random random, int runs, boolean resize) {
+        final int[] resizes = {0};
+        LayoutTracer tracer = new LayoutTracer() {
+            @Override
+            public void passStarted(FlexboxLayout layout, LayoutTracer.Pass pass, double mainSize, double crossSize) {
+                if (pass == LayoutTracer.Pass.RESIZE) {
+                    resizes[0]++;
+                }
+            }
+        };
+        for (int run = 0; run < runs; run++) {
+            FlexDirection direction = FlexDirection.values()[random.nextInt(FlexDirection.values().length)];
+            FlexWrap wrap = FlexWrap.values()[random.nextInt(FlexWrap.values().length)];
+            JustifyContent justifyContent = JustifyContent.values()[random.nextInt(JustifyContent.values().length)];
+            AlignItems alignItems = AlignItems.values()[random.nextInt(AlignItems.values().length)];
+            AlignContent alignContent = AlignContent.values()[random.nextInt(AlignContent.values().length)];
+            List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(random, 1 + random.nextInt(25));
+            FlexboxLayout layout = FlexboxArrayEngineTest.layout(items, direction, wrap, justifyContent, alignItems, alignContent);
+            layout.setLayoutTracer(tracer);
+            double mainSize = 100 + random.nextInt(300), crossSize = 100 + random.nextInt(300);
+            layout.layoutSubViews(mainSize, crossSize);
+            for (int step = 0; step < 6; step++) {
+                int changes = random.nextInt(4);
+                for (int c = 0; c < changes; c++) {
+                    mutate(random, items.get(random.nextInt(items.size())));
+                }
+                if (resize && random.nextBoolean()) {
+                    if (changes > 0) {
+                        // the changes are laid out by a partial pass before the resize
+                        layout.layoutSubViews(mainSize, crossSize);
+                    }
+                    mainSize = 100 + random.nextInt(300);
+                } else if (random.nextBoolean()) {
+                    crossSize = 100 + random.nextInt(300);
+                }
+                layout.layoutSubViews(mainSize, crossSize);
+                List<DefaultFlexItem> copies = new ArrayList<>();
+                for (DefaultFlexItem item : items) {
+                    copies.add(copy(item));
+                }
+                FlexboxLayout full = FlexboxArrayEngineTest.layout(copies, direction, wrap, justifyContent, alignItems, alignContent);
+                full.layoutSubViews(mainSize, crossSize);
+                String message = "run " + run + " step " + step + " " + direction + " " + wrap + " " + justifyContent
+                        + " " + alignItems + " " + alignContent;
+                Assert.assertArrayEquals(message, FlexboxArrayEngineTest.bounds(copies), FlexboxArrayEngineTest.bounds(items), 1e-9);
+                Assert.assertEquals(message, full.getMinMainSize(), layout.getMinMainSize(), 1e-9);
+                Assert.assertEquals(message, full.getMinCrossSize(), layout.getMinCrossSize(), 1e-9);
+            }
+        }
+        return resizes[0];
+    }
+
+    /**
+     * Resize passes following partial passes must keep the lines only if a
+     * full pass breaks them the same way.
+     */
+    @Test
+    public void testResizeAfterPartialPasses() {
+        int resizes = checkIncrementalPasses(new Random(2025), 2000, true);
+        Assert.assertTrue("resize passes " + resizes, resizes > 1000);
+    }
+
+    @Test
+    public void testLayoutCache() {
+        FlexboxLayout layout = new FlexboxLayout();
+        layout.setFlexWrap(FlexWrap.WRAP);
+        layout.setFlexDirection(FlexDirection.ROW);
+        layout.setLayoutCacheSize(2);
+        DefaultFlexItem flexItem = DefaultFlexItem.builder().minWidth(100).minHeight(20).flexGrow(1).build();
+        DefaultFlexItem flexItem2 = DefaultFlexItem.builder().minWidth(100).minHeight(20).build();
+        layout.add(flexItem);
+        layout.add(flexItem2);
+        layout.layoutSubViews(250, 400);
+        Assert.assertEquals(150, flexItem.getBounds().getW(), 0.001);
+        layout.layoutSubViews(150, 400);
+        Assert.assertEquals(150, flexItem.getBounds().getW(), 0.001);
+        Assert.assertEquals(20, flexItem2.getBounds().getY(), 0.001);
+        Assert.assertEquals(0, layout.getLayoutCacheHits());
+        Assert.assertEquals(2, layout.getLayoutCacheMisses());
+
+        layout.layoutSubViews(250, 400);
+        Assert.assertEquals(1, layout.getLayoutCacheHits());
+        Assert.assertEquals(150, flexItem.getBounds().getW(), 0.001);
+        Assert.assertEquals(0, flexItem2.getBounds().getY(), 0.001);
+        Assert.assertEquals(20, layout.getMinCrossSize(), 0.001);
+
+        flexItem2.setMinWidth(50);
+        layout.layoutSubViews(250, 400);
+        Assert.assertEquals(1, layout.getLayoutCacheHits());
+        Assert.assertEquals(200, flexItem.getBounds().getW(), 0.001);
+        flexItem2.setMinWidth(100);
+        layout.layoutSubViews(250, 400);
+        Assert.assertEquals(2, layout.getLayoutCacheHits());
+        Assert.assertEquals(150, flexItem.getBounds().getW(), 0.001);
+        // 150 was evicted
+        layout.layoutSubViews(150, 400);
+        Assert.assertEquals(2, layout.getLayoutCacheHits());
+        Assert.assertEquals(20, flexItem2.getBounds().getY(), 0.001);
+        // items without a measure function still match the cache
+        layout.invalidateMeasurements();
+        layout.layoutSubViews(250, 400);
+        Assert.assertEquals(3, layout.getLayoutCacheHits());
+    }
+
+    @Test
+    public void testSteadyStateAllocatesNothing() {
+        java.lang.management.ThreadMXBean threadBean = java.lang.management.ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+        Assume.assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+
+        List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(new java.util.Random(7), 200);
+        FlexboxLayout layout = FlexboxArrayEngineTest.layout(items, FlexDirection.ROW_REVERSE, FlexWrap.WRAP_REVERSE,
+                JustifyContent.SPACE_AROUND, AlignItems.STRETCH, AlignContent.STRETCH);
+        // alternating sizes force a complete pass every time
+        for (int i = 0; i < 5000; i++) {
+            layout.layoutSubViews(i % 2 == 0 ? 600 : 500, 800);
+        }
+        long threadId = Thread.currentThread().getId();
+        long start = bean.getThreadAllocatedBytes(threadId);
+        long overhead = bean.getThreadAllocatedBytes(threadId) - start;
+        // the JIT may still allocate while it recompiles, so a few rounds are
+        // measured and one of them has to be free of allocations
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < 5 && allocated != 0; round++) {
+            start = bean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 1000; i++) {
+                layout.layoutSubViews(i % 2 == 0 ? 600 : 500, 800);
+            }
+            allocated = bean.getThreadAllocatedBytes(threadId) - start - overhead;
+        }
+        Assert.assertEquals(0, allocated);
+    }
+
+
+    @Test
+    public void testLayoutTracer() {
+        FlexboxLayout flexboxLayout = new FlexboxLayout();
+        flexboxLayout.setFlexDirection(FlexDirection.ROW);
+        flexboxLayout.setFlexWrap(FlexWrap.WRAP);
+        flexboxLayout.setJustifyContent(JustifyContent.FLEX_START);
+        flexboxLayout.setAlignItems(AlignItems.FLEX_START);
+        flexboxLayout.setAlignContent(AlignContent.FLEX_START);
+        flexboxLayout.add(DefaultFlexItem.builder().minWidth(50).minHeight(20).build());
+        flexboxLayout.add(DefaultFlexItem.builder().minWidth(30).minHeight(20).maxWidth(40).flexGrow(1).build());
+        flexboxLayout.add(DefaultFlexItem.builder().minWidth(60).minHeight(20).build());
+        DecisionLogTracer tracer = new DecisionLogTracer();
+        flexboxLayout.setLayoutTracer(tracer);
+        flexboxLayout.layoutSubViews(100, 100);
+        String[] log = tracer.toString().split("\n");
+        Assert.assertEquals("FULL 100x100 ROW WRAP FLEX_START FLEX_START FLEX_START", log[0]);
+        Assert.assertEquals(" line 0 #0", log[1]);
+        Assert.assertEquals(" hyp #0 50 20", log[2]);
+        Assert.assertEquals(" hyp #1 30 20", log[3]);
+        Assert.assertEquals(" hyp #2 60 20", log[4]);
+        Assert.assertEquals(" line 1 #2", log[5]);
+        Assert.assertEquals(" clamp #1 50 -> 40", log[6]);
+        Assert.assertEquals(" bounds #2 0,20 60x20", log[log.length - 2]);
+        Assert.assertTrue(log[log.length - 1], log[log.length - 1].startsWith("end 3 items "));
+        flexboxLayout.layoutSubViews(100, 100);
+        Assert.assertEquals("unchanged pass is skipped", log.length, tracer.toString().split("\n").length);
+    }
+
+    @Test
+    public void testViewport() {
+        List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(new Random(3), 5000);
+        List<DefaultFlexItem> expectedItems = FlexboxArrayEngineTest.randomItems(new Random(3), 5000);
+        FlexboxLayout expected = FlexboxArrayEngineTest.layout(expectedItems, FlexDirection.ROW, FlexWrap.WRAP,
+                JustifyContent.SPACE_BETWEEN, AlignItems.CENTER, AlignContent.SPACE_AROUND);
+        expected.layoutSubViews(500, 100000);
+        FlexboxLayout flexboxLayout = FlexboxArrayEngineTest.layout(items, FlexDirection.ROW, FlexWrap.WRAP,
+                JustifyContent.SPACE_BETWEEN, AlignItems.CENTER, AlignContent.SPACE_AROUND);
+        flexboxLayout.setViewport(new Bounds(0, 1000, 500, 300));
+        flexboxLayout.layoutSubViews(500, 100000);
+        Assert.assertEquals(expected.getMinCrossSize(), flexboxLayout.getMinCrossSize(), 0);
+        int laidOut = assertViewport(flexboxLayout, items, expectedItems, 1000, 1300);
+        Assert.assertTrue(laidOut > 0 && laidOut < 500);
+
+        flexboxLayout.setViewport(new Bounds(0, 1200, 500, 300));
+        flexboxLayout.layoutSubViews(500, 100000);
+        assertViewport(flexboxLayout, items, expectedItems, 1000, 1500);
+
+        items.get(0).setWidth(100);
+        expectedItems.get(0).setWidth(100);
+        expected.layoutSubViews(500, 100000);
+        flexboxLayout.layoutSubViews(500, 100000);
+        assertViewport(flexboxLayout, items, expectedItems, 1200, 1500);
+
+        flexboxLayout.setViewport(null);
+        flexboxLayout.layoutSubViews(500, 100000);
+        Assert.assertArrayEquals(FlexboxArrayEngineTest.bounds(expectedItems), FlexboxArrayEngineTest.bounds(items), 0);
+    }
+
+    @Test
+    public void testLineIndex() {
+        FlexDirection[] directions = {FlexDirection.ROW, FlexDirection.ROW_REVERSE, FlexDirection.COLUMN};
+        FlexWrap[] wraps = {FlexWrap.WRAP, FlexWrap.WRAP_REVERSE, FlexWrap.NOWRAP};
+        for (int c = 0; c < directions.length; c++) {
+            List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(new Random(c), 2000);
+            FlexboxLayout flexboxLayout = FlexboxArrayEngineTest.layout(items, directions[c], wraps[c],
+                    JustifyContent.CENTER, AlignItems.STRETCH, AlignContent.SPACE_AROUND);
+            flexboxLayout.layoutSubViews(500, 100000);
+            assertLineIndex(flexboxLayout, items);
+            items.get(1500).setWidth(200);
+            items.get(1600).setHeight(70);
+            flexboxLayout.layoutSubViews(500, 100000);
+            assertLineIndex(flexboxLayout, items);
+        }
+        FlexboxLayout flexboxLayout = new FlexboxLayout();
+        flexboxLayout.setLayoutCacheSize(4);
+        flexboxLayout.add(DefaultFlexItem.builder().width(50).height(50).build());
+        flexboxLayout.layoutSubViews(100, 100);
+        flexboxLayout.layoutSubViews(200, 100);
+        flexboxLayout.layoutSubViews(100, 100);
+        try {
+            flexboxLayout.getLineCount();
+            Assert.fail("cached passes have no lines");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    private static void assertLineIndex(FlexboxLayout flexboxLayout, List<DefaultFlexItem> items) {
+        int lineCount = flexboxLayout.getLineCount();
+        List<List<FlexItem>> lines = new ArrayList<>();
+        double contentCrossSize = 0;
+        for (int l = 0; l < lineCount; l++) {
+            lines.add(new ArrayList<>());
+            contentCrossSize = Math.max(contentCrossSize, flexboxLayout.getLineCrossStart(l) + flexboxLayout.getLineCrossSize(l));
+        }
+        Assert.assertEquals(contentCrossSize, flexboxLayout.getContentCrossSize(), 0);
+        for (int i = 0; i < items.size(); i++) {
+            int l = flexboxLayout.getLineOfItem(i);
+            Assert.assertSame(flexboxLayout.flexLines.get(l), items.get(i).line);
+            lines.get(l).add(items.get(i));
+        }
+        for (int l = 0; l < lineCount; l++) {
+            List<FlexItem> line = lines.get(l);
+            // in the order the items are placed
+            line.sort((a, b) -> Integer.compare(a.position, b.position));
+            double offset = 0;
+            for (FlexItem item : line) {
+                Assert.assertEquals(offset, flexboxLayout.getItemMainOffset(item.index), 1e-6);
+                if (item.hypotheticalMainSize > 1e-3) {
+                    Assert.assertEquals(item.index, flexboxLayout.getItemAt(l, offset + item.hypotheticalMainSize / 2));
+                }
+                offset += item.hypotheticalMainSize;
+            }
+            double start = flexboxLayout.getLineCrossStart(l), size = flexboxLayout.getLineCrossSize(l);
+            if (size > 0 && (l == 0 || flexboxLayout.getLineCrossStart(l - 1) + flexboxLayout.getLineCrossSize(l - 1) <= start)) {
+                Assert.assertEquals(l, flexboxLayout.getLineAt(start + size / 2));
+                Assert.assertEquals(flexboxLayout.getLineOfItem(flexboxLayout.getItemAt(start + size / 2)), l);
+            }
+        }
+        Assert.assertEquals(lineCount - 1, flexboxLayout.getLineAt(contentCrossSize + 1));
+    }
+
+    @Test
+    public void testSpatialQueries() {
+        FlexDirection[] directions = {FlexDirection.ROW, FlexDirection.COLUMN_REVERSE, FlexDirection.ROW_REVERSE};
+        FlexWrap[] wraps = {FlexWrap.WRAP, FlexWrap.WRAP_REVERSE, FlexWrap.NOWRAP};
+        Random random = new Random(42);
+        for (int c = 0; c < directions.length; c++) {
+            List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(new Random(c), 1000);
+            FlexboxLayout flexboxLayout = FlexboxArrayEngineTest.layout(items, directions[c], wraps[c],
+                    JustifyContent.SPACE_AROUND, AlignItems.CENTER, AlignContent.SPACE_BETWEEN);
+            flexboxLayout.layoutSubViews(500, 20000);
+            int hits = 0;
+            for (int i = 0; i < 2000; i++) {
+                double main = random.nextDouble() * 600 - 50, cross = random.nextDouble() * 20100 - 50;
+                double x = flexboxLayout.isHorizontal() ? main : cross, y = flexboxLayout.isHorizontal() ? cross : main;
+                FlexItem expected = null;
+                for (FlexItem item : items) {
+                    Bounds b = item.getBounds();
+                    if (x >= b.getX() && x < b.getX() + b.getW() && y >= b.getY() && y < b.getY() + b.getH()) {
+                        expected = item;
+                    }
+                }
+                Assert.assertSame(x + "," + y, expected, flexboxLayout.itemAt(x, y));
+                hits += expected != null ? 1 : 0;
+            }
+            Assert.assertTrue(hits > 0);
+            for (int i = 0; i < 200; i++) {
+                Bounds area = flexboxLayout.isHorizontal()
+                        ? new Bounds(random.nextInt(500), random.nextInt(20000), random.nextInt(200), random.nextInt(200))
+                        : new Bounds(random.nextInt(20000), random.nextInt(500), random.nextInt(200), random.nextInt(200));
+                List<FlexItem> expected = new ArrayList<>();
+                for (FlexItem item : items) {
+                    Bounds b = item.getBounds();
+                    if (b.getX() < area.getX() + area.getW() && area.getX() < b.getX() + b.getW()
+                            && b.getY() < area.getY() + area.getH() && area.getY() < b.getY() + b.getH()) {
+                        expected.add(item);
+                    }
+                }
+                List<FlexItem> found = flexboxLayout.itemsIntersecting(area);
+                Assert.assertEquals(area.toString(), expected.size(), found.size());
+                Assert.assertTrue(found.containsAll(expected));
+            }
+        }
+    }
+
+    @Test
+    public void testSpatialQueriesOutOfLine() {
+        // baseline alignment, stretching and negative margins place items
+        // outside of the band of their line
+        Random random = new Random(4711);
+        for (FlexDirection direction : FlexDirection.values()) {
+            for (FlexWrap wrap : FlexWrap.values()) {
+                for (int round = 0; round < 3; round++) {
+                    List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(random, 300);
+                    for (DefaultFlexItem item : items) {
+                        if (random.nextInt(8) == 0) {
+                            item.setMarginTop(-random.nextInt(30));
+                            item.setMarginLeft(-random.nextInt(30));
+                        }
+                    }
+                    FlexboxLayout flexboxLayout = FlexboxArrayEngineTest.layout(items, direction, wrap,
+                            JustifyContent.values()[random.nextInt(JustifyContent.values().length)],
+                            AlignItems.values()[random.nextInt(AlignItems.values().length)],
+                            AlignContent.values()[random.nextInt(AlignContent.values().length)]);
+                    flexboxLayout.layoutSubViews(400, 3000);
+                    checkSpatialQueries(flexboxLayout, items, random);
+                    // partial pass
+                    for (int i = 0; i < 5; i++) {
+                        items.get(random.nextInt(items.size())).setHeight(10 + random.nextInt(80));
+                    }
+                    flexboxLayout.layoutSubViews(400, 3000);
+                    checkSpatialQueries(flexboxLayout, items, random);
+                    // resize pass
+                    flexboxLayout.layoutSubViews(400 + random.nextInt(5), 3000);
+                    checkSpatialQueries(flexboxLayout, items, random);
+                }
+            }
+        }
+    }
+
+    private static void checkSpatialQueries(FlexboxLayout flexboxLayout, List<DefaultFlexItem> items, Random random) {
+        for (int i = 0; i < 500; i++) {
+            double x = random.nextDouble() * 3200 - 100, y = random.nextDouble() * 3200 - 100;
+            if (flexboxLayout.isHorizontal() ? x > 500 : y > 500) {
+                // most of the items are close to the cross axis
+                x = flexboxLayout.isHorizontal() ? x % 500 : x;
+                y = flexboxLayout.isHorizontal() ? y : y % 500;
+            }
+            FlexItem expected = null;
+            for (FlexItem item : items) {
+                Bounds b = item.getBounds();
+                if (x >= b.getX() && x < b.getX() + b.getW() && y >= b.getY() && y < b.getY() + b.getH()) {
+                    expected = item;
+                }
+            }
+            Assert.assertSame(x + "," + y, expected, flexboxLayout.itemAt(x, y));
+        }
+        for (int i = 0; i < 100; i++) {
+            Bounds area = new Bounds(random.nextInt(3000) - 100, random.nextInt(3000) - 100, random.nextInt(150), random.nextInt(150));
+            if (flexboxLayout.isHorizontal()) {
+                area.setX(area.getX() % 500);
+            } else {
+                area.setY(area.getY() % 500);
+            }
+            List<FlexItem> expected = new ArrayList<>();
+            for (FlexItem item : items) {
+                Bounds b = item.getBounds();
+                if (b.getX() < area.getX() + area.getW() && area.getX() < b.getX() + b.getW()
+                        && b.getY() < area.getY() + area.getH() && area.getY() < b.getY() + b.getH()) {
+                    expected.add(item);
+                }
+            }
+            List<FlexItem> found = flexboxLayout.itemsIntersecting(area);
+            Assert.assertEquals(area.toString(), expected.size(), found.size());
+            Assert.assertTrue(found.containsAll(expected));
+        }
+    }
+
+    @Test
+    public void testIntrinsicSizes() {
+        FlexboxLayout flexboxLayout = new FlexboxLayout();
+        flexboxLayout.setFlexDirection(FlexDirection.ROW);
+        flexboxLayout.setFlexWrap(FlexWrap.WRAP);
+        Assert.assertEquals(0, flexboxLayout.computeMaxContentMainSize(), 0);
+        Assert.assertEquals(0, flexboxLayout.computeContentCrossSize(100), 0);
+        CountingItem first = new CountingItem(50, 0), second = new CountingItem(80, 0), third = new CountingItem(30, 0);
+        flexboxLayout.add(first);
+        flexboxLayout.add(second);
+        flexboxLayout.add(third);
+        // CountingItems are 20 high with margins of 2 and 1
+        Assert.assertEquals(84, flexboxLayout.computeMinContentMainSize(), 0);
+        Assert.assertEquals(172, flexboxLayout.computeMaxContentMainSize(), 0);
+        Assert.assertEquals(22, flexboxLayout.computeContentCrossSize(172), 0);
+        Assert.assertEquals(44, flexboxLayout.computeContentCrossSize(150), 0);
+        Assert.assertEquals(66, flexboxLayout.computeContentCrossSize(100), 0);
+        Assert.assertEquals(22, flexboxLayout.computeContentCrossSize(Double.POSITIVE_INFINITY), 0);
+
+        // answered without reading the items again
+        int reads = first.reads;
+        Assert.assertEquals(44, flexboxLayout.computeContentCrossSize(150), 0);
+        Assert.assertEquals(172, flexboxLayout.computeMaxContentMainSize(), 0);
+        Assert.assertEquals(reads, first.reads);
+        second.setWidth(40);
+        Assert.assertEquals(44, flexboxLayout.computeContentCrossSize(100), 0);
+        Assert.assertEquals(132, flexboxLayout.computeMaxContentMainSize(), 0);
+        Assert.assertTrue(first.reads > reads);
+        flexboxLayout.setFlexWrap(FlexWrap.NOWRAP);
+        Assert.assertEquals(22, flexboxLayout.computeContentCrossSize(100), 0);
+        Assert.assertEquals(132, flexboxLayout.computeMinContentMainSize(), 0);
+
+        // the bounds of the last pass are kept
+        flexboxLayout.layoutSubViews(200, 100);
+        String bounds = toString(first.getBounds());
+        flexboxLayout.setFlexWrap(FlexWrap.WRAP);
+        flexboxLayout.computeContentCrossSize(10);
+        Assert.assertEquals(bounds, toString(first.getBounds()));
+
+        // the inputs of the last pass are kept for the next partial pass
+        flexboxLayout.layoutSubViews(200, 100);
+        second.setWidth(60);
+        Assert.assertEquals(152, flexboxLayout.computeMaxContentMainSize(), 0);
+        Assert.assertEquals(40, second.explicitMain, 0);
+        flexboxLayout.layoutSubViews(200, 100);
+        Assert.assertEquals(60, second.explicitMain, 0);
+        Assert.assertEquals(60, second.getBounds().getW(), 0);
+    }
+
+    @Test
+    public void testIntrinsicCrossSizeMatchesLayout() {
+        Random random = new Random(17);
+        for (FlexDirection direction : FlexDirection.values()) {
+            for (FlexWrap wrap : FlexWrap.values()) {
+                List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(random, 1 + random.nextInt(40));
+                FlexboxLayout flexboxLayout = FlexboxArrayEngineTest.layout(items, direction, wrap,
+                        JustifyContent.FLEX_START, AlignItems.FLEX_START, AlignContent.FLEX_START);
+                for (int i = 0; i < 5; i++) {
+                    double mainSize = 50 + random.nextInt(400);
+                    double crossSize = flexboxLayout.computeContentCrossSize(mainSize);
+                    flexboxLayout.layoutSubViews(mainSize, 0);
+                    double lineCrossSizes = 0;
+                    for (int l = 0; l < flexboxLayout.getLineCount(); l++) {
+                        lineCrossSizes += flexboxLayout.getLineCrossSize(l);
+                    }
+                    Assert.assertEquals(direction + " " + wrap, lineCrossSizes, crossSize, 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testResize() {
+        for (FlexDirection direction : new FlexDirection[]{FlexDirection.ROW, FlexDirection.COLUMN_REVERSE}) {
+            for (FlexWrap wrap : FlexWrap.values()) {
+                List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(new Random(5), 60);
+                List<DefaultFlexItem> expectedItems = FlexboxArrayEngineTest.randomItems(new Random(5), 60);
+                for (int i = 0; i < items.size(); i += 7) {
+                    items.get(i).setMeasureFunction(new TextMeasure(20 + i));
+                    expectedItems.get(i).setMeasureFunction(new TextMeasure(20 + i));
+                }
+                FlexboxLayout flexboxLayout = FlexboxArrayEngineTest.layout(items, direction, wrap,
+                        JustifyContent.SPACE_AROUND, AlignItems.STRETCH, AlignContent.CENTER);
+                FlexboxLayout expected = FlexboxArrayEngineTest.layout(expectedItems, direction, wrap,
+                        JustifyContent.SPACE_AROUND, AlignItems.STRETCH, AlignContent.CENTER);
+                int[] resizes = new int[1];
+                flexboxLayout.setLayoutTracer(new LayoutTracer() {
+                    @Override
+                    public void passStarted(FlexboxLayout layout, LayoutTracer.Pass pass, double mainSize, double crossSize) {
+                        if (pass == LayoutTracer.Pass.RESIZE) {
+                            resizes[0]++;
+                        }
+                    }
+                });
+                for (int step = 0; step < 200; step++) {
+                    double mainSize = 600 - Math.abs(step - 100) * 3;
+                    flexboxLayout.layoutSubViews(mainSize, 800);
+                    expected.invalidate();
+                    expected.layoutSubViews(mainSize, 800);
+                    Assert.assertArrayEquals(direction + " " + wrap + " " + mainSize,
+                            FlexboxArrayEngineTest.bounds(expectedItems), FlexboxArrayEngineTest.bounds(items), 1e-9);
+                    Assert.assertEquals(expected.getMinMainSize(), flexboxLayout.getMinMainSize(), 1e-9);
+                    Assert.assertEquals(expected.getMinCrossSize(), flexboxLayout.getMinCrossSize(), 1e-9);
+                    if (step % 50 == 0) {
+                        items.get(step % items.size()).setFlexGrow(3);
+                        expectedItems.get(step % items.size()).setFlexGrow(3);
+                    }
+                }
+                Assert.assertTrue(direction + " " + wrap + " " + resizes[0], resizes[0] > 100);
+            }
+        }
+    }
+
+    /**
+     * Item counting how often its bounds are applied.
+     */
+    private static final class AdjustedItem extends DefaultFlexItem {
+
+        int adjusted;
+
+        AdjustedItem(double width, double height) {
+            setWidth(width);
+            setHeight(height);
+        }
+
+        @Override
+        protected void adjustBounds(Bounds bounds) {
+            adjusted++;
+        }
+    }
+
+    @Test
+    public void testChangedItems() {
+        FlexboxLayout flexboxLayout = new FlexboxLayout();
+        flexboxLayout.setFlexDirection(FlexDirection.ROW);
+        flexboxLayout.setFlexWrap(FlexWrap.WRAP);
+        flexboxLayout.setJustifyContent(JustifyContent.FLEX_START);
+        flexboxLayout.setAlignItems(AlignItems.FLEX_START);
+        AdjustedItem first = new AdjustedItem(50, 20), second = new AdjustedItem(60, 20), third = new AdjustedItem(70, 30);
+        flexboxLayout.add(first);
+        flexboxLayout.add(second);
+        flexboxLayout.add(third);
+        flexboxLayout.layoutSubViews(200, 100);
+        Assert.assertEquals(3, flexboxLayout.getChangedItems().size());
+        Assert.assertEquals("0.0 0.0 180.0 30.0", toString(flexboxLayout.getDamage()));
+
+        // a complete pass with the same results doesn't touch the items
+        flexboxLayout.invalidate();
+        flexboxLayout.layoutSubViews(200, 100);
+        Assert.assertTrue(flexboxLayout.getChangedItems().isEmpty());
+        Assert.assertNull(flexboxLayout.getDamage());
+        Assert.assertEquals(1, first.adjusted);
+        Assert.assertEquals(1, third.adjusted);
+
+        // the third item wraps, the first one stays
+        second.setWidth(100);
+        flexboxLayout.layoutSubViews(200, 100);
+        Assert.assertEquals(Arrays.asList(second, third), flexboxLayout.getChangedItems());
+        Assert.assertEquals("0.0 0.0 180.0 50.0", toString(flexboxLayout.getDamage()));
+        Assert.assertEquals(1, first.adjusted);
+        Assert.assertEquals(2, third.adjusted);
+
+        // small moves are ignored up to the epsilon
+        flexboxLayout.setJustifyContent(JustifyContent.FLEX_END);
+        flexboxLayout.layoutSubViews(200, 100);
+        flexboxLayout.setBoundsEpsilon(0.5);
+        flexboxLayout.layoutSubViews(200.4, 100);
+        Assert.assertTrue(flexboxLayout.getChangedItems().isEmpty());
+        Assert.assertEquals(50, first.getBounds().getX(), 0);
+        flexboxLayout.layoutSubViews(201, 100);
+        Assert.assertEquals(3, flexboxLayout.getChangedItems().size());
+        Assert.assertEquals(51, first.getBounds().getX(), 0);
+    }
+
+    /**
+     * Item counting the calls of its getters.
+     */
+    private static final class CountingItem extends FlexItem {
+
+        int reads;
+        private double width;
+        private float grow;
+
+        CountingItem(double width, float grow) {
+            this.width = width;
+            this.grow = grow;
+        }
+
+        void setWidth(double width) {
+            this.width = width;
+            invalidate(Change.SIZE);
+        }
+
+        void setGrow(float grow) {
+            this.grow = grow;
+            invalidate(Change.FLEX);
+        }
+
+        @Override
+        protected boolean notifiesChanges() {
+            return true;
+        }
+
+        @Override
+        public boolean isWrapBefore() {
+            reads++;
+            return false;
+        }
+
+        @Override
+        public double getWidth() {
+            reads++;
+            return width;
+        }
+
+        @Override
+        public double getHeight() {
+            reads++;
+            return 20;
+        }
+
+        @Override
+        public double getMinWidth() {
+            reads++;
+            return 10;
+        }
+
+        @Override
+        public double getMinHeight() {
+            reads++;
+            return -1;
+        }
+
+        @Override
+        public double getMaxWidth() {
+            reads++;
+            return 80;
+        }
+
+        @Override
+        public double getMaxHeight() {
+            reads++;
+            return Double.MAX_VALUE;
+        }
+
+        @Override
+        public double getMarginLeft() {
+            reads++;
+            return 2;
+        }
+
+        @Override
+        public double getMarginTop() {
+            reads++;
+            return 1;
+        }
+
+        @Override
+        public double getMarginRight() {
+            reads++;
+            return 2;
+        }
+
+        @Override
+        public double getMarginBottom() {
+            reads++;
+            return 1;
+        }
+
+        @Override
+        public float getFlexGrow() {
+            reads++;
+            return grow;
+        }
+
+        @Override
+        public float getFlexShrink() {
+            reads++;
+            return 1;
+        }
+
+        @Override
+        public float getFlexBasisPercent() {
+            reads++;
+            return -1;
+        }
+
+        @Override
+        public AlignSelf getFlexAlignSelf() {
+            reads++;
+            return AlignSelf.AUTO;
+        }
+
+        @Override
+        public int getOrder() {
+            reads++;
+            return 0;
+        }
+    }
+
+    // every property but wrapBefore, which the layout doesn't support
+    private static final int PROPERTIES = 15;
+
+    private static void assertReads(List<CountingItem> items, int expected, int changed, String pass) {
+        for (int i = 0; i < items.size(); i++) {
+            CountingItem item = items.get(i);
+            Assert.assertEquals(pass + " item " + i, i == changed ? PROPERTIES : expected, item.reads);
+            item.reads = 0;
+        }
+    }
+
+    @Test
+    public void testPropertiesReadOncePerPass() {
+        FlexboxLayout flexboxLayout = new FlexboxLayout();
+        flexboxLayout.setFlexDirection(FlexDirection.ROW);
+        flexboxLayout.setFlexWrap(FlexWrap.WRAP);
+        flexboxLayout.setAlignItems(AlignItems.CENTER);
+        flexboxLayout.setJustifyContent(JustifyContent.SPACE_AROUND);
+        List<CountingItem> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            CountingItem item = new CountingItem(i % 3 == 0 ? -1 : 15 + i % 40, i % 4);
+            items.add(item);
+            flexboxLayout.add(item);
+        }
+        flexboxLayout.layoutSubViews(300, 400);
+        assertReads(items, PROPERTIES, -1, "full");
+        flexboxLayout.layoutSubViews(300, 400);
+        assertReads(items, 0, -1, "unchanged");
+        items.get(17).setWidth(70);
+        flexboxLayout.layoutSubViews(300, 400);
+        assertReads(items, 0, 17, "partial size");
+        items.get(30).setGrow(3);
+        flexboxLayout.layoutSubViews(300, 400);
+        assertReads(items, 0, 30, "partial flex");
+        flexboxLayout.layoutSubViews(250, 400);
+        assertReads(items, PROPERTIES, -1, "resized");
+
+        flexboxLayout.setLayoutCacheSize(4);
+        flexboxLayout.layoutSubViews(300, 400);
+        assertReads(items, PROPERTIES, -1, "cache miss");
+        flexboxLayout.layoutSubViews(250, 400);
+        assertReads(items, PROPERTIES, -1, "cache miss");
+        flexboxLayout.layoutSubViews(300, 400);
+        assertReads(items, PROPERTIES, -1, "cache hit");
+        flexboxLayout.setLayoutCacheSize(0);
+
+        flexboxLayout.setArrayEngineEnabled(true);
+        flexboxLayout.layoutSubViews(300, 400);
+        assertReads(items, PROPERTIES, -1, "array engine");
+        flexboxLayout.setArrayEngineEnabled(false);
+
+        flexboxLayout.setViewport(new Bounds(0, 0, 300, 50));
+        flexboxLayout.layoutSubViews(300, 400);
+        assertReads(items, PROPERTIES, -1, "windowed");
+        flexboxLayout.setViewport(new Bounds(0, 100, 300, 50));
+        flexboxLayout.layoutSubViews(300, 400);
+        assertReads(items, 0, -1, "viewport moved");
+    }
+
+    /**
+     * Text of a given length, broken into lines of 10 pixels height.
+     */
+    private static final class TextMeasure implements MeasureFunction {
+
+        int calls;
+        double length;
+
+        TextMeasure(double length) {
+            this.length = length;
+        }
+
+        @Override
+        public void measure(FlexItem item, double width, Mode widthMode, double height, Mode heightMode, Bounds size) {
+            calls++;
+            double w = widthMode == Mode.EXACTLY ? width : widthMode == Mode.AT_MOST ? Math.min(length, width) : length;
+            size.setW(w);
+            size.setH(Math.ceil(length / w) * 10);
+        }
+    }
+
+    @Test
+    public void testMeasureFunction() {
+        FlexboxLayout flexboxLayout = new FlexboxLayout();
+        flexboxLayout.setFlexDirection(FlexDirection.ROW);
+        flexboxLayout.setFlexWrap(FlexWrap.WRAP);
+        flexboxLayout.setAlignItems(AlignItems.FLEX_START);
+        flexboxLayout.setLayoutCacheSize(4);
+        List<DefaultFlexItem> items = new ArrayList<>();
+        List<TextMeasure> texts = new ArrayList<>();
+        for (double length : new double[]{150, 80, 300}) {
+            DefaultFlexItem item = DefaultFlexItem.builder().marginRight(5).build();
+            TextMeasure text = new TextMeasure(length);
+            item.setMeasureFunction(text);
+            items.add(item);
+            texts.add(text);
+            flexboxLayout.add(item);
+        }
+        flexboxLayout.layoutSubViews(205, 500);
+        Assert.assertEquals("0.0 0.0 150.0 10.0", toString(items.get(0).getBounds()));
+        Assert.assertEquals("0.0 10.0 80.0 10.0", toString(items.get(1).getBounds()));
+        Assert.assertEquals("0.0 20.0 200.0 20.0", toString(items.get(2).getBounds()));
+        // the width measured at most 200 is reused for exactly 200
+        Assert.assertEquals(1, texts.get(0).calls);
+        Assert.assertEquals(1, texts.get(2).calls);
+
+        // narrower, only the text using all the space is measured again
+        flexboxLayout.layoutSubViews(195, 500);
+        Assert.assertEquals("0.0 20.0 190.0 20.0", toString(items.get(2).getBounds()));
+        Assert.assertEquals(1, texts.get(0).calls);
+        Assert.assertEquals(1, texts.get(1).calls);
+        Assert.assertEquals(2, texts.get(2).calls);
+        flexboxLayout.setLayoutCacheSize(0);
+        flexboxLayout.layoutSubViews(205, 500);
+        Assert.assertEquals("0.0 20.0 200.0 20.0", toString(items.get(2).getBounds()));
+        Assert.assertEquals(2, texts.get(2).calls);
+
+        // changed content, measured again and not taken from the layout cache
+        flexboxLayout.setLayoutCacheSize(4);
+        flexboxLayout.layoutSubViews(195, 500);
+        texts.get(2).length = 500;
+        items.get(2).invalidateMeasure();
+        flexboxLayout.layoutSubViews(195, 500);
+        Assert.assertEquals("0.0 20.0 190.0 30.0", toString(items.get(2).getBounds()));
+        Assert.assertEquals(3, texts.get(2).calls);
+        flexboxLayout.invalidateMeasurements();
+        flexboxLayout.layoutSubViews(195, 500);
+        Assert.assertEquals(2, texts.get(0).calls);
+        Assert.assertEquals(4, texts.get(2).calls);
+
+        // the array engine measures with the same constraints
+        flexboxLayout.setLayoutCacheSize(0);
+        flexboxLayout.setArrayEngineEnabled(true);
+        flexboxLayout.layoutSubViews(195, 500);
+        Assert.assertEquals("0.0 0.0 150.0 10.0", toString(items.get(0).getBounds()));
+        Assert.assertEquals("0.0 10.0 80.0 10.0", toString(items.get(1).getBounds()));
+        Assert.assertEquals("0.0 20.0 190.0 30.0", toString(items.get(2).getBounds()));
+    }
+
+    @Test
+    public void testMeasuredSameInAllEngines() {
+        Random random = new Random(1001);
+        for (int run = 0; run < 300; run++) {
+            List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(random, 1 + random.nextInt(20));
+            for (DefaultFlexItem item : items) {
+                if (random.nextBoolean()) {
+                    item.setMeasureFunction(new TextMeasure(1 + random.nextInt(300)));
+                }
+            }
+            FlexDirection direction = FlexDirection.values()[random.nextInt(FlexDirection.values().length)];
+            FlexboxSpec spec = FlexboxSpec.builder()
+                    .flexDirection(direction)
+                    .flexWrap(FlexWrap.values()[random.nextInt(FlexWrap.values().length)])
+                    .alignItems(AlignItems.values()[random.nextInt(AlignItems.values().length)])
+                    .build();
+            double mainSize = random.nextInt(4) == 0 ? Double.POSITIVE_INFINITY : 50 + random.nextInt(400);
+            double crossSize = 50 + random.nextInt(400);
+            LayoutResult result = StatelessLayout.layout(spec, items, mainSize, crossSize);
+            FlexboxLayout layout = FlexboxArrayEngineTest.layout(items, direction, spec.getFlexWrap(),
+                    spec.getJustifyContent(), spec.getAlignItems(), spec.getAlignContent());
+            layout.layoutSubViews(mainSize, crossSize);
+            double[] expected = FlexboxArrayEngineTest.bounds(items);
+            String message = run + " " + spec;
+            for (int i = 0; i < items.size(); i++) {
+                Assert.assertEquals(message, expected[i * 4 + 2], result.getW(i), 0);
+                Assert.assertEquals(message, expected[i * 4 + 3], result.getH(i), 0);
+            }
+            layout.setArrayEngineEnabled(true);
+            layout.layoutSubViews(mainSize, crossSize);
+            Assert.assertArrayEquals(message, expected, FlexboxArrayEngineTest.bounds(items), 0);
+        }
+    }
+
+    private static String toString(Bounds bounds) {
+        return bounds.getX() + " " + bounds.getY() + " " + bounds.getW() + " " + bounds.getH();
+    }
+
+    private static int assertViewport(FlexboxLayout flexboxLayout, List<DefaultFlexItem> items, List<DefaultFlexItem> expectedItems, double from, double to) {
+        int laidOut = 0;
+        for (int i = 0; i < items.size(); i++) {
+            Bounds bounds = expectedItems.get(i).getBounds();
+            FlexItem item = items.get(i);
+            // whole lines are laid out, so use the line of the item
+            double lineStart = item.line.getCrossStartPos();
+            double lineEnd = lineStart + item.line.getMinCrossSize();
+            boolean visible = lineEnd > from && lineStart < to;
+            Assert.assertEquals("item " + i, visible, flexboxLayout.isLaidOut(item));
+            if (visible) {
+                laidOut++;
+                Assert.assertEquals(bounds.toString(), item.getBounds().toString());
+            }
+        }
+        return laidOut;
+    }
 }
@@ -0,0 +1,143 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author antonepple
+ */
+public class FlexNodeTest {
+
+    static class CountingNode extends FlexNode {
+
+        int adjusted;
+
+        @Override
+        protected void adjustBounds(Bounds bounds) {
+            adjusted++;
+        }
+    }
+
+    static FlexNode container(FlexDirection direction) {
+        FlexNode node = new FlexNode();
+        node.setFlexDirection(direction);
+        node.setFlexWrap(FlexWrap.NOWRAP);
+        node.setJustifyContent(JustifyContent.FLEX_START);
+        node.setAlignItems(AlignItems.STRETCH);
+        node.setAlignContent(AlignContent.STRETCH);
+        node.setFlexGrow(1);
+        return node;
+    }
+
+    static CountingNode leaf(double width, double height) {
+        CountingNode leaf = new CountingNode();
+        leaf.setMinWidth(width);
+        leaf.setMinHeight(height);
+        return leaf;
+    }
+
+    @Test
+    public void testNestedLayout() {
+        FlexNode root = container(FlexDirection.ROW);
+        FlexNode left = container(FlexDirection.COLUMN);
+        FlexNode right = container(FlexDirection.COLUMN);
+        root.add(left);
+        root.add(right);
+        CountingNode a = leaf(20, 30), b = leaf(20, 40), c = leaf(30, 10);
+        left.add(a);
+        left.add(b);
+        right.add(c);
+        root.layout(200, 100);
+        Assert.assertEquals(new Bounds(0, 0, 100, 100).toString(), left.getBounds().toString());
+        Assert.assertEquals(new Bounds(100, 0, 100, 100).toString(), right.getBounds().toString());
+        Assert.assertEquals(new Bounds(0, 30, 100, 40).toString(), b.getBounds().toString());
+        Assert.assertEquals(new Bounds(0, 0, 100, 10).toString(), c.getBounds().toString());
+    }
+
+    @Test
+    public void testUnchangedSubtreeIsSkipped() {
+        FlexNode root = container(FlexDirection.COLUMN);
+        FlexNode first = container(FlexDirection.ROW);
+        FlexNode second = container(FlexDirection.ROW);
+        root.add(first);
+        root.add(second);
+        CountingNode a = leaf(20, 30), b = leaf(20, 40);
+        first.add(a);
+        second.add(b);
+        root.layout(200, 100);
+        Assert.assertFalse(root.isDirty());
+        Assert.assertEquals(1, b.adjusted);
+
+        a.setMinWidth(50);
+        Assert.assertTrue(first.isDirty());
+        Assert.assertTrue(root.isDirty());
+        Assert.assertFalse(second.isDirty());
+        root.layout(200, 100);
+        Assert.assertEquals(50, a.getBounds().getW(), 0);
+        Assert.assertEquals("sibling subtree is skipped", 1, b.adjusted);
+
+        root.layout(200, 100);
+        Assert.assertEquals("unchanged tree is skipped", 2, a.adjusted);
+
+        root.layout(300, 100);
+        Assert.assertEquals(300, first.getBounds().getW(), 0);
+        Assert.assertEquals(300, second.getBounds().getW(), 0);
+        Assert.assertEquals("bounds of the leaves didn't change", 2, a.adjusted);
+        Assert.assertEquals(1, b.adjusted);
+    }
+
+    @Test
+    public void testContainerChangeIsPropagated() {
+        FlexNode root = container(FlexDirection.ROW);
+        FlexNode child = container(FlexDirection.ROW);
+        root.add(child);
+        CountingNode a = leaf(20, 30);
+        child.add(a);
+        root.layout(200, 100);
+        child.setJustifyContent(JustifyContent.FLEX_END);
+        Assert.assertTrue(root.isDirty());
+        root.layout(200, 100);
+        Assert.assertEquals(180, a.getBounds().getX(), 0);
+
+        child.remove(a);
+        Assert.assertNull(a.getParent());
+        root.add(a);
+        root.layout(200, 100);
+        Assert.assertEquals(a.getBounds().toString(), 180, a.getBounds().getX(), 0);
+    }
+}
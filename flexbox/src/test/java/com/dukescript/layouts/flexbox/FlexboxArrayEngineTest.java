@@ -0,0 +1,151 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexItem.AlignSelf;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author antonepple
+ */
+public class FlexboxArrayEngineTest {
+
+    static List<DefaultFlexItem> randomItems(Random random, int count) {
+        List<DefaultFlexItem> items = new ArrayList<>();
+        float[] factors = {0, 0.5f, 1, 2};
+        AlignSelf[] alignSelfs = AlignSelf.values();
+        for (int i = 0; i < count; i++) {
+            double margin = random.nextInt(3) * 2;
+            items.add(DefaultFlexItem.builder()
+                    .width(random.nextBoolean() ? -1 : 10 + random.nextInt(60))
+                    .height(random.nextBoolean() ? -1 : 10 + random.nextInt(60))
+                    .minWidth(random.nextInt(40))
+                    .minHeight(random.nextInt(40))
+                    .maxWidth(random.nextBoolean() ? Double.MAX_VALUE : 40 + random.nextInt(60))
+                    .maxHeight(random.nextBoolean() ? Double.MAX_VALUE : 40 + random.nextInt(60))
+                    .marginLeft(margin).marginRight(margin).marginTop(margin).marginBottom(margin)
+                    .flexGrow(factors[random.nextInt(factors.length)])
+                    .flexShrink(factors[random.nextInt(factors.length)])
+                    .flexBasisPercent(random.nextBoolean() ? -1 : 10 + random.nextInt(30))
+                    .order(random.nextInt(4) == 0 ? random.nextInt(5) - 2 : 0)
+                    .flexAlignSelf(random.nextInt(3) == 0 ? alignSelfs[random.nextInt(alignSelfs.length)] : AlignSelf.AUTO)
+                    .build());
+        }
+        return items;
+    }
+
+    static FlexboxLayout layout(List<? extends FlexboxLayout.FlexItem> items, FlexDirection direction, FlexWrap wrap,
+            JustifyContent justifyContent, AlignItems alignItems, AlignContent alignContent) {
+        FlexboxLayout layout = new FlexboxLayout();
+        layout.setFlexDirection(direction);
+        layout.setFlexWrap(wrap);
+        layout.setJustifyContent(justifyContent);
+        layout.setAlignItems(alignItems);
+        layout.setAlignContent(alignContent);
+        for (FlexboxLayout.FlexItem item : items) {
+            layout.add(item);
+        }
+        return layout;
+    }
+
+    @Test
+    public void testSameResultsAsFlexboxLayout() {
+        Random random = new Random(4711);
+        for (int run = 0; run < 40; run++) {
+            List<DefaultFlexItem> items = randomItems(random, 1 + random.nextInt(30));
+            double mainSize = 50 + random.nextInt(400);
+            double crossSize = 50 + random.nextInt(400);
+            for (FlexDirection direction : FlexDirection.values()) {
+                for (FlexWrap wrap : FlexWrap.values()) {
+                    for (JustifyContent justifyContent : JustifyContent.values()) {
+                        for (AlignItems alignItems : AlignItems.values()) {
+                            for (AlignContent alignContent : AlignContent.values()) {
+                                FlexboxLayout layout = layout(items, direction, wrap, justifyContent, alignItems, alignContent);
+                                layout.layoutSubViews(mainSize, crossSize);
+                                double[] expected = bounds(items);
+                                double expectedMinCross = layout.getMinCrossSize();
+                                double expectedMinMain = layout.getMinMainSize();
+                                layout.setArrayEngineEnabled(true);
+                                layout.layoutSubViews(mainSize, crossSize);
+                                Assert.assertArrayEquals(direction + " " + wrap + " " + justifyContent + " " + alignItems + " " + alignContent,
+                                        expected, bounds(items), 0);
+                                Assert.assertEquals(expectedMinCross, layout.getMinCrossSize(), 0);
+                                Assert.assertEquals(expectedMinMain, layout.getMinMainSize(), 0);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    static double[] bounds(List<? extends FlexboxLayout.FlexItem> items) {
+        double[] result = new double[items.size() * 4];
+        for (int i = 0; i < items.size(); i++) {
+            Bounds bounds = items.get(i).getBounds();
+            result[i * 4] = bounds.getX();
+            result[i * 4 + 1] = bounds.getY();
+            result[i * 4 + 2] = bounds.getW();
+            result[i * 4 + 3] = bounds.getH();
+        }
+        return result;
+    }
+
+    @Test
+    public void testColumns() {
+        FlexboxArrayEngine engine = new FlexboxArrayEngine();
+        engine.setFlexDirection(FlexDirection.ROW);
+        engine.setFlexWrap(FlexWrap.WRAP);
+        engine.setItemCount(100);
+        for (int i = 0; i < 100; i++) {
+            engine.setMinSize(i, 50, 20);
+            engine.setMargin(i, 5, 5, 5, 5);
+        }
+        engine.layout(130, 4000);
+        Assert.assertEquals(50, engine.getLineCount());
+        Assert.assertEquals(2, engine.getLineEnd(0) - engine.getLineStart(0));
+        Assert.assertEquals(65, engine.getX(1), 0.001);
+        Assert.assertEquals(35, engine.getY(2), 0.001);
+        Assert.assertEquals(50, engine.getW(2), 0.001);
+        Assert.assertEquals(20, engine.getH(2), 0.001);
+        Assert.assertEquals(1500, engine.getMinCrossSize(), 0.001);
+    }
+}
@@ -0,0 +1,192 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author antonepple
+ */
+public class GrowDistributionTest {
+
+    /**
+     * The round based algorithm distributeMainLineSpace used before, kept as
+     * reference.
+     *
+     * @return the main size of the line after
+     */
+    static double distributeInRounds(double[] sizes, float[] grows, double[] maxSizes, float totalGrow, double growUnit, double lineSize) {
+        boolean[] frozen = new boolean[sizes.length];
+        while (totalGrow > 0 && growUnit > 0) {
+            double rest = 0;
+            for (int i = 0; i < sizes.length; i++) {
+                if (frozen[i] || grows[i] == 0f) {
+                    frozen[i] = true;
+                    continue;
+                }
+                double grownSize = grows[i] * growUnit + sizes[i];
+                if (grownSize > maxSizes[i]) {
+                    rest += grownSize - maxSizes[i];
+                    grownSize = maxSizes[i];
+                    frozen[i] = true;
+                    totalGrow -= grows[i];
+                }
+                lineSize += grownSize - sizes[i];
+                sizes[i] = grownSize;
+            }
+            if (rest > 0) {
+                growUnit = totalGrow <= 0 ? 0 : rest / totalGrow;
+            } else {
+                break;
+            }
+        }
+        return lineSize;
+    }
+
+    /**
+     * @return the sizes of the items, followed by the main size of the line
+     */
+    static double[] distribute(GrowDistribution distribution, double[] sizes, float[] grows, double[] maxSizes, float totalGrow, double growUnit, double lineSize) {
+        distribution.clear();
+        for (int i = 0; i < sizes.length; i++) {
+            if (grows[i] != 0f) {
+                distribution.add(sizes[i], grows[i], maxSizes[i]);
+            }
+        }
+        double[] result = Arrays.copyOf(sizes, sizes.length + 1);
+        result[sizes.length] = distribution.distribute(totalGrow, growUnit, lineSize);
+        for (int i = 0, j = 0; i < sizes.length; i++) {
+            if (grows[i] != 0f) {
+                result[i] = distribution.getSize(j++);
+            }
+        }
+        return result;
+    }
+
+    static float totalGrow(float[] grows) {
+        float totalGrow = 0;
+        for (float grow : grows) {
+            totalGrow += grow;
+        }
+        return totalGrow;
+    }
+
+    /**
+     * A line where the growing items reach their maximum size one after
+     * another, one per round, followed by items that don't grow.
+     */
+    static Object[] cascade(int growing, int fixed, double freeSpace) {
+        double[] sizes = new double[growing + 1 + fixed];
+        float[] grows = new float[sizes.length];
+        double[] maxSizes = new double[sizes.length];
+        for (int k = 0; k <= growing; k++) {
+            grows[k] = (float) Math.pow(0.5, k);
+            maxSizes[k] = Double.MAX_VALUE;
+        }
+        for (int i = growing + 1; i < sizes.length; i++) {
+            sizes[i] = 10;
+            maxSizes[i] = 10;
+        }
+        float totalGrow = totalGrow(grows);
+        double unit = 0, growUnit = freeSpace / totalGrow;
+        for (int k = 0; k < growing; k++) {
+            // reached shortly after the start of round k
+            maxSizes[k] = grows[k] * (unit + growUnit * 0.1);
+            unit += growUnit;
+            totalGrow -= grows[k];
+            growUnit = (grows[k] * unit - maxSizes[k]) / totalGrow;
+        }
+        return new Object[]{sizes, grows, maxSizes};
+    }
+
+    @Test
+    public void testSameResultsAsRounds() {
+        sameResultsAsRounds(new GrowDistribution(), 0);
+    }
+
+    @Test
+    public void testSortedResultsAsRounds() {
+        GrowDistribution distribution = new GrowDistribution();
+        distribution.setSorted(true);
+        sameResultsAsRounds(distribution, 1e-9);
+    }
+
+    private static void sameResultsAsRounds(GrowDistribution distribution, double delta) {
+        Random random = new Random(815);
+        float[] factors = {0, 0.5f, 1, 2, 3};
+        for (int run = 0; run < 2000; run++) {
+            int n = 1 + random.nextInt(40);
+            double[] sizes = new double[n], maxSizes = new double[n];
+            float[] grows = new float[n];
+            double lineSize = 0;
+            for (int i = 0; i < n; i++) {
+                sizes[i] = random.nextInt(50) + random.nextInt(7) / 7.0;
+                grows[i] = factors[random.nextInt(factors.length)];
+                maxSizes[i] = random.nextBoolean() ? Double.MAX_VALUE : random.nextInt(100);
+                lineSize += sizes[i];
+            }
+            float totalGrow = totalGrow(grows);
+            if (totalGrow == 0) {
+                continue;
+            }
+            double freeSpace = 1 + random.nextInt(1000) + random.nextInt(3) / 3.0;
+            double[] result = distribute(distribution, sizes, grows, maxSizes, totalGrow, freeSpace / totalGrow, lineSize);
+            lineSize = distributeInRounds(sizes, grows, maxSizes, totalGrow, freeSpace / totalGrow, lineSize);
+            double[] expected = Arrays.copyOf(sizes, n + 1);
+            expected[n] = lineSize;
+            Assert.assertArrayEquals(expected, result, delta);
+        }
+    }
+
+    @Test
+    public void testCascade() {
+        Object[] line = cascade(100, 1000, 1000);
+        double[] sizes = (double[]) line[0], maxSizes = (double[]) line[2];
+        float[] grows = (float[]) line[1];
+        float totalGrow = totalGrow(grows);
+        for (boolean sorted : new boolean[]{false, true}) {
+            GrowDistribution distribution = new GrowDistribution();
+            distribution.setSorted(sorted);
+            double[] result = distribute(distribution, sizes, grows, maxSizes, totalGrow, 1000 / totalGrow, 10000);
+            double[] grown = sizes.clone();
+            double lineSize = distributeInRounds(grown, grows, maxSizes, totalGrow, 1000 / totalGrow, 10000);
+            double[] expected = Arrays.copyOf(grown, grown.length + 1);
+            expected[grown.length] = lineSize;
+            Assert.assertArrayEquals(expected, result, sorted ? 1e-9 : 0);
+            for (int k = 0; k < 100; k++) {
+                Assert.assertEquals(maxSizes[k], result[k], 0);
+            }
+        }
+    }
+}
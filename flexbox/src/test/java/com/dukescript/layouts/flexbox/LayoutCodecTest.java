@@ -0,0 +1,222 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author antonepple
+ */
+public class LayoutCodecTest {
+
+    @Test
+    public void testInputsRoundTrip() {
+        Random random = new Random(11);
+        LayoutCodec codec = new LayoutCodec();
+        FlexboxArrayEngine engine = new FlexboxArrayEngine();
+        FlexboxLayout copy = new FlexboxLayout();
+        for (int round = 0; round < 200; round++) {
+            List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(random, random.nextInt(30));
+            FlexDirection direction = random.nextInt(5) == 0 ? null : FlexDirection.values()[random.nextInt(4)];
+            FlexboxLayout layout = FlexboxArrayEngineTest.layout(items, direction, FlexWrap.values()[random.nextInt(3)],
+                    JustifyContent.values()[random.nextInt(5)], AlignItems.values()[random.nextInt(5)], AlignContent.values()[random.nextInt(6)]);
+            double mainSize = 50 + random.nextInt(400);
+            double crossSize = 50 + random.nextInt(400);
+            ByteBuffer buffer = ByteBuffer.allocate(LayoutCodec.maxInputsSize(items.size()));
+            if (random.nextBoolean()) {
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            LayoutCodec.writeInputs(layout, mainSize, crossSize, buffer);
+            buffer.flip();
+            layout.layoutSubViews(mainSize, crossSize);
+            double[] expected = FlexboxArrayEngineTest.bounds(items);
+
+            codec.readInputs(buffer.duplicate().order(buffer.order()), engine);
+            Assert.assertEquals(direction, codec.getFlexDirection());
+            Assert.assertEquals(mainSize, codec.getMainSize(), 0);
+            Assert.assertEquals(crossSize, codec.getCrossSize(), 0);
+            Assert.assertEquals(items.size(), codec.getItemCount());
+            engine.layout(codec.getMainSize(), codec.getCrossSize());
+            for (int i = 0; i < items.size(); i++) {
+                Assert.assertEquals(expected[i * 4], engine.getX(i), 1e-9);
+                Assert.assertEquals(expected[i * 4 + 1], engine.getY(i), 1e-9);
+                Assert.assertEquals(expected[i * 4 + 2], engine.getW(i), 1e-9);
+                Assert.assertEquals(expected[i * 4 + 3], engine.getH(i), 1e-9);
+            }
+
+            codec.readInputs(buffer, copy);
+            Assert.assertFalse(buffer.hasRemaining());
+            copy.layoutSubViews(codec.getMainSize(), codec.getCrossSize());
+            Assert.assertArrayEquals(expected, FlexboxArrayEngineTest.bounds(copy.originalItems), 1e-9);
+        }
+    }
+
+    @Test
+    public void testBoundsRoundTrip() {
+        List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(new Random(3), 40);
+        FlexboxLayout layout = FlexboxArrayEngineTest.layout(items, FlexDirection.ROW, FlexWrap.WRAP,
+                JustifyContent.SPACE_AROUND, AlignItems.STRETCH, AlignContent.FLEX_START);
+        layout.layoutSubViews(300, 500);
+        ByteBuffer buffer = ByteBuffer.allocate(LayoutCodec.boundsSize(items.size()));
+        LayoutCodec.writeBounds(layout, buffer);
+        Assert.assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        double[] bounds = new double[items.size() * 4];
+        Assert.assertEquals(items.size(), new LayoutCodec().readBounds(buffer, bounds));
+        Assert.assertArrayEquals(FlexboxArrayEngineTest.bounds(items), bounds, 0);
+
+        FlexboxArrayEngine engine = new FlexboxArrayEngine();
+        engine.setFlexDirection(FlexDirection.ROW);
+        engine.setFlexWrap(FlexWrap.WRAP);
+        engine.setJustifyContent(JustifyContent.SPACE_AROUND);
+        engine.load(items);
+        engine.layout(300, 500);
+        buffer.clear();
+        LayoutCodec.writeBounds(engine, buffer);
+        buffer.flip();
+        new LayoutCodec().readBounds(buffer, bounds);
+        Assert.assertArrayEquals(FlexboxArrayEngineTest.bounds(items), bounds, 1e-9);
+    }
+
+    @Test
+    public void testDefaultsAreCompact() {
+        FlexboxLayout layout = new FlexboxLayout();
+        for (int i = 0; i < 100; i++) {
+            layout.add(DefaultFlexItem.builder().build());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(LayoutCodec.maxInputsSize(100));
+        LayoutCodec.writeInputs(layout, 100, 100, buffer);
+        Assert.assertEquals(LayoutCodec.maxInputsSize(0) + 100 * 2, buffer.position());
+    }
+
+    @Test
+    public void testInvalidRecord() {
+        FlexboxLayout layout = new FlexboxLayout();
+        layout.add(DefaultFlexItem.builder().width(10).build());
+        ByteBuffer buffer = ByteBuffer.allocate(LayoutCodec.maxInputsSize(1));
+        LayoutCodec.writeInputs(layout, 100, 100, buffer);
+        buffer.flip();
+        try {
+            new LayoutCodec().readBounds(buffer.duplicate(), new double[4]);
+            Assert.fail("inputs aren't bounds");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        buffer.put(4, (byte) (LayoutCodec.VERSION + 1));
+        try {
+            new LayoutCodec().readInputs(buffer.duplicate(), new FlexboxArrayEngine());
+            Assert.fail("unknown version");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            new LayoutCodec().readInputs(buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN), new FlexboxArrayEngine());
+            Assert.fail("wrong byte order");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCorruptRecord() {
+        FlexboxLayout layout = new FlexboxLayout();
+        layout.add(DefaultFlexItem.builder().flexAlignSelf(FlexboxLayout.FlexItem.AlignSelf.CENTER).build());
+        ByteBuffer buffer = ByteBuffer.allocate(LayoutCodec.maxInputsSize(1));
+        LayoutCodec.writeInputs(layout, 100, 100, buffer);
+        buffer.flip();
+        // header, 5 settings, main and cross size, item count, item mask
+        int settings = 6, itemCount = settings + 5 + 8 + 8, alignSelf = itemCount + 4 + 2;
+        for (int offset = settings; offset < settings + 5; offset++) {
+            for (byte value : new byte[]{42, -1}) {
+                ByteBuffer corrupt = copy(buffer);
+                corrupt.put(offset, value);
+                assertInvalid(corrupt, "setting " + offset + " is " + value);
+            }
+        }
+        for (byte value : new byte[]{6, -1}) {
+            ByteBuffer corrupt = copy(buffer);
+            corrupt.put(alignSelf, value);
+            assertInvalid(corrupt, "align self is " + value);
+        }
+        for (int value : new int[]{Integer.MAX_VALUE, -1, 2}) {
+            ByteBuffer corrupt = copy(buffer);
+            corrupt.putInt(itemCount, value);
+            assertInvalid(corrupt, "item count is " + value);
+        }
+
+        layout.layoutSubViews(100, 100);
+        ByteBuffer bounds = ByteBuffer.allocate(LayoutCodec.boundsSize(1));
+        LayoutCodec.writeBounds(layout, bounds);
+        bounds.flip();
+        for (int value : new int[]{Integer.MAX_VALUE, -1, 2}) {
+            ByteBuffer corrupt = copy(bounds);
+            corrupt.putInt(6, value);
+            try {
+                new LayoutCodec().readBounds(corrupt, new double[8]);
+                Assert.fail("item count is " + value);
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+
+    private static ByteBuffer copy(ByteBuffer buffer) {
+        ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+        copy.put(buffer.duplicate()).flip();
+        return copy;
+    }
+
+    private static void assertInvalid(ByteBuffer buffer, String msg) {
+        try {
+            new LayoutCodec().readInputs(buffer.duplicate(), new FlexboxArrayEngine());
+            Assert.fail(msg);
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            new LayoutCodec().readInputs(buffer.duplicate(), new FlexboxLayout());
+            Assert.fail(msg);
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import com.dukescript.layouts.flexbox.LayoutReplay.PassResult;
+import com.dukescript.layouts.flexbox.LayoutReplay.Report;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author antonepple
+ */
+public class LayoutReplayTest {
+
+    private static byte[] record(FlexboxLayout layout, List<DefaultFlexItem> items) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (LayoutRecorder recorder = new LayoutRecorder(Channels.newChannel(out))) {
+            layout.setLayoutTracer(recorder);
+            layout.layoutSubViews(300, 400);
+            // unchanged, not recorded
+            layout.layoutSubViews(300, 400);
+            layout.layoutSubViews(250, 400);
+            items.get(3).setWidth(77);
+            layout.layoutSubViews(250, 400);
+            layout.setLayoutCacheSize(4);
+            layout.layoutSubViews(300, 400);
+            layout.layoutSubViews(250, 400);
+            layout.layoutSubViews(300, 400);
+            Assert.assertEquals(6, recorder.getPassCount());
+        }
+        return out.toByteArray();
+    }
+
+    private static FlexboxLayout layout(List<DefaultFlexItem> items) {
+        return FlexboxArrayEngineTest.layout(items, FlexDirection.ROW, FlexWrap.WRAP,
+                JustifyContent.SPACE_BETWEEN, AlignItems.CENTER, AlignContent.STRETCH);
+    }
+
+    @Test
+    public void testRecordAndReplay() throws IOException {
+        List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(new Random(5), 50);
+        byte[] session = record(layout(items), items);
+
+        FlexboxLayout replayLayout = new FlexboxLayout();
+        replayLayout.setArrayEngineEnabled(true);
+        Report report = new LayoutReplay(replayLayout).setIterations(3)
+                .replay(Channels.newChannel(new ByteArrayInputStream(session)));
+        Assert.assertEquals(report.toString(), 0, report.getDifferentPasses());
+        List<PassResult> passes = report.getPasses();
+        Assert.assertEquals(6, passes.size());
+        Assert.assertEquals(LayoutTracer.Pass.FULL, passes.get(0).getPass());
+        Assert.assertEquals(LayoutTracer.Pass.CACHED, passes.get(5).getPass());
+        Assert.assertEquals(250, passes.get(2).getMainSize(), 0);
+        Assert.assertEquals(400, passes.get(2).getCrossSize(), 0);
+        for (PassResult pass : passes) {
+            Assert.assertEquals(50, pass.getItemCount());
+            Assert.assertTrue(pass.getRecordedNanos() > 0);
+            Assert.assertTrue(pass.getNanos() > 0);
+        }
+        Assert.assertEquals(77, replayLayout.originalItems.get(3).getWidth(), 0);
+    }
+
+    @Test
+    public void testDifferences() throws IOException {
+        List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(new Random(5), 50);
+        byte[] session = record(layout(items), items);
+        // the height of the last item of the last pass
+        ByteBuffer.wrap(session).putDouble(session.length - 8, -5);
+        Report report = new LayoutReplay().replay(Channels.newChannel(new ByteArrayInputStream(session)));
+        Assert.assertEquals(1, report.getDifferentPasses());
+        PassResult last = report.getPasses().get(5);
+        Assert.assertEquals(1, last.getDifferences());
+        Assert.assertTrue(last.getMaxDifference() > 5);
+    }
+
+    @Test
+    public void testInvalidSession() throws IOException {
+        List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(new Random(5), 10);
+        byte[] session = record(layout(items), items);
+        try {
+            new LayoutReplay().replay(Channels.newChannel(new ByteArrayInputStream(Arrays.copyOf(session, session.length - 3))));
+            Assert.fail("truncated");
+        } catch (EOFException ex) {
+            // expected
+        }
+        session[0]++;
+        try {
+            new LayoutReplay().replay(Channels.newChannel(new ByteArrayInputStream(session)));
+            Assert.fail("no session");
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+}
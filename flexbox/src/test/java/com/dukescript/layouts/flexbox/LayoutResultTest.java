@@ -0,0 +1,192 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import java.nio.BufferOverflowException;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author antonepple
+ */
+public class LayoutResultTest {
+
+    private static void assertSame(String message, LayoutResult expected, LayoutResult actual) {
+        Assert.assertEquals(message, expected.getItemCount(), actual.getItemCount());
+        for (int i = 0; i < expected.getItemCount(); i++) {
+            Assert.assertEquals(message, expected.getX(i), actual.getX(i), 0);
+            Assert.assertEquals(message, expected.getY(i), actual.getY(i), 0);
+            Assert.assertEquals(message, expected.getW(i), actual.getW(i), 0);
+            Assert.assertEquals(message, expected.getH(i), actual.getH(i), 0);
+            Assert.assertEquals(message, expected.getLineItem(i), actual.getLineItem(i));
+        }
+        Assert.assertEquals(message, expected.getLineCount(), actual.getLineCount());
+        for (int k = 0; k < expected.getLineCount(); k++) {
+            Assert.assertEquals(message, expected.getLineStart(k), actual.getLineStart(k));
+            Assert.assertEquals(message, expected.getLineEnd(k), actual.getLineEnd(k));
+            Assert.assertEquals(message, expected.getLineMainSize(k), actual.getLineMainSize(k), 1e-9);
+            Assert.assertEquals(message, expected.getLineCrossSize(k), actual.getLineCrossSize(k), 0);
+            Assert.assertEquals(message, expected.getLineCrossStart(k), actual.getLineCrossStart(k), 0);
+        }
+        Assert.assertEquals(message, expected.getMinMainSize(), actual.getMinMainSize(), 0);
+        Assert.assertEquals(message, expected.getMinCrossSize(), actual.getMinCrossSize(), 0);
+    }
+
+    @Test
+    public void testSameResultOnEveryPath() {
+        Random random = new Random(815);
+        for (int run = 0; run < 200; run++) {
+            List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(random, 1 + random.nextInt(30));
+            double mainSize = 50 + random.nextInt(400);
+            double crossSize = 50 + random.nextInt(400);
+            FlexboxLayout layout = FlexboxArrayEngineTest.layout(items,
+                    FlexDirection.values()[random.nextInt(FlexDirection.values().length)],
+                    FlexWrap.values()[random.nextInt(FlexWrap.values().length)],
+                    JustifyContent.values()[random.nextInt(JustifyContent.values().length)],
+                    AlignItems.values()[random.nextInt(AlignItems.values().length)],
+                    AlignContent.values()[random.nextInt(AlignContent.values().length)]);
+            String message = FlexboxSpec.of(layout).toString();
+            layout.layoutSubViews(mainSize, crossSize);
+            LayoutResult expected = layout.getLayoutResult();
+            Assert.assertEquals(layout.getLineCount(), expected.getLineCount());
+            for (int i = 0; i < items.size(); i++) {
+                Assert.assertEquals(items.get(i).getBounds().getX(), expected.getX(i), 0);
+                Assert.assertEquals(items.get(i).getBounds().getH(), expected.getH(i), 0);
+            }
+
+            assertSame(message, expected, StatelessLayout.layout(FlexboxSpec.of(layout), items, mainSize, crossSize));
+
+            layout.setArrayEngineEnabled(true);
+            layout.layoutSubViews(mainSize, crossSize + 1);
+            layout.layoutSubViews(mainSize, crossSize);
+            assertSame(message, expected, layout.getLayoutResult());
+
+            layout.setArrayEngineEnabled(false);
+            layout.setLayoutCacheSize(4);
+            layout.layoutSubViews(mainSize, crossSize + 1);
+            layout.layoutSubViews(mainSize, crossSize);
+            layout.layoutSubViews(mainSize, crossSize + 1);
+            layout.layoutSubViews(mainSize, crossSize);
+            assertSame(message, expected, layout.getLayoutResult());
+            try {
+                layout.getLineCount();
+                Assert.fail("the snapshot of a cached pass doesn't break lines");
+            } catch (IllegalStateException ex) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testBuffers() {
+        FlexboxLayout layout = new FlexboxLayout();
+        layout.setFlexDirection(FlexDirection.ROW);
+        layout.setFlexWrap(FlexWrap.WRAP);
+        layout.add(DefaultFlexItem.builder().width(60).height(20).build());
+        layout.add(DefaultFlexItem.builder().width(50).height(30).build());
+        layout.add(DefaultFlexItem.builder().width(40).height(10).build());
+        layout.layoutSubViews(100, 100);
+        LayoutResult result = layout.getLayoutResult();
+        Assert.assertEquals(2, result.getLineCount());
+        Assert.assertEquals(1, result.getLineEnd(0));
+        Assert.assertEquals(1, result.getLineStart(1));
+        Assert.assertEquals(3, result.getLineEnd(1));
+        Assert.assertEquals(2, result.getLineItem(2));
+        Assert.assertEquals(20, result.getLineCrossStart(1), 0);
+        Assert.assertEquals(30, result.getLineCrossSize(1), 0);
+        Assert.assertEquals(90, result.getLineMainSize(1), 0);
+
+        DoubleBuffer view = result.asDoubleBuffer();
+        Assert.assertTrue(view.isReadOnly());
+        Assert.assertEquals(12, view.remaining());
+        double[] expected = {0, 0, 60, 20, 0, 20, 50, 30, 50, 20, 40, 30};
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], view.get(i), 0);
+        }
+        try {
+            view.put(0, 1);
+            Assert.fail("the view must be read-only");
+        } catch (ReadOnlyBufferException ex) {
+            // expected
+        }
+
+        DoubleBuffer doubles = DoubleBuffer.allocate(14);
+        doubles.put(-1);
+        result.writeTo(doubles);
+        Assert.assertEquals(13, doubles.position());
+        Assert.assertEquals(50, doubles.get(9), 0);
+
+        FloatBuffer floats = FloatBuffer.allocate(12);
+        result.writeTo(floats);
+        Assert.assertEquals(12, floats.position());
+        Assert.assertEquals(40, floats.get(10), 0);
+        Assert.assertEquals(30, floats.get(11), 0);
+        floats.clear().position(1);
+        try {
+            result.writeTo(floats);
+            Assert.fail("the buffer is too small");
+        } catch (BufferOverflowException ex) {
+            Assert.assertEquals("nothing is written", 1, floats.position());
+        }
+    }
+
+    @Test
+    public void testResultOfChangedLayout() {
+        FlexboxLayout layout = new FlexboxLayout();
+        layout.add(DefaultFlexItem.builder().width(60).height(20).build());
+        try {
+            layout.getLayoutResult();
+            Assert.fail("not laid out yet");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        layout.layoutSubViews(100, 100);
+        Assert.assertEquals(1, layout.getLayoutResult().getItemCount());
+        layout.add(DefaultFlexItem.builder().width(60).height(20).build());
+        try {
+            layout.getLayoutResult();
+            Assert.fail("an item has been added");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author antonepple
+ */
+public class ParallelLayoutTest {
+
+    static FlexNode randomTree(Random random, int depth) {
+        FlexNode node = new FlexNode();
+        node.setFlexDirection(FlexDirection.values()[random.nextInt(FlexDirection.values().length)]);
+        node.setFlexWrap(FlexWrap.values()[random.nextInt(FlexWrap.values().length)]);
+        node.setJustifyContent(JustifyContent.values()[random.nextInt(JustifyContent.values().length)]);
+        node.setAlignItems(AlignItems.values()[random.nextInt(AlignItems.values().length)]);
+        node.setAlignContent(AlignContent.values()[random.nextInt(AlignContent.values().length)]);
+        node.setMinWidth(random.nextInt(40));
+        node.setMinHeight(random.nextInt(40));
+        node.setFlexGrow(random.nextInt(3));
+        node.setFlexShrink(random.nextInt(3));
+        if (depth > 0) {
+            int count = 1 + random.nextInt(6);
+            for (int i = 0; i < count; i++) {
+                node.add(randomTree(random, depth - 1));
+            }
+        }
+        return node;
+    }
+
+    static void bounds(FlexNode node, List<String> result) {
+        result.add(node.getBounds().toString());
+        for (FlexNode child : node.getChildren()) {
+            bounds(child, result);
+        }
+    }
+
+    @Test
+    public void testSameResultsAsSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int run = 0; run < 20; run++) {
+                FlexNode sequential = randomTree(new Random(run), 5);
+                FlexNode parallel = randomTree(new Random(run), 5);
+                Assert.assertEquals(sequential.getSubtreeSize(), parallel.getSubtreeSize());
+                sequential.layout(800, 600);
+                new ParallelLayout(pool, 8).layout(parallel, 800, 600);
+                List<String> expected = new ArrayList<>(), actual = new ArrayList<>();
+                bounds(sequential, expected);
+                bounds(parallel, actual);
+                Assert.assertEquals(expected, actual);
+                Assert.assertFalse(parallel.isDirty());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testForest() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Random random = new Random(42);
+            List<FlexNode> sequential = new ArrayList<>(), parallel = new ArrayList<>();
+            double[] widths = new double[200], heights = new double[200];
+            for (int i = 0; i < widths.length; i++) {
+                long seed = random.nextLong();
+                sequential.add(randomTree(new Random(seed), 2));
+                parallel.add(randomTree(new Random(seed), 2));
+                widths[i] = 100 + random.nextInt(200);
+                heights[i] = 100 + random.nextInt(200);
+            }
+            new ParallelLayout(pool, 16).layout(parallel, widths, heights);
+            for (int i = 0; i < widths.length; i++) {
+                sequential.get(i).layout(widths[i], heights[i]);
+                List<String> expected = new ArrayList<>(), actual = new ArrayList<>();
+                bounds(sequential.get(i), expected);
+                bounds(parallel.get(i), actual);
+                Assert.assertEquals(expected, actual);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testLayouts() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Random random = new Random(7);
+            List<FlexboxLayout> layouts = new ArrayList<>();
+            List<List<FlexboxLayout.DefaultFlexItem>> items = new ArrayList<>();
+            double[] mainSizes = new double[100], crossSizes = new double[100];
+            for (int i = 0; i < mainSizes.length; i++) {
+                items.add(FlexboxArrayEngineTest.randomItems(random, 1 + random.nextInt(30)));
+                layouts.add(FlexboxArrayEngineTest.layout(items.get(i), FlexDirection.ROW, FlexWrap.WRAP,
+                        JustifyContent.SPACE_AROUND, AlignItems.CENTER, AlignContent.STRETCH));
+                mainSizes[i] = 100 + random.nextInt(300);
+                crossSizes[i] = 100 + random.nextInt(300);
+            }
+            new ParallelLayout(pool, 10).layoutSubViews(layouts, mainSizes, crossSizes);
+            for (int i = 0; i < mainSizes.length; i++) {
+                double[] actual = FlexboxArrayEngineTest.bounds(items.get(i));
+                layouts.get(i).invalidate();
+                layouts.get(i).layoutSubViews(mainSizes[i], crossSizes[i]);
+                Assert.assertArrayEquals(FlexboxArrayEngineTest.bounds(items.get(i)), actual, 0);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
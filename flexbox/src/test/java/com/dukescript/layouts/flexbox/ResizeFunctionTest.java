@@ -0,0 +1,134 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author antonepple
+ */
+public class ResizeFunctionTest {
+
+    @Test
+    public void testSameBoundsAsLayout() {
+        Random random = new Random(23);
+        for (int round = 0; round < 30; round++) {
+            FlexDirection direction = FlexDirection.values()[random.nextInt(4)];
+            FlexWrap wrap = FlexWrap.values()[random.nextInt(3)];
+            JustifyContent justifyContent = JustifyContent.values()[random.nextInt(JustifyContent.values().length)];
+            AlignItems alignItems = AlignItems.values()[random.nextInt(AlignItems.values().length)];
+            AlignContent alignContent = AlignContent.values()[random.nextInt(AlignContent.values().length)];
+            long seed = random.nextLong();
+            List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(new Random(seed), 1 + random.nextInt(20));
+            List<DefaultFlexItem> expectedItems = FlexboxArrayEngineTest.randomItems(new Random(seed), items.size());
+            FlexboxLayout layout = FlexboxArrayEngineTest.layout(items, direction, wrap, justifyContent, alignItems, alignContent);
+            FlexboxLayout expected = FlexboxArrayEngineTest.layout(expectedItems, direction, wrap, justifyContent, alignItems, alignContent);
+
+            ResizeFunction function = ResizeFunction.compute(layout, 150, 450, 600);
+            Assert.assertEquals(items.size(), function.getItemCount());
+            Assert.assertTrue(function.getSegmentCount() >= 1);
+            double[] bounds = new double[items.size() * 4];
+            for (int i = 0; i < 300; i++) {
+                double mainSize = 150 + random.nextDouble() * 300;
+                function.evaluate(mainSize, bounds);
+                expected.layoutSubViews(mainSize, 600);
+                double[] expectedBounds = FlexboxArrayEngineTest.bounds(expectedItems);
+                int segment = function.segmentAt(mainSize);
+                if (function.isLinear(segment)) {
+                    // continuous, but not necessarily linear within the resolution
+                    boolean shortSegment = function.getKnot(segment + 1) - function.getKnot(segment) <= ResizeFunction.DEFAULT_RESOLUTION;
+                    Assert.assertArrayEquals(mainSize + " " + round, expectedBounds, bounds,
+                            shortSegment ? ResizeFunction.DEFAULT_RESOLUTION : 1e-6);
+                }
+            }
+            double knot = function.getKnot(function.getSegmentCount() / 2);
+            function.apply(knot);
+            expected.layoutSubViews(knot, 600);
+            Assert.assertArrayEquals(FlexboxArrayEngineTest.bounds(expectedItems), FlexboxArrayEngineTest.bounds(items), 1e-6);
+        }
+    }
+
+    @Test
+    public void testAfterPartialPass() {
+        FlexboxLayout layout = new FlexboxLayout();
+        layout.setFlexDirection(FlexDirection.ROW);
+        layout.setFlexWrap(FlexWrap.WRAP);
+        layout.setAlignItems(AlignItems.FLEX_START);
+        DefaultFlexItem second = DefaultFlexItem.builder().width(60).height(20).build();
+        layout.add(DefaultFlexItem.builder().width(50).height(20).build());
+        layout.add(second);
+        layout.layoutSubViews(100, 100);
+        second.setWidth(40);
+        layout.layoutSubViews(100, 100);
+        // sampled starting with the size of the partial pass
+        ResizeFunction function = ResizeFunction.compute(layout, 100, 120, 100);
+        double[] bounds = new double[8];
+        function.evaluate(100, bounds);
+        Assert.assertArrayEquals(new double[]{0, 0, 50, 20, 50, 0, 40, 20}, bounds, 1e-9);
+    }
+
+    @Test
+    public void testSegments() {
+        FlexboxLayout layout = new FlexboxLayout();
+        layout.setFlexDirection(FlexDirection.ROW);
+        layout.setFlexWrap(FlexWrap.WRAP);
+        layout.add(DefaultFlexItem.builder().width(100).height(20).build());
+        layout.add(DefaultFlexItem.builder().minWidth(50).maxWidth(150).height(20).flexGrow(1).build());
+        ResizeFunction function = ResizeFunction.compute(layout, 100, 400, 100);
+        // the second item wraps below 150, grows until 250 and stops there
+        double[] bounds = new double[8];
+        function.evaluate(120, bounds);
+        Assert.assertArrayEquals(new double[]{0, 0, 100, 20, 0, 20, 120, 20}, bounds, 1e-9);
+        function.evaluate(200, bounds);
+        Assert.assertArrayEquals(new double[]{0, 0, 100, 20, 100, 0, 100, 20}, bounds, 1e-9);
+        function.evaluate(300, bounds);
+        Assert.assertArrayEquals(new double[]{0, 0, 100, 20, 100, 0, 150, 20}, bounds, 1e-9);
+        function.evaluate(1000, bounds);
+        Assert.assertArrayEquals(new double[]{0, 0, 100, 20, 100, 0, 150, 20}, bounds, 1e-9);
+        Assert.assertTrue(function.getSegmentCount() < 20);
+        Assert.assertFalse(function.isLinear(function.segmentAt(150)));
+        Assert.assertTrue(function.isLinear(function.segmentAt(200)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyRange() {
+        ResizeFunction.compute(new FlexboxLayout(), 100, 100, 100);
+    }
+}
@@ -0,0 +1,152 @@
+package com.dukescript.layouts.flexbox;
+
+/*-
+ * #%L
+ * flexbox - a library from the "DukeScript Layouts" project.
+ * %%
+ * Copyright (C) 2018 - 2019 Dukehoff GmbH
+ * %%
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Dukehoff GmbH designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Dukehoff GmbH in the LICENSE file that accompanied this code.
+ * 
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ * 
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *  Please contact Dukehoff GmbH, Heimeranstr. 68, 80339 Muenchen, Germany
+ *  or visit www.dukescript.com if you need additional information or have any
+ *  questions.
+ * #L%
+ */
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignContent;
+import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
+import com.dukescript.layouts.flexbox.FlexboxLayout.DefaultFlexItem;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
+import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
+import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author antonepple
+ */
+public class StatelessLayoutTest {
+
+    private static double[] bounds(LayoutResult result) {
+        double[] bounds = new double[result.getItemCount() * 4];
+        for (int i = 0; i < result.getItemCount(); i++) {
+            bounds[i * 4] = result.getX(i);
+            bounds[i * 4 + 1] = result.getY(i);
+            bounds[i * 4 + 2] = result.getW(i);
+            bounds[i * 4 + 3] = result.getH(i);
+        }
+        return bounds;
+    }
+
+    @Test
+    public void testSameResultsAsFlexboxLayout() {
+        Random random = new Random(4711);
+        for (int run = 0; run < 200; run++) {
+            List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(random, 1 + random.nextInt(30));
+            double mainSize = 50 + random.nextInt(400);
+            double crossSize = 50 + random.nextInt(400);
+            FlexboxSpec spec = FlexboxSpec.builder()
+                    .flexDirection(FlexDirection.values()[random.nextInt(FlexDirection.values().length)])
+                    .flexWrap(FlexWrap.values()[random.nextInt(FlexWrap.values().length)])
+                    .justifyContent(JustifyContent.values()[random.nextInt(JustifyContent.values().length)])
+                    .alignItems(AlignItems.values()[random.nextInt(AlignItems.values().length)])
+                    .alignContent(AlignContent.values()[random.nextInt(AlignContent.values().length)])
+                    .build();
+            LayoutResult result = StatelessLayout.layout(spec, items, mainSize, crossSize);
+            for (DefaultFlexItem item : items) {
+                Assert.assertNull("items aren't changed", item.getBounds());
+            }
+            FlexboxLayout layout = FlexboxArrayEngineTest.layout(items, spec.getFlexDirection(), spec.getFlexWrap(),
+                    spec.getJustifyContent(), spec.getAlignItems(), spec.getAlignContent());
+            Assert.assertEquals(spec, FlexboxSpec.of(layout));
+            layout.layoutSubViews(mainSize, crossSize);
+            Assert.assertArrayEquals(spec.toString(), FlexboxArrayEngineTest.bounds(items), bounds(result), 0);
+            Assert.assertEquals(layout.getMinMainSize(), result.getMinMainSize(), 0);
+            Assert.assertEquals(layout.getMinCrossSize(), result.getMinCrossSize(), 0);
+        }
+    }
+
+    @Test
+    public void testSharedTemplate() throws Exception {
+        final List<DefaultFlexItem> items = FlexboxArrayEngineTest.randomItems(new Random(42), 200);
+        final FlexboxSpec spec = FlexboxSpec.builder().flexDirection(FlexDirection.ROW).flexWrap(FlexWrap.WRAP)
+                .justifyContent(JustifyContent.SPACE_BETWEEN).alignContent(AlignContent.CENTER).build();
+        final double[][] expected = new double[50][];
+        for (int size = 0; size < expected.length; size++) {
+            expected[size] = bounds(StatelessLayout.layout(spec, items, 200 + size * 10, 600));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int offset = t;
+                futures.add(executor.submit(() -> {
+                    for (int run = 0; run < 20; run++) {
+                        for (int i = 0; i < expected.length; i++) {
+                            int size = (i + offset * 7) % expected.length;
+                            LayoutResult result = StatelessLayout.layout(spec, items, 200 + size * 10, 600);
+                            Assert.assertArrayEquals(expected[size], bounds(result), 0);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testReentrant() {
+        final FlexboxSpec inner = FlexboxSpec.builder().flexDirection(FlexDirection.ROW).build();
+        final List<DefaultFlexItem> innerItems = Arrays.asList(
+                DefaultFlexItem.builder().width(30).height(10).build(),
+                DefaultFlexItem.builder().width(40).height(25).build());
+        DefaultFlexItem nested = new DefaultFlexItem();
+        nested.setWidth(-1);
+        nested.setHeight(-1);
+        nested.setMeasureFunction((item, width, widthMode, height, heightMode, size) -> {
+            LayoutResult result = StatelessLayout.layout(inner, innerItems, 1000, 1000);
+            size.setW(result.getX(1) + result.getW(1));
+            size.setH(result.getMinCrossSize());
+        });
+        List<DefaultFlexItem> items = Arrays.asList(DefaultFlexItem.builder().width(20).height(20).build(), nested);
+        FlexboxSpec outer = FlexboxSpec.builder().flexDirection(FlexDirection.ROW).alignItems(AlignItems.FLEX_START).build();
+
+        LayoutResult result = StatelessLayout.layout(outer, items, 300, 300);
+        Assert.assertEquals(20, result.getX(1), 0);
+        Assert.assertEquals(70, result.getW(1), 0);
+        Assert.assertEquals(25, result.getH(1), 0);
+        // the engine of the thread is still usable after the nested call
+        LayoutResult again = StatelessLayout.layout(outer, items, 300, 300);
+        Assert.assertArrayEquals(bounds(result), bounds(again), 0);
+        Assert.assertNull(nested.getBounds());
+    }
+}
@@ -37,8 +37,12 @@ import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
 import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
 import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
 import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
-import java.util.logging.Logger;
+import com.dukescript.layouts.flexbox.LayoutTracer;
+import com.dukescript.layouts.flexbox.MeasureFunction;
+import java.util.ArrayList;
+import java.util.List;
 import org.robovm.apple.coregraphics.CGRect;
+import org.robovm.apple.coregraphics.CGSize;
 import org.robovm.apple.foundation.NSArray;
 import org.robovm.apple.uikit.NSLayoutConstraint;
 import org.robovm.apple.uikit.UIApplication;
@@ -53,6 +57,7 @@ import org.robovm.apple.uikit.UIView;
 public class FlexboxView extends UIView {
 
     private FlexboxLayout flexboxLayout = new FlexboxLayout();
+    private final List<FlexItemAdapter> adapters = new ArrayList<>();
 
     public FlexboxView(CGRect context) {
         super(context);
@@ -66,23 +71,61 @@ public class FlexboxView extends UIView {
         UIInterfaceOrientation statusBarOrientation = UIApplication.getSharedApplication().getStatusBarOrientation();
         NSArray<UIView> subviews = getSubviews();
 
-        flexboxLayout.clearItems();
-        for (UIView subview : subviews) {
-            flexboxLayout.add(new FlexItemAdapter(subview));
+        // the adapters keep the bounds applied last, so unchanged subviews
+        // aren't touched again
+        if (!hasAdapters(subviews)) {
+            flexboxLayout.clearItems();
+            adapters.clear();
+            for (UIView subview : subviews) {
+                FlexItemAdapter adapter = new FlexItemAdapter(subview);
+                adapters.add(adapter);
+                flexboxLayout.add(adapter);
+            }
+        } else {
+            for (FlexItemAdapter adapter : adapters) {
+                adapter.readParams();
+                adapter.checkContent();
+            }
         }
         boolean isHorizontal = statusBarOrientation == UIInterfaceOrientation.LandscapeLeft 
                 || statusBarOrientation == UIInterfaceOrientation.LandscapeRight;
         double width =  isHorizontal ? getBounds().getWidth(): getBounds().getHeight();
         double height =  isHorizontal ?getBounds().getHeight(): getBounds().getWidth();
-        System.out.println("horizontal layout "+isHorizontal+ "width: "+width+" height "+height);
-        
-        
+
         flexboxLayout.layoutSubViews(flexboxLayout.isHorizontal() ?  width : height,
                 flexboxLayout.isHorizontal() ? height : width);
 
         
     }
     
+    /**
+     * Drops the measurements of a subview, e.g. after its content changed
+     * without changing its intrinsic content size. Subviews with a changed
+     * intrinsic content size are measured again without this.
+     *
+     * @param subview a subview of this view
+     */
+    public void invalidateMeasure(UIView subview) {
+        for (FlexItemAdapter adapter : adapters) {
+            if (adapter.delegate == subview) {
+                adapter.invalidateMeasure();
+            }
+        }
+        setNeedsLayout();
+    }
+
+    private boolean hasAdapters(NSArray<UIView> subviews) {
+        if (subviews.size() != adapters.size()) {
+            return false;
+        }
+        for (int i = 0; i < adapters.size(); i++) {
+            if (subviews.get(i) != adapters.get(i).delegate) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void setFlexDirection(FlexDirection flexDirection) {
         flexboxLayout.setFlexDirection(flexDirection);
     }
@@ -103,31 +146,74 @@ public class FlexboxView extends UIView {
         flexboxLayout.setAlignContent(alignContent);
     }
 
+    public void setLayoutTracer(LayoutTracer tracer) {
+        flexboxLayout.setLayoutTracer(tracer);
+    }
+
     /**
      * Introduced to allow generic implementation of FlexBox Algorithm
      */
     private static class FlexItemAdapter extends FlexboxLayout.FlexItem {
-        Logger LOG = Logger.getLogger(FlexItemAdapter.class.getName());
         private final UIView delegate;
         private FlexBoxlayoutParams.LayoutParams params;
         private double height, width = 0;
+        private CGSize intrinsicSize;
 
         public FlexItemAdapter(UIView subview) {
             this.delegate = subview;
+            readParams();
+            setMeasureFunction(FlexItemAdapter::measureView);
+            intrinsicSize = subview.getIntrinsicContentSize();
+        }
+
+        /**
+         * Subviews ask their superview for a layout when their content
+         * changes, without telling which one it was. Only the subviews with
+         * a changed intrinsic content size are measured again.
+         */
+        final void checkContent() {
+            CGSize size = delegate.getIntrinsicContentSize();
+            if (size.getWidth() != intrinsicSize.getWidth() || size.getHeight() != intrinsicSize.getHeight()) {
+                intrinsicSize = size;
+                invalidateMeasure();
+            }
+        }
+
+        final void readParams() {
+            this.params = null;
             NSArray<NSLayoutConstraint> constraints = this.delegate.getConstraints();
             for (NSLayoutConstraint constraint : constraints) {
                 if (constraint instanceof FlexBoxlayoutParams) {
-                    LOG.info("Found FlexBoxlayoutParams");
                     this.params = ((FlexBoxlayoutParams) constraint).getLayoutParams();
                     break;
                 }
             }
             if (this.params == null) {
-                 LOG.info("Found no FlexBoxlayoutParams, creating empty one");
                 this.params = new FlexBoxlayoutParams.LayoutParams();
             }
         }
 
+        private static void measureView(FlexboxLayout.FlexItem item, double width, MeasureFunction.Mode widthMode,
+                double height, MeasureFunction.Mode heightMode, Bounds size) {
+            UIView view = ((FlexItemAdapter) item).delegate;
+            CGSize fits = view.sizeThatFits(new CGSize(
+                    widthMode == MeasureFunction.Mode.UNDEFINED ? Double.MAX_VALUE : width,
+                    heightMode == MeasureFunction.Mode.UNDEFINED ? Double.MAX_VALUE : height));
+            size.setW(constrain(fits.getWidth(), width, widthMode));
+            size.setH(constrain(fits.getHeight(), height, heightMode));
+        }
+
+        private static double constrain(double fits, double available, MeasureFunction.Mode mode) {
+            switch (mode) {
+                case EXACTLY:
+                    return available;
+                case AT_MOST:
+                    return Math.min(fits, available);
+                default:
+                    return fits;
+            }
+        }
+
         @Override
         public float getFlexBasisPercent() {
             return params.getFlexBasisPercent();
@@ -145,7 +231,8 @@ public class FlexboxView extends UIView {
 
         @Override
         public double getHeight() {
-            return 30;
+            // measured with sizeThatFits
+            return -1;
         }
 
         @Override
@@ -199,7 +286,8 @@ public class FlexboxView extends UIView {
 
         @Override
         public double getWidth() {
-            return 100;
+            // measured with sizeThatFits
+            return -1;
         }
 
         @Override
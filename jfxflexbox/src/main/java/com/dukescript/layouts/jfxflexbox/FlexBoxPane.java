@@ -36,10 +36,18 @@ import com.dukescript.layouts.flexbox.FlexboxLayout.AlignItems;
 import com.dukescript.layouts.flexbox.FlexboxLayout.FlexDirection;
 import com.dukescript.layouts.flexbox.FlexboxLayout.FlexWrap;
 import com.dukescript.layouts.flexbox.FlexboxLayout.JustifyContent;
+import com.dukescript.layouts.flexbox.LayoutTracer;
+import com.dukescript.layouts.flexbox.MeasureFunction;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.beans.value.ChangeListener;
 import javafx.collections.ListChangeListener;
+import javafx.collections.MapChangeListener;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
 import javafx.scene.Node;
+import javafx.scene.Parent;
 import javafx.scene.layout.Pane;
 
 /**
@@ -92,6 +100,7 @@ public class FlexBoxPane extends Pane {
     private static Insets DEFAULT_MARGIN = new Insets(0);
 
     private final FlexboxLayout layout = new FlexboxLayout();
+    private final List<FlexItemImpl> flexItems = new ArrayList<>();
     private ListChangeListener childwatch;
 
     public FlexBoxPane() {
@@ -182,10 +191,9 @@ public class FlexBoxPane extends Pane {
             Object value = node.getProperties().get(key);
             if (value != null) {
                 return value;
-            } else {
-                setConstraint(node, key, defaultVal);
             }
         }
+        // not stored, storing it would request a layout while laying out
         return defaultVal;
     }
 
@@ -204,6 +212,47 @@ public class FlexBoxPane extends Pane {
         );
     }
 
+    /**
+     * Wrapping content needs more lines when it gets less space, so the
+     * height of a row depends on its width and the width of a column on its
+     * height.
+     */
+    @Override
+    public Orientation getContentBias() {
+        if (layout.getFlexWrap() == FlexWrap.NOWRAP) {
+            return null;
+        }
+        return layout.isHorizontal() ? Orientation.HORIZONTAL : Orientation.VERTICAL;
+    }
+
+    /*
+     * The sizes are computed by the layout from the line breaks only, without
+     * a layout pass, and kept until a child changes.
+     */
+    @Override
+    protected double computePrefWidth(double height) {
+        return layout.isHorizontal() ? layout.computeMaxContentMainSize() : layout.computeContentCrossSize(available(height));
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return layout.isHorizontal() ? layout.computeContentCrossSize(available(width)) : layout.computeMaxContentMainSize();
+    }
+
+    @Override
+    protected double computeMinWidth(double height) {
+        return layout.isHorizontal() ? layout.computeMinContentMainSize() : layout.computeContentCrossSize(available(height));
+    }
+
+    @Override
+    protected double computeMinHeight(double width) {
+        return layout.isHorizontal() ? layout.computeContentCrossSize(available(width)) : layout.computeMinContentMainSize();
+    }
+
+    private static double available(double size) {
+        return size < 0 ? Double.POSITIVE_INFINITY : size;
+    }
+
     @Override
     public ObservableList<Node> getChildren() {
         final ObservableList<Node> children = super.getChildren();
@@ -213,9 +262,15 @@ public class FlexBoxPane extends Pane {
                 public void onChanged(ListChangeListener.Change<? extends Node> c) {
                     // TODO could be faster, if you deal with individual changes instead of replacing the full list
                     layout.clearItems();
+                    for (FlexItemImpl item : flexItems) {
+                        item.dispose();
+                    }
+                    flexItems.clear();
                     for (Node child : children) {
                         if (child.isManaged()) {
-                            layout.add(new FlexItemImpl(child));
+                            FlexItemImpl item = new FlexItemImpl(child);
+                            flexItems.add(item);
+                            layout.add(item);
                         }
                     }
                 }
@@ -262,12 +317,96 @@ public class FlexBoxPane extends Pane {
         requestLayout();
     }
 
+    /**
+     * Installs a tracer on the layout of this pane, e.g. a
+     * {@link com.dukescript.layouts.flexbox.LayoutRecorder} to capture the layout passes for a replay.
+     *
+     * @param tracer the tracer or null to stop tracing
+     */
+    public void setLayoutTracer(LayoutTracer tracer) {
+        layout.setLayoutTracer(tracer);
+    }
+
+    /**
+     * Reports the changes of its node to the layout, so only the lines of
+     * changed nodes are laid out again.
+     */
     private static class FlexItemImpl extends FlexboxLayout.FlexItem {
 
         private final Node delegate;
+        // a parent asks for a layout when its content changed
+        private final ChangeListener<Boolean> needsLayoutListener = (o, old, needsLayout) -> {
+            if (needsLayout) {
+                invalidateMeasure();
+            }
+        };
+        // other nodes aren't resized, their bounds only change with the content
+        private final ChangeListener<javafx.geometry.Bounds> boundsListener = (o, old, bounds) -> invalidateMeasure();
+        private final MapChangeListener<Object, Object> constraintListener = c -> constraintChanged(c.getKey());
 
         private FlexItemImpl(Node delegate) {
             this.delegate = delegate;
+            if (delegate.getContentBias() != null) {
+                // e.g. wrapping text, the size along one axis depends on the other
+                setMeasureFunction(FlexItemImpl::measureNode);
+            }
+            if (delegate instanceof Parent) {
+                ((Parent) delegate).needsLayoutProperty().addListener(needsLayoutListener);
+            } else {
+                delegate.layoutBoundsProperty().addListener(boundsListener);
+            }
+            delegate.getProperties().addListener(constraintListener);
+        }
+
+        void dispose() {
+            if (delegate instanceof Parent) {
+                ((Parent) delegate).needsLayoutProperty().removeListener(needsLayoutListener);
+            } else {
+                delegate.layoutBoundsProperty().removeListener(boundsListener);
+            }
+            delegate.getProperties().removeListener(constraintListener);
+        }
+
+        private void constraintChanged(Object key) {
+            if (MARGIN_CONSTRAINT.equals(key) || FLEX_BASIS_PERCENT.equals(key)) {
+                invalidate(Change.SIZE);
+            } else if (FLEX_GROW.equals(key) || FLEX_SHRINK.equals(key)) {
+                invalidate(Change.FLEX);
+            } else if (ORDER_CONSTRAINT.equals(key)) {
+                invalidate(Change.ORDER);
+            } else if (FLEX_ALIGN_SELF.equals(key)) {
+                invalidate(Change.ALIGN);
+            }
+        }
+
+        private static void measureNode(FlexboxLayout.FlexItem item, double width, MeasureFunction.Mode widthMode,
+                double height, MeasureFunction.Mode heightMode, Bounds size) {
+            Node node = ((FlexItemImpl) item).delegate;
+            if (node.getContentBias() == Orientation.VERTICAL) {
+                double h = constrain(node.prefHeight(-1), height, heightMode);
+                size.setH(h);
+                size.setW(constrain(node.prefWidth(h), width, widthMode));
+            } else {
+                double w = constrain(node.prefWidth(-1), width, widthMode);
+                size.setW(w);
+                size.setH(constrain(node.prefHeight(w), height, heightMode));
+            }
+        }
+
+        private static double constrain(double preferred, double available, MeasureFunction.Mode mode) {
+            switch (mode) {
+                case EXACTLY:
+                    return available;
+                case AT_MOST:
+                    return Math.min(preferred, available);
+                default:
+                    return preferred;
+            }
+        }
+
+        @Override
+        protected boolean notifiesChanges() {
+            return true;
         }
 
         @Override
@@ -277,6 +416,9 @@ public class FlexBoxPane extends Pane {
 
         @Override
         public double getWidth() {
+            if (getMeasureFunction() != null && getFlexBasisPercent() < 0) {
+                return -1;
+            }
             double prefWidth = delegate.prefWidth(-1);
             if (getFlexBasisPercent()<=0) return prefWidth;
             double minWidth = delegate.minWidth(-1);
@@ -288,6 +430,9 @@ public class FlexBoxPane extends Pane {
 
         @Override
         public double getHeight() {
+            if (getMeasureFunction() != null && getFlexBasisPercent() < 0) {
+                return -1;
+            }
             double prefHeight = delegate.prefHeight(-1);
             if (getFlexBasisPercent()<=0)return prefHeight;
             double minHeight = delegate.minHeight(-1);